@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.ls.core.internal.JavaClientConnection.JavaLanguageClient;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.SemanticHighlightingInformation;
+import org.eclipse.lsp4j.SemanticHighlightingParams;
+
+/**
+ * Queue of the document notifications sent to the client.
+ *
+ * Pending notifications are written by a single thread, in batches, at most
+ * once per flush interval. Only the newest pending diagnostics of a document
+ * are sent. Semantic highlighting notifications are incremental, so the
+ * pending ones are only merged when they target the same document version,
+ * and are otherwise sent in order. Sending is serialized, so the notifications
+ * of a document reach the client in the order they were queued, whichever
+ * thread flushes them.
+ */
+public class ClientNotificationQueue {
+
+	private final JavaLanguageClient client;
+	private final Object lock = new Object();
+	private final Object sendLock = new Object();
+	private final Map<String, PublishDiagnosticsParams> pendingDiagnostics = new LinkedHashMap<>();
+	private final Map<String, List<SemanticHighlightingParams>> pendingHighlightings = new LinkedHashMap<>();
+	private final Thread writer;
+	private volatile long flushInterval;
+	private boolean disposed;
+
+	public ClientNotificationQueue(JavaLanguageClient client, long flushInterval) {
+		this.client = client;
+		this.flushInterval = flushInterval;
+		this.writer = new Thread(this::run, "Client Notifications Writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public void publishDiagnostics(PublishDiagnosticsParams params) {
+		synchronized (lock) {
+			if (!disposed) {
+				// latest wins, and moves to the end of the queue
+				pendingDiagnostics.remove(params.getUri());
+				pendingDiagnostics.put(params.getUri(), params);
+				lock.notifyAll();
+				return;
+			}
+		}
+		synchronized (sendLock) {
+			client.publishDiagnostics(params);
+		}
+	}
+
+	public void semanticHighlighting(SemanticHighlightingParams params) {
+		synchronized (lock) {
+			if (!disposed) {
+				List<SemanticHighlightingParams> pending = pendingHighlightings.computeIfAbsent(params.getTextDocument().getUri(), uri -> new ArrayList<>());
+				int last = pending.size() - 1;
+				if (last >= 0 && isSameVersion(pending.get(last), params)) {
+					pending.set(last, merge(pending.get(last), params));
+				} else {
+					pending.add(params);
+				}
+				lock.notifyAll();
+				return;
+			}
+		}
+		synchronized (sendLock) {
+			client.semanticHighlighting(params);
+		}
+	}
+
+	/**
+	 * Sends all the pending notifications.
+	 */
+	public void flush() {
+		synchronized (sendLock) {
+			List<PublishDiagnosticsParams> diagnostics;
+			List<SemanticHighlightingParams> highlightings = new ArrayList<>();
+			synchronized (lock) {
+				diagnostics = new ArrayList<>(pendingDiagnostics.values());
+				pendingDiagnostics.clear();
+				pendingHighlightings.values().forEach(highlightings::addAll);
+				pendingHighlightings.clear();
+			}
+			for (PublishDiagnosticsParams params : diagnostics) {
+				client.publishDiagnostics(params);
+			}
+			for (SemanticHighlightingParams params : highlightings) {
+				client.semanticHighlighting(params);
+			}
+		}
+	}
+
+	/**
+	 * Sends the pending notifications and stops the writer thread. Later
+	 * notifications are sent directly.
+	 */
+	public void dispose() {
+		synchronized (sendLock) {
+			synchronized (lock) {
+				disposed = true;
+				lock.notifyAll();
+			}
+			// the direct notifications wait for the pending ones
+			flush();
+		}
+	}
+
+	private void run() {
+		while (true) {
+			synchronized (lock) {
+				while (!disposed && pendingDiagnostics.isEmpty() && pendingHighlightings.isEmpty()) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (disposed) {
+					return;
+				}
+			}
+			try {
+				// let the notifications of the current batch accumulate
+				Thread.sleep(flushInterval);
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				flush();
+			} catch (Exception e) {
+				JavaLanguageServerPlugin.logException("Failed to send notifications to the client", e);
+			}
+		}
+	}
+
+	private static boolean isSameVersion(SemanticHighlightingParams first, SemanticHighlightingParams second) {
+		Integer version = first.getTextDocument().getVersion();
+		return version != null && Objects.equals(version, second.getTextDocument().getVersion());
+	}
+
+	private static SemanticHighlightingParams merge(SemanticHighlightingParams older, SemanticHighlightingParams newer) {
+		Map<Integer, SemanticHighlightingInformation> lines = new TreeMap<>();
+		for (SemanticHighlightingInformation info : older.getLines()) {
+			lines.put(info.getLine(), info);
+		}
+		for (SemanticHighlightingInformation info : newer.getLines()) {
+			lines.put(info.getLine(), info);
+		}
+		return new SemanticHighlightingParams(newer.getTextDocument(), new ArrayList<>(lines.values()));
+	}
+
+}
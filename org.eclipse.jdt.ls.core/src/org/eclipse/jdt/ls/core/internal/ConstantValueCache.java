@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.manipulation.SharedASTProviderCore;
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+/**
+ * Cache of the constant values of the static final fields of type roots, used
+ * by hovers and completions.
+ * <p>
+ * The values of all the fields of a type root are collected in a single pass
+ * over its AST, the first time one of them is needed. The values of a type
+ * root are dropped when its contents change: the modification stamp of the
+ * buffer or of the resource identify the contents of compilation units, and
+ * the archive or class file of binary ones.
+ * </p>
+ */
+public final class ConstantValueCache {
+
+	private static final int MAX_TYPE_ROOTS = 100;
+
+	/**
+	 * Marks the fields known to have no constant value.
+	 */
+	private static final Object NONE = new Object();
+
+	private static final Map<String, TypeRootConstants> CACHE = new LinkedHashMap<String, TypeRootConstants>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, TypeRootConstants> eldest) {
+			return size() > MAX_TYPE_ROOTS;
+		}
+	};
+
+	private ConstantValueCache() {
+		//Don't instantiate
+	}
+
+	/**
+	 * Returns the constant value of the given field, computing the values of
+	 * all the fields of its type root if they are not cached yet.
+	 *
+	 * @param field
+	 *            the field
+	 * @param monitor
+	 *            the progress monitor or null
+	 * @return the constant value of the field, or <code>null</code> if it has
+	 *         none, or if the computation was cancelled
+	 */
+	public static Object getConstantValue(IField field, IProgressMonitor monitor) {
+		ITypeRoot typeRoot = field.getTypeRoot();
+		Object stamp = typeRoot == null ? null : getStamp(typeRoot);
+		if (stamp == null) {
+			return computeConstantValue(field, monitor);
+		}
+		TypeRootConstants constants = get(typeRoot, stamp);
+		if (constants == null) {
+			constants = collectConstantValues(typeRoot, stamp, monitor);
+			if (constants == null) {
+				return null;
+			}
+			put(typeRoot, constants);
+		}
+		String key = field.getHandleIdentifier();
+		Object value;
+		synchronized (constants) {
+			value = constants.values.get(key);
+		}
+		if (value == null && !constants.complete) {
+			value = computeConstantValue(field, monitor);
+			if (monitor != null && monitor.isCanceled()) {
+				return null;
+			}
+			synchronized (constants) {
+				constants.values.put(key, value == null ? NONE : value);
+			}
+		}
+		return value == NONE ? null : value;
+	}
+
+	/**
+	 * Returns the constant value of the given field if it is cached, without
+	 * computing anything.
+	 *
+	 * @param field
+	 *            the field
+	 * @return the cached constant value of the field, or <code>null</code>
+	 */
+	public static Object getCachedConstantValue(IField field) {
+		ITypeRoot typeRoot = field.getTypeRoot();
+		Object stamp = typeRoot == null ? null : getStamp(typeRoot);
+		TypeRootConstants constants = stamp == null ? null : get(typeRoot, stamp);
+		if (constants == null) {
+			return null;
+		}
+		synchronized (constants) {
+			Object value = constants.values.get(field.getHandleIdentifier());
+			return value == NONE ? null : value;
+		}
+	}
+
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	private static TypeRootConstants get(ITypeRoot typeRoot, Object stamp) {
+		TypeRootConstants constants;
+		synchronized (CACHE) {
+			constants = CACHE.get(typeRoot.getHandleIdentifier());
+		}
+		return constants != null && Objects.equals(constants.stamp, stamp) ? constants : null;
+	}
+
+	private static void put(ITypeRoot typeRoot, TypeRootConstants constants) {
+		synchronized (CACHE) {
+			CACHE.put(typeRoot.getHandleIdentifier(), constants);
+		}
+	}
+
+	/**
+	 * Returns with what identifies the contents of the type root, or
+	 * <code>null</code> if they can't be identified.
+	 */
+	private static Object getStamp(ITypeRoot typeRoot) {
+		try {
+			if (typeRoot instanceof ICompilationUnit) {
+				if (((ICompilationUnit) typeRoot).isWorkingCopy()) {
+					IBuffer buffer = typeRoot.getBuffer();
+					// the other buffers can't tell whether they changed without comparing their contents
+					return buffer instanceof DocumentAdapter ? "buffer:" + ((DocumentAdapter) buffer).getModificationStamp() : null;
+				}
+				IResource resource = typeRoot.getResource();
+				return resource == null ? null : resource.getModificationStamp();
+			}
+			IPackageFragmentRoot root = (IPackageFragmentRoot) typeRoot.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+			if (root == null) {
+				return null;
+			}
+			IResource resource = root.isArchive() ? root.getResource() : typeRoot.getResource();
+			if (resource != null) {
+				return resource.getModificationStamp();
+			}
+			File file = root.getPath().toFile();
+			return file.exists() ? file.lastModified() + ":" + file.length() : null;
+		} catch (JavaModelException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Collects the constant values of all the static final fields of the type
+	 * root from its AST. When no AST with bindings can be built, an incomplete
+	 * instance is returned, to be filled field by field.
+	 *
+	 * @return the constant values, or <code>null</code> if the collection was
+	 *         cancelled
+	 */
+	private static TypeRootConstants collectConstantValues(ITypeRoot typeRoot, Object stamp, IProgressMonitor monitor) {
+		CompilationUnit ast = SharedASTProviderCore.getAST(typeRoot, SharedASTProviderCore.WAIT_NO, monitor);
+		if (ast == null && hasSource(typeRoot)) {
+			ASTParser parser = ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+			parser.setSource(typeRoot);
+			parser.setResolveBindings(true);
+			try {
+				ast = (CompilationUnit) parser.createAST(monitor);
+			} catch (OperationCanceledException e) {
+				return null;
+			}
+		}
+		if (monitor != null && monitor.isCanceled()) {
+			return null;
+		}
+		if (ast == null) {
+			return new TypeRootConstants(stamp, new HashMap<>(), false);
+		}
+		Map<String, Object> values = new HashMap<>();
+		ast.accept(new ASTVisitor() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public boolean visit(FieldDeclaration node) {
+				for (VariableDeclarationFragment fragment : (List<VariableDeclarationFragment>) node.fragments()) {
+					IVariableBinding binding = fragment.resolveBinding();
+					if (binding == null || binding.isEnumConstant() || !Modifier.isStatic(binding.getModifiers()) || !Modifier.isFinal(binding.getModifiers())) {
+						continue;
+					}
+					IJavaElement element = binding.getJavaElement();
+					Object value = binding.getConstantValue();
+					if (element != null && value != null) {
+						values.put(element.getHandleIdentifier(), value);
+					}
+				}
+				return true;
+			}
+		});
+		return new TypeRootConstants(stamp, values, true);
+	}
+
+	private static boolean hasSource(ITypeRoot typeRoot) {
+		try {
+			return typeRoot.getSourceRange() != null;
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Computes the constant value of a single field from its binding.
+	 */
+	private static Object computeConstantValue(IField field, IProgressMonitor monitor) {
+		ASTParser parser = ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(field.getJavaProject());
+		IBinding[] bindings;
+		try {
+			bindings = parser.createBindings(new IJavaElement[] { field }, monitor);
+		} catch (OperationCanceledException e) {
+			return null;
+		}
+		if (bindings[0] instanceof IVariableBinding) {
+			return ((IVariableBinding) bindings[0]).getConstantValue();
+		}
+		return null;
+	}
+
+	private static final class TypeRootConstants {
+
+		private final Object stamp;
+		private final Map<String, Object> values;
+		private final boolean complete;
+
+		private TypeRootConstants(Object stamp, Map<String, Object> values, boolean complete) {
+			this.stamp = stamp;
+			this.values = values;
+			this.complete = complete;
+		}
+	}
+}
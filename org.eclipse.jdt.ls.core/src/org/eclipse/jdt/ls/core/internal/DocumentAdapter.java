@@ -12,6 +12,8 @@ package org.eclipse.jdt.ls.core.internal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -80,6 +82,12 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 
 	public static final IBuffer Null = new NullBuffer();
 
+	/**
+	 * Source of the modification stamps, shared by all the buffers so a stamp
+	 * is never reused by a buffer opened again.
+	 */
+	private static final AtomicLong STAMPS = new AtomicLong();
+
 	private Object lock = new Object();
 
 	private IOpenable fOwner;
@@ -90,6 +98,18 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 
 	private ITextFileBuffer fTextFileBuffer;
 	private IDocument fDocument;
+	/**
+	 * Snapshot of the document contents, taken on the first request and then
+	 * kept in sync with the changes of the document, so the later snapshots
+	 * share most of their text.
+	 */
+	private Rope fSnapshot;
+	private volatile long fModificationStamp = STAMPS.incrementAndGet();
+	/**
+	 * Hash of the document contents, as {@link String#hashCode()}, or
+	 * <code>null</code> until computed after a change.
+	 */
+	private Integer fContentHash;
 
 
 	public DocumentAdapter(IOpenable owner, IFile file) {
@@ -110,6 +130,81 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 		return fDocument;
 	}
 
+	/**
+	 * Returns an immutable snapshot of the current contents. The contents are
+	 * copied by the first call only, the snapshot is then updated with each
+	 * change of the document, without copying the unchanged text. The same
+	 * snapshot is returned until the next change.
+	 *
+	 * @return the snapshot, or <code>null</code> if the buffer has no contents
+	 */
+	public Rope getSnapshot() {
+		synchronized (lock) {
+			if (fSnapshot == null && fDocument != null) {
+				fSnapshot = Rope.of(fDocument.get());
+			}
+			return fSnapshot;
+		}
+	}
+
+	/**
+	 * Returns the modification stamp of the buffer, which changes with every
+	 * change of its contents. Stamps are unique across buffers.
+	 */
+	public long getModificationStamp() {
+		return fModificationStamp;
+	}
+
+	/**
+	 * Returns whether the buffer has the given contents. The lengths, then the
+	 * hashes are compared first, so the contents are only compared character
+	 * by character when they are very likely equal, and they are never copied.
+	 */
+	public boolean hasContents(String contents) {
+		synchronized (lock) {
+			if (fDocument == null || contents == null) {
+				return Objects.equals(getContents(), contents);
+			}
+			if (fDocument.getLength() != contents.length() || getContentHash() != contents.hashCode()) {
+				return false;
+			}
+			if (fSnapshot != null) {
+				return fSnapshot.contentEquals(contents);
+			}
+			try {
+				for (int i = 0; i < contents.length(); i++) {
+					if (fDocument.getChar(i) != contents.charAt(i)) {
+						return false;
+					}
+				}
+			} catch (BadLocationException e) {
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the hash of the document contents, computed over the characters
+	 * of the document once per change.
+	 */
+	private int getContentHash() {
+		if (fContentHash == null) {
+			int hash = 0;
+			try {
+				int length = fDocument.getLength();
+				for (int i = 0; i < length; i++) {
+					hash = 31 * hash + fDocument.getChar(i);
+				}
+			} catch (BadLocationException e) {
+				// changed meanwhile, do not cache
+				return hash;
+			}
+			fContentHash = hash;
+		}
+		return fContentHash;
+	}
+
 	@Override
 	public void addBufferChangedListener(IBufferChangedListener listener) {
 		synchronized (lock) {
@@ -165,6 +260,8 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 			fireBufferChanged(new BufferChangedEvent(this, 0, 0, null));
 			fBufferListeners.clear();
 			fDocument = null;
+			fSnapshot = null;
+			fContentHash = null;
 		}
 	}
 
@@ -276,7 +373,7 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 				((ISynchronizable)fDocument).setLockObject(lock);
 			}
 		}
-		if (!contents.equals(fDocument.get())) {
+		if (!hasContents(contents)) {
 			fDocument.set(contents);
 		}
 	}
@@ -288,6 +385,21 @@ public class DocumentAdapter implements IBuffer, IDocumentListener {
 
 	@Override
 	public void documentChanged(DocumentEvent event) {
+		synchronized (lock) {
+			fModificationStamp = STAMPS.incrementAndGet();
+			fContentHash = null;
+			Rope snapshot = fSnapshot;
+			if (snapshot != null) {
+				IDocument document = event.getDocument();
+				int textLength = event.getText() == null ? 0 : event.getText().length();
+				if (event.getOffset() + event.getLength() <= snapshot.length() && snapshot.length() - event.getLength() + textLength == document.getLength()) {
+					fSnapshot = snapshot.replace(event.getOffset(), event.getLength(), event.getText());
+				} else {
+					// out of sync, taken again on the next request
+					fSnapshot = null;
+				}
+			}
+		}
 		fireBufferChanged(new BufferChangedEvent(this, event.getOffset(), event.getLength(), event.getText()));
 	}
 
@@ -69,7 +69,6 @@ import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
-import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IAnnotationBinding;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.IMemberValuePairBinding;
@@ -81,7 +80,6 @@ import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
-import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.manipulation.SharedASTProviderCore;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
@@ -100,6 +98,7 @@ import org.eclipse.jdt.launching.JavaRuntime;
 import org.eclipse.jdt.launching.environments.IExecutionEnvironment;
 import org.eclipse.jdt.launching.environments.IExecutionEnvironmentsManager;
 import org.eclipse.jdt.ls.core.internal.handlers.JsonRpcHelpers;
+import org.eclipse.jdt.ls.core.internal.handlers.LineOffsetIndex;
 import org.eclipse.jdt.ls.core.internal.hover.JavaElementLabelComposer;
 import org.eclipse.jdt.ls.core.internal.hover.JavaElementLabels;
 import org.eclipse.jdt.ls.core.internal.javadoc.JavaElementLinks;
@@ -561,8 +560,9 @@ public final class JDTUtils {
 			int[] endLoc = null;
 			IBuffer buffer = openable.getBuffer();
 			if (buffer != null) {
-				loc = JsonRpcHelpers.toLine(buffer, offset);
-				endLoc = JsonRpcHelpers.toLine(buffer, offset + length);
+				LineOffsetIndex index = LineOffsetIndex.get(buffer);
+				loc = index.toLine(offset);
+				endLoc = index.toLine(offset + length);
 			}
 			if (loc == null) {
 				loc = new int[2];
@@ -576,6 +576,50 @@ public final class JDTUtils {
 		return range;
 	}
 
+	/**
+	 * Creates the ranges for the given offsets and lengths of an
+	 * {@link IOpenable}, converting all the positions in a single pass over
+	 * the lines of its buffer.
+	 *
+	 * @param openable
+	 * @param offsets
+	 * @param lengths
+	 *            the lengths, in the same order as the offsets
+	 * @return the ranges, in the same order as the offsets
+	 * @throws JavaModelException
+	 * @see #toRange(IOpenable, int, int)
+	 */
+	public static Range[] toRanges(IOpenable openable, int[] offsets, int[] lengths) throws JavaModelException {
+		int count = offsets.length;
+		Range[] ranges = new Range[count];
+		IBuffer buffer = openable.getBuffer();
+		int[] lines = null;
+		if (buffer != null) {
+			int[] positions = new int[count * 2];
+			for (int i = 0; i < count; i++) {
+				positions[2 * i] = offsets[i];
+				positions[2 * i + 1] = offsets[i] + lengths[i];
+			}
+			lines = LineOffsetIndex.get(buffer).toLines(positions);
+		}
+		for (int i = 0; i < count; i++) {
+			Range range = newRange();
+			if (lines != null && (offsets[i] > 0 || lengths[i] > 0)) {
+				setPosition(range.getStart(), lines, 4 * i);
+				setPosition(range.getEnd(), lines, 4 * i + 2);
+			}
+			ranges[i] = range;
+		}
+		return ranges;
+	}
+
+	private static void setPosition(Position position, int[] lines, int index) {
+		if (lines[index] >= 0) {
+			position.setLine(lines[index]);
+			position.setCharacter(lines[index + 1]);
+		}
+	}
+
 	/**
 	 * Creates a new {@link Range} with its start and end {@link Position}s set to line=0, character=0
 	 *
@@ -927,6 +971,10 @@ public final class JDTUtils {
 		} else {
 			constantValue = computeFieldConstantFromTypeAST(field, null);
 		}
+		return toConstantString(constantValue);
+	}
+
+	private static String toConstantString(Object constantValue) {
 		if (constantValue == null) {
 			return null;
 		}
@@ -940,6 +988,43 @@ public final class JDTUtils {
 		}
 	}
 
+	/**
+	 * Returns the constant value for the given field as far as the Java model
+	 * or the {@link ConstantValueCache} know it, without building an AST.
+	 * Source fields only provide the value of simple literal initializers.
+	 *
+	 * @param field
+	 *            the field
+	 * @return the constant value for the given field or <code>null</code> if
+	 *         none, or if it can only be computed from an AST
+	 */
+	public static String getConstantValue(IField field) {
+		if (field == null || !isStaticFinal(field)) {
+			return null;
+		}
+		Object constantValue;
+		try {
+			constantValue = field.getConstant();
+		} catch (JavaModelException e) {
+			constantValue = null;
+		}
+		if (constantValue == null) {
+			return toConstantString(ConstantValueCache.getCachedConstantValue(field));
+		}
+		if (constantValue instanceof String) {
+			if (field.isBinary()) {
+				return ASTNodes.getEscapedStringLiteral((String) constantValue);
+			}
+			// the content of the source literal, which is already escaped
+			String literal = (String) constantValue;
+			return literal.indexOf('"') < 0 && literal.indexOf('\\') < 0 ? '"' + literal + '"' : toConstantString(ConstantValueCache.getCachedConstantValue(field));
+		} else if (constantValue instanceof Character) {
+			return field.isBinary() ? '\'' + constantValue.toString() + '\'' : toConstantString(ConstantValueCache.getCachedConstantValue(field));
+		} else {
+			return constantValue.toString();
+		}
+	}
+
 	/**
 	 * Tells whether the given field is static final.
 	 *
@@ -1000,46 +1085,14 @@ public final class JDTUtils {
 			return null;
 		}
 
-		CompilationUnit ast = SharedASTProviderCore.getAST(constantField.getTypeRoot(), SharedASTProviderCore.WAIT_NO, monitor);
-		if (ast != null) {
-			try {
-				if (constantField.isEnumConstant()) {
-					return null;
-				}
-
-				VariableDeclarationFragment fieldDecl = org.eclipse.jdt.ls.core.internal.corext.refactoring.structure.ASTNodeSearchUtil.getFieldDeclarationFragmentNode(constantField, ast);
-				if (fieldDecl == null) {
-					return null;
-				}
-				Expression initializer = fieldDecl.getInitializer();
-				if (initializer == null) {
-					return null;
-				}
-				return initializer.resolveConstantExpressionValue();
-			} catch (JavaModelException e) {
-				// ignore the exception and try the next method
-			}
-		}
-
-		if (monitor != null && monitor.isCanceled()) {
-			return null;
-		}
-
-		ASTParser p = ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
-		p.setProject(constantField.getJavaProject());
-		IBinding[] createBindings;
 		try {
-			createBindings = p.createBindings(new IJavaElement[] { constantField }, monitor);
-		} catch (OperationCanceledException e) {
-			return null;
-		}
-
-		IVariableBinding variableBinding = (IVariableBinding) createBindings[0];
-		if (variableBinding != null) {
-			return variableBinding.getConstantValue();
+			if (constantField.isEnumConstant()) {
+				return null;
+			}
+		} catch (JavaModelException e) {
+			// ignore the exception and try to compute the value
 		}
-
-		return null;
+		return ConstantValueCache.getConstantValue(constantField, monitor);
 	}
 
 	/**
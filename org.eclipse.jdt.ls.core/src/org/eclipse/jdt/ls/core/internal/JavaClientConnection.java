@@ -67,6 +67,7 @@ public class JavaClientConnection {
 
 	private final LogHandler logHandler;
 	private final JavaLanguageClient client;
+	private volatile ClientNotificationQueue notificationQueue;
 
 	public JavaClientConnection(JavaLanguageClient client) {
 		this.client = client;
@@ -164,7 +165,12 @@ public class JavaClientConnection {
 	}
 
 	public void publishDiagnostics(PublishDiagnosticsParams diagnostics){
-		client.publishDiagnostics(diagnostics);
+		ClientNotificationQueue queue = notificationQueue;
+		if (queue != null) {
+			queue.publishDiagnostics(diagnostics);
+		} else {
+			client.publishDiagnostics(diagnostics);
+		}
 	}
 
 
@@ -200,10 +206,46 @@ public class JavaClientConnection {
 	 * @see {@link LanguageClient#semanticHighlighting(SemanticHighlightingParams)}
 	 */
 	public void semanticHighlighting(SemanticHighlightingParams params) {
-		client.semanticHighlighting(params);
+		ClientNotificationQueue queue = notificationQueue;
+		if (queue != null) {
+			queue.semanticHighlighting(params);
+		} else {
+			client.semanticHighlighting(params);
+		}
+	}
+
+	/**
+	 * Sets the interval, in milliseconds, at which the diagnostics and semantic
+	 * highlighting notifications are sent to the client, coalescing the ones
+	 * targeting the same document. A value <code>&lt;= 0</code> sends them
+	 * immediately.
+	 */
+	public synchronized void setNotificationsFlushInterval(long flushInterval) {
+		ClientNotificationQueue queue = notificationQueue;
+		if (flushInterval <= 0) {
+			notificationQueue = null;
+			if (queue != null) {
+				queue.dispose();
+			}
+		} else if (queue == null) {
+			notificationQueue = new ClientNotificationQueue(client, flushInterval);
+		} else {
+			queue.setFlushInterval(flushInterval);
+		}
+	}
+
+	/**
+	 * Sends the pending diagnostics and semantic highlighting notifications.
+	 */
+	public void flushNotifications() {
+		ClientNotificationQueue queue = notificationQueue;
+		if (queue != null) {
+			queue.flush();
+		}
 	}
 
 	public void disconnect() {
+		setNotificationsFlushInterval(0);
 		if (logHandler != null) {
 			logHandler.uninstall();
 		}
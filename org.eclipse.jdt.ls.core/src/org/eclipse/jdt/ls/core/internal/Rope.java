@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+/**
+ * Immutable text, stored as a balanced tree of small chunks.
+ *
+ * Replacing a range and looking up lines take O(log n), and since a
+ * replacement shares all the untouched chunks with the original rope, a rope
+ * can be kept as a snapshot of a text at no cost.
+ *
+ * Lines are delimited by <code>\r</code>, <code>\n</code> or
+ * <code>\r\n</code>, like in {@link org.eclipse.jface.text.IDocument}.
+ */
+public abstract class Rope implements CharSequence {
+
+	static final int MAX_LEAF_LENGTH = 1024;
+
+	public static final Rope EMPTY = new Leaf("");
+
+	/**
+	 * Number of line delimiters, counting a trailing <code>\r</code> as a
+	 * delimiter.
+	 */
+	final int breaks;
+
+	final int length;
+
+	final int depth;
+
+	/**
+	 * Cached {@link #contentHash()}, <code>0</code> until computed.
+	 */
+	private int hash;
+
+	private Rope(int length, int breaks, int depth) {
+		this.length = length;
+		this.breaks = breaks;
+		this.depth = depth;
+	}
+
+	public static Rope of(CharSequence text) {
+		if (text instanceof Rope) {
+			return (Rope) text;
+		}
+		return build(text.toString(), 0, text.length());
+	}
+
+	private static Rope build(String text, int start, int end) {
+		if (end - start <= MAX_LEAF_LENGTH) {
+			return start == end ? EMPTY : new Leaf(text.substring(start, end));
+		}
+		int middle = (start + end) >>> 1;
+		// don't split a \r\n delimiter
+		if (text.charAt(middle - 1) == '\r' && text.charAt(middle) == '\n') {
+			middle++;
+		}
+		return new Node(build(text, start, middle), build(text, middle, end));
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a rope where the given range is replaced with the given text.
+	 */
+	public Rope replace(int offset, int replacedLength, CharSequence text) {
+		if (offset < 0 || replacedLength < 0 || offset + replacedLength > length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + replacedLength + ", rope length: " + length);
+		}
+		Rope result = concat(subSequence(0, offset), text == null ? EMPTY : of(text));
+		return concat(result, subSequence(offset + replacedLength, length));
+	}
+
+	@Override
+	public Rope subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", rope length: " + length);
+		}
+		if (start == 0 && end == length) {
+			return this;
+		}
+		if (start == end) {
+			return EMPTY;
+		}
+		return doSubSequence(start, end);
+	}
+
+	abstract Rope doSubSequence(int start, int end);
+
+	abstract char firstChar();
+
+	abstract char lastChar();
+
+	/**
+	 * Copies the characters in the given range to the given array.
+	 */
+	public abstract void getChars(int start, int end, char[] destination, int destinationStart);
+
+	public String getText(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", rope length: " + length);
+		}
+		char[] result = new char[end - start];
+		getChars(start, end, result, 0);
+		return new String(result);
+	}
+
+	@Override
+	public String toString() {
+		return getText(0, length);
+	}
+
+	/**
+	 * Returns the hash code of the text, which is the same as the
+	 * {@link String#hashCode()} of {@link #toString()}, without copying the
+	 * text. The hash is computed once.
+	 */
+	public int contentHash() {
+		int h = hash;
+		if (h == 0 && length > 0) {
+			h = hash(0);
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * Returns whether this rope has the same characters as the given text,
+	 * without copying the text.
+	 */
+	public boolean contentEquals(CharSequence text) {
+		if (text == this) {
+			return true;
+		}
+		if (text == null || text.length() != length) {
+			return false;
+		}
+		if (text instanceof String && hash != 0 && hash != text.hashCode()) {
+			return false;
+		}
+		return matches(text, 0);
+	}
+
+	abstract int hash(int h);
+
+	/**
+	 * Returns whether the characters of this rope are found in the given text
+	 * at the given offset.
+	 */
+	abstract boolean matches(CharSequence text, int offset);
+
+	/**
+	 * Returns the number of lines of the text.
+	 */
+	public int getNumberOfLines() {
+		return breaks + 1;
+	}
+
+	/**
+	 * Returns the line of the given offset.
+	 */
+	public int getLineOfOffset(int offset) {
+		if (offset < 0 || offset > length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", rope length: " + length);
+		}
+		return countBreaks(offset, -1);
+	}
+
+	/**
+	 * Returns the offset of the given line.
+	 */
+	public int getLineOffset(int line) {
+		if (line < 0 || line > breaks) {
+			throw new IndexOutOfBoundsException("line: " + line + ", number of lines: " + getNumberOfLines());
+		}
+		return line == 0 ? 0 : findBreak(line, -1);
+	}
+
+	/**
+	 * Returns the length of the given line, including its delimiter.
+	 */
+	public int getLineLength(int line) {
+		int offset = getLineOffset(line);
+		int end = line == breaks ? length : getLineOffset(line + 1);
+		return end - offset;
+	}
+
+	/**
+	 * Counts the delimiters ending before the given offset.
+	 *
+	 * @param next
+	 *            the character following this rope, or <code>-1</code>
+	 */
+	abstract int countBreaks(int offset, int next);
+
+	/**
+	 * Returns the offset following the n-th delimiter.
+	 *
+	 * @param next
+	 *            the character following this rope, or <code>-1</code>
+	 */
+	abstract int findBreak(int n, int next);
+
+	/**
+	 * Returns the number of delimiters, given the character following this
+	 * rope.
+	 */
+	int getBreaks(int next) {
+		return length > 0 && next == '\n' && lastChar() == '\r' ? breaks - 1 : breaks;
+	}
+
+	static Rope concat(Rope left, Rope right) {
+		if (left.length == 0) {
+			return right;
+		}
+		if (right.length == 0) {
+			return left;
+		}
+		if (left instanceof Leaf && right instanceof Leaf && left.length + right.length <= MAX_LEAF_LENGTH) {
+			return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+		}
+		if (left.depth > right.depth + 1) {
+			Node node = (Node) left;
+			return balance(node.left, concat(node.right, right));
+		}
+		if (right.depth > left.depth + 1) {
+			Node node = (Node) right;
+			return balance(concat(left, node.left), node.right);
+		}
+		return new Node(left, right);
+	}
+
+	private static Rope balance(Rope left, Rope right) {
+		if (left.depth > right.depth + 1) {
+			Node node = (Node) left;
+			if (node.left.depth >= node.right.depth) {
+				return new Node(node.left, new Node(node.right, right));
+			}
+			Node inner = (Node) node.right;
+			return new Node(new Node(node.left, inner.left), new Node(inner.right, right));
+		}
+		if (right.depth > left.depth + 1) {
+			Node node = (Node) right;
+			if (node.right.depth >= node.left.depth) {
+				return new Node(new Node(left, node.left), node.right);
+			}
+			Node inner = (Node) node.left;
+			return new Node(new Node(left, inner.left), new Node(inner.right, node.right));
+		}
+		return new Node(left, right);
+	}
+
+	private static final class Leaf extends Rope {
+
+		private final String text;
+
+		Leaf(String text) {
+			super(text.length(), countBreaks(text, text.length(), -1), 0);
+			this.text = text;
+		}
+
+		private static int countBreaks(String text, int end, int next) {
+			int count = 0;
+			for (int i = 0; i < end; i++) {
+				char c = text.charAt(i);
+				if (c == '\n') {
+					count++;
+				} else if (c == '\r') {
+					int following = i + 1 < text.length() ? text.charAt(i + 1) : next;
+					if (following != '\n') {
+						count++;
+					}
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return text.charAt(index);
+		}
+
+		@Override
+		Rope doSubSequence(int start, int end) {
+			return new Leaf(text.substring(start, end));
+		}
+
+		@Override
+		char firstChar() {
+			return text.charAt(0);
+		}
+
+		@Override
+		char lastChar() {
+			return text.charAt(length - 1);
+		}
+
+		@Override
+		public void getChars(int start, int end, char[] destination, int destinationStart) {
+			text.getChars(start, end, destination, destinationStart);
+		}
+
+		@Override
+		int countBreaks(int offset, int next) {
+			return countBreaks(text, offset, next);
+		}
+
+		@Override
+		int findBreak(int n, int next) {
+			int count = 0;
+			for (int i = 0; i < length; i++) {
+				char c = text.charAt(i);
+				if (c == '\n' || c == '\r' && (i + 1 < length ? text.charAt(i + 1) : next) != '\n') {
+					if (++count == n) {
+						return i + 1;
+					}
+				}
+			}
+			return length;
+		}
+
+		@Override
+		int hash(int h) {
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + text.charAt(i);
+			}
+			return h;
+		}
+
+		@Override
+		boolean matches(CharSequence other, int offset) {
+			if (other instanceof String) {
+				return ((String) other).startsWith(text, offset);
+			}
+			for (int i = 0; i < length; i++) {
+				if (text.charAt(i) != other.charAt(offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+
+	private static final class Node extends Rope {
+
+		private final Rope left;
+		private final Rope right;
+
+		Node(Rope left, Rope right) {
+			super(left.length + right.length, left.getBreaks(right.firstChar()) + right.breaks, Math.max(left.depth, right.depth) + 1);
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public char charAt(int index) {
+			Rope rope = this;
+			while (rope instanceof Node) {
+				Node node = (Node) rope;
+				if (index < node.left.length) {
+					rope = node.left;
+				} else {
+					index -= node.left.length;
+					rope = node.right;
+				}
+			}
+			return rope.charAt(index);
+		}
+
+		@Override
+		Rope doSubSequence(int start, int end) {
+			int leftLength = left.length;
+			if (end <= leftLength) {
+				return left.subSequence(start, end);
+			}
+			if (start >= leftLength) {
+				return right.subSequence(start - leftLength, end - leftLength);
+			}
+			return concat(left.subSequence(start, leftLength), right.subSequence(0, end - leftLength));
+		}
+
+		@Override
+		char firstChar() {
+			return left.firstChar();
+		}
+
+		@Override
+		char lastChar() {
+			return right.lastChar();
+		}
+
+		@Override
+		public void getChars(int start, int end, char[] destination, int destinationStart) {
+			int leftLength = left.length;
+			if (start < leftLength) {
+				left.getChars(start, Math.min(end, leftLength), destination, destinationStart);
+			}
+			if (end > leftLength) {
+				int rightStart = Math.max(start, leftLength);
+				right.getChars(rightStart - leftLength, end - leftLength, destination, destinationStart + rightStart - start);
+			}
+		}
+
+		@Override
+		int countBreaks(int offset, int next) {
+			if (offset <= left.length) {
+				return left.countBreaks(offset, right.firstChar());
+			}
+			return left.getBreaks(right.firstChar()) + right.countBreaks(offset - left.length, next);
+		}
+
+		@Override
+		int hash(int h) {
+			return right.hash(left.hash(h));
+		}
+
+		@Override
+		boolean matches(CharSequence other, int offset) {
+			return left.matches(other, offset) && right.matches(other, offset + left.length);
+		}
+
+		@Override
+		int findBreak(int n, int next) {
+			int leftBreaks = left.getBreaks(right.firstChar());
+			if (n <= leftBreaks) {
+				return left.findBreak(n, right.firstChar());
+			}
+			return left.length + right.findBreak(n - leftBreaks, next);
+		}
+	}
+
+}
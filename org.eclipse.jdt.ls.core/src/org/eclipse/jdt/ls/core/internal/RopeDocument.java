@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import org.eclipse.jface.text.AbstractDocument;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DefaultLineTracker;
+import org.eclipse.jface.text.ILineTracker;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextStore;
+import org.eclipse.jface.text.Region;
+
+/**
+ * A document whose text is stored in a {@link Rope}.
+ *
+ * Creating the document from a rope, and taking a rope from the document,
+ * don't copy the text, so it is a cheap mutable view of a text snapshot. Edits
+ * and line lookups take O(log n).
+ */
+public class RopeDocument extends AbstractDocument {
+
+	private final RopeTextStore store;
+
+	public RopeDocument(Rope text) {
+		super();
+		store = new RopeTextStore(text);
+		setTextStore(store);
+		setLineTracker(new RopeLineTracker(store));
+		completeInitialization();
+	}
+
+	public RopeDocument(String text) {
+		this(Rope.of(text));
+	}
+
+	/**
+	 * Returns the current text of the document, as an immutable rope.
+	 */
+	public Rope getRope() {
+		return store.rope;
+	}
+
+	private static class RopeTextStore implements ITextStore {
+
+		private volatile Rope rope;
+
+		RopeTextStore(Rope rope) {
+			this.rope = rope;
+		}
+
+		@Override
+		public char get(int offset) {
+			return rope.charAt(offset);
+		}
+
+		@Override
+		public String get(int offset, int length) {
+			return rope.getText(offset, offset + length);
+		}
+
+		@Override
+		public int getLength() {
+			return rope.length();
+		}
+
+		@Override
+		public void replace(int offset, int length, String text) {
+			rope = rope.replace(offset, length, text);
+		}
+
+		@Override
+		public void set(String text) {
+			rope = text == null ? Rope.EMPTY : Rope.of(text);
+		}
+	}
+
+	/**
+	 * Line tracker reading the lines from the rope of the text store, which is
+	 * always updated before the tracker.
+	 */
+	private static class RopeLineTracker implements ILineTracker {
+
+		private final RopeTextStore store;
+
+		RopeLineTracker(RopeTextStore store) {
+			this.store = store;
+		}
+
+		@Override
+		public String[] getLegalLineDelimiters() {
+			return DefaultLineTracker.DELIMITERS;
+		}
+
+		@Override
+		public String getLineDelimiter(int line) throws BadLocationException {
+			Rope rope = store.rope;
+			checkLine(rope, line);
+			return getLineDelimiter(rope, line);
+		}
+
+		private static String getLineDelimiter(Rope rope, int line) {
+			if (line == rope.getNumberOfLines() - 1) {
+				return null;
+			}
+			int end = rope.getLineOffset(line + 1);
+			if (end - 2 >= rope.getLineOffset(line) && rope.charAt(end - 2) == '\r' && rope.charAt(end - 1) == '\n') {
+				return "\r\n";
+			}
+			return String.valueOf(rope.charAt(end - 1));
+		}
+
+		@Override
+		public int computeNumberOfLines(String text) {
+			return Rope.of(text).getNumberOfLines() - 1;
+		}
+
+		@Override
+		public int getNumberOfLines() {
+			return store.rope.getNumberOfLines();
+		}
+
+		@Override
+		public int getNumberOfLines(int offset, int length) throws BadLocationException {
+			Rope rope = store.rope;
+			checkOffset(rope, offset);
+			checkOffset(rope, offset + length);
+			if (length == 0) {
+				return 1;
+			}
+			return rope.getLineOfOffset(offset + length) - rope.getLineOfOffset(offset) + 1;
+		}
+
+		@Override
+		public int getLineOffset(int line) throws BadLocationException {
+			Rope rope = store.rope;
+			checkLine(rope, line);
+			return rope.getLineOffset(line);
+		}
+
+		@Override
+		public int getLineLength(int line) throws BadLocationException {
+			Rope rope = store.rope;
+			checkLine(rope, line);
+			return rope.getLineLength(line);
+		}
+
+		@Override
+		public int getLineNumberOfOffset(int offset) throws BadLocationException {
+			Rope rope = store.rope;
+			checkOffset(rope, offset);
+			return rope.getLineOfOffset(offset);
+		}
+
+		@Override
+		public IRegion getLineInformationOfOffset(int offset) throws BadLocationException {
+			Rope rope = store.rope;
+			checkOffset(rope, offset);
+			return getLineInformation(rope, rope.getLineOfOffset(offset));
+		}
+
+		@Override
+		public IRegion getLineInformation(int line) throws BadLocationException {
+			Rope rope = store.rope;
+			checkLine(rope, line);
+			return getLineInformation(rope, line);
+		}
+
+		private static IRegion getLineInformation(Rope rope, int line) {
+			int offset = rope.getLineOffset(line);
+			int length = rope.getLineLength(line);
+			String delimiter = getLineDelimiter(rope, line);
+			return new Region(offset, delimiter == null ? length : length - delimiter.length());
+		}
+
+		@Override
+		public void replace(int offset, int length, String text) throws BadLocationException {
+			// the lines are read from the text store
+		}
+
+		@Override
+		public void set(String text) {
+			// the lines are read from the text store
+		}
+
+		private static void checkLine(Rope rope, int line) throws BadLocationException {
+			if (line < 0 || line >= rope.getNumberOfLines()) {
+				throw new BadLocationException("Invalid line: " + line);
+			}
+		}
+
+		private static void checkOffset(Rope rope, int offset) throws BadLocationException {
+			if (offset < 0 || offset > rope.length()) {
+				throw new BadLocationException("Invalid offset: " + offset);
+			}
+		}
+	}
+
+}
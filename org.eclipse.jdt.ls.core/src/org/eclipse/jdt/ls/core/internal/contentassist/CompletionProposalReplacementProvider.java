@@ -53,6 +53,7 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.InsertTextFormat;
+import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.text.edits.TextEdit;
 
@@ -148,6 +149,7 @@ public class CompletionProposalReplacementProvider {
 			}
 			range = toReplacementRange(proposal);
 		}
+		extendRange(range);
 		if(proposal.getKind() == CompletionProposal.METHOD_DECLARATION){
 			appendMethodOverrideReplacement(completionBuffer, proposal);
 		} else if (proposal.getKind() == CompletionProposal.POTENTIAL_METHOD_DECLARATION && proposal instanceof GetterSetterCompletionProposal) {
@@ -331,6 +333,29 @@ public class CompletionProposalReplacementProvider {
 		}//if Snippets not supported, we leave an open bracket so users can type in directly
 	}
 
+	/**
+	 * Extends the range to the offset of the completion, if the range contains
+	 * the earlier offset the proposal was computed at. The proposals of a
+	 * completion are reused for the next one while the completed name is
+	 * typed, without changing their ranges.
+	 */
+	private void extendRange(Range range) {
+		if (range == null || context == null || context.getOffset() >= offset) {
+			return;
+		}
+		try {
+			Position position = JDTUtils.toRange(compilationUnit, context.getOffset(), 0).getStart();
+			Position start = range.getStart();
+			Position end = range.getEnd();
+			boolean startsBefore = start.getLine() < position.getLine() || (start.getLine() == position.getLine() && start.getCharacter() <= position.getCharacter());
+			if (startsBefore && end.getLine() == position.getLine() && end.getCharacter() >= position.getCharacter()) {
+				end.setCharacter(end.getCharacter() + offset - context.getOffset());
+			}
+		} catch (JavaModelException e) {
+			JavaLanguageServerPlugin.logException(e.getMessage(), e);
+		}
+	}
+
 	private Range toReplacementRange(CompletionProposal proposal){
 		try {
 			return JDTUtils.toRange(compilationUnit, proposal.getReplaceStart(), proposal.getReplaceEnd()-proposal.getReplaceStart());
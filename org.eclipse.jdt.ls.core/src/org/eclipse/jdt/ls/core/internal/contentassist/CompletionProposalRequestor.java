@@ -11,13 +11,20 @@
 package org.eclipse.jdt.ls.core.internal.contentassist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.CompletionContext;
 import org.eclipse.jdt.core.CompletionProposal;
 import org.eclipse.jdt.core.CompletionRequestor;
@@ -28,18 +35,17 @@ import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMethod;
-import org.eclipse.jdt.core.ISourceRange;
-import org.eclipse.jdt.core.ISourceReference;
 import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.SourceRange;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
 import org.eclipse.jdt.ls.core.internal.handlers.CompletionResolveHandler;
 import org.eclipse.jdt.ls.core.internal.handlers.CompletionResponse;
 import org.eclipse.jdt.ls.core.internal.handlers.CompletionResponses;
-import org.eclipse.jface.text.Region;
+import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 
@@ -53,6 +59,28 @@ public final class CompletionProposalRequestor extends CompletionRequestor {
 	private CompletionResponse response;
 	private boolean fIsTestCodeExcluded;
 	private CompletionContext context;
+	private final int maxResults;
+	private boolean isIncomplete;
+
+	/**
+	 * The number of proposals converted to completion items by a single task.
+	 */
+	static final int CONVERSION_CHUNK_SIZE = 64;
+
+	/**
+	 * The maximum number of threads converting proposals in parallel.
+	 */
+	static final int MAX_CONVERSION_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Converts large lists of proposals, apart from the common pool, which
+	 * other work of the server and of its extensions may keep busy.
+	 */
+	private static final ForkJoinPool CONVERSION_POOL = new ForkJoinPool(MAX_CONVERSION_THREADS, pool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("Completion proposal conversion " + thread.getPoolIndex());
+		return thread;
+	}, null, false);
 
 	// Update SUPPORTED_KINDS when mapKind changes
 	// @formatter:off
@@ -76,6 +104,8 @@ public final class CompletionProposalRequestor extends CompletionRequestor {
 		response = new CompletionResponse();
 		response.setOffset(offset);
 		fIsTestCodeExcluded = !isTestSource(unit.getJavaProject(), unit);
+		PreferenceManager preferenceManager = JavaLanguageServerPlugin.getPreferencesManager();
+		maxResults = preferenceManager == null ? 0 : preferenceManager.getPreferences().getMaxCompletionResults();
 		setRequireExtendedContext(true);
 	}
 
@@ -117,58 +147,268 @@ public final class CompletionProposalRequestor extends CompletionRequestor {
 	}
 
 	public List<CompletionItem> getCompletionItems() {
-		response.setProposals(proposals);
+		return getCompletionItems(null);
+	}
+
+	/**
+	 * Converts the collected proposals to completion items. Large lists are
+	 * converted in parallel, in chunks of {@link #CONVERSION_CHUNK_SIZE}
+	 * proposals, by at most {@link #MAX_CONVERSION_THREADS} threads; the items
+	 * keep the order of the proposals.
+	 *
+	 * @param monitor
+	 *            the progress monitor or null, checked before each chunk
+	 * @return the completion items
+	 * @throws OperationCanceledException
+	 *             if the monitor is cancelled
+	 */
+	public List<CompletionItem> getCompletionItems(IProgressMonitor monitor) {
+		List<CompletionProposal> selected = selectProposals();
+		return toCompletionItems(selected.size() > CONVERSION_CHUNK_SIZE, monitor);
+	}
+
+	/**
+	 * Selects the proposals to convert and stores them in the response.
+	 */
+	List<CompletionProposal> selectProposals() {
+		List<CompletionProposal> selected = getTopProposals(proposals, maxResults);
+		isIncomplete = selected.size() < proposals.size();
+		response.setProposals(selected);
+		response.setUri(JDTUtils.toURI(unit));
 		CompletionResponses.store(response);
-		List<CompletionItem> completionItems = new ArrayList<>(proposals.size());
-		for (int i = 0; i < proposals.size(); i++) {
-			completionItems.add(toCompletionItem(proposals.get(i), i));
+		return selected;
+	}
+
+	/**
+	 * Converts the proposals of the response to completion items, in the
+	 * current thread or in fork-join chunks.
+	 */
+	List<CompletionItem> toCompletionItems(boolean parallel, IProgressMonitor monitor) {
+		List<CompletionProposal> selected = response.getProposals();
+		response.setItemCount(selected.size());
+		CompletionItem[] items = new CompletionItem[selected.size()];
+		if (parallel) {
+			// the parameter names are computed lazily, with the caches and the name environment of the
+			// completion engine, which are not thread-safe: they are computed here, before the conversion
+			for (CompletionProposal proposal : selected) {
+				if (needsParameterNames(proposal)) {
+					proposal.findParameterNames(null);
+				}
+			}
+			CONVERSION_POOL.invoke(new ConversionTask(selected, items, 0, items.length, monitor));
+		} else {
+			for (int i = 0; i < items.length; i++) {
+				if (i % CONVERSION_CHUNK_SIZE == 0) {
+					checkCanceled(monitor);
+				}
+				items[i] = toCompletionItem(selected.get(i), i);
+			}
 		}
-		return completionItems;
+		return Arrays.asList(items);
+	}
+
+	private static boolean needsParameterNames(CompletionProposal proposal) {
+		switch (proposal.getKind()) {
+		case CompletionProposal.METHOD_REF:
+		case CompletionProposal.METHOD_REF_WITH_CASTED_RECEIVER:
+		case CompletionProposal.METHOD_NAME_REFERENCE:
+		case CompletionProposal.METHOD_DECLARATION:
+		case CompletionProposal.POTENTIAL_METHOD_DECLARATION:
+		case CompletionProposal.CONSTRUCTOR_INVOCATION:
+		case CompletionProposal.ANONYMOUS_CLASS_CONSTRUCTOR_INVOCATION:
+		case CompletionProposal.ANONYMOUS_CLASS_DECLARATION:
+		case CompletionProposal.JAVADOC_METHOD_REF:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static void checkCanceled(IProgressMonitor monitor) {
+		if (monitor != null && monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Converts a range of proposals, splitting it in halves down to
+	 * {@link CompletionProposalRequestor#CONVERSION_CHUNK_SIZE} proposals.
+	 */
+	private final class ConversionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<CompletionProposal> selected;
+		private final CompletionItem[] items;
+		private final int start;
+		private final int end;
+		private final IProgressMonitor monitor;
+
+		private ConversionTask(List<CompletionProposal> selected, CompletionItem[] items, int start, int end, IProgressMonitor monitor) {
+			this.selected = selected;
+			this.items = items;
+			this.start = start;
+			this.end = end;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > CONVERSION_CHUNK_SIZE) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ConversionTask(selected, items, start, middle, monitor), new ConversionTask(selected, items, middle, end, monitor));
+				return;
+			}
+			checkCanceled(monitor);
+			for (int i = start; i < end; i++) {
+				items[i] = toCompletionItem(selected.get(i), i);
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the last {@link #getCompletionItems()} left
+	 * out proposals because of the maximum number of results.
+	 */
+	public boolean isIncomplete() {
+		return isIncomplete;
+	}
+
+	/**
+	 * Returns with at most <code>max</code> proposals of the highest
+	 * relevance, as computed by {@link SortTextHelper}, in their original
+	 * order. Among proposals of equal relevance the earlier ones are kept.
+	 * <code>max</code> of <code>0</code> or less means no limit.
+	 */
+	static List<CompletionProposal> getTopProposals(List<CompletionProposal> proposals, int max) {
+		if (max <= 0 || proposals.size() <= max) {
+			return proposals;
+		}
+		int[] relevances = new int[proposals.size()];
+		for (int i = 0; i < relevances.length; i++) {
+			relevances[i] = SortTextHelper.computeRelevance(proposals.get(i));
+		}
+		// the head of the heap is the least relevant proposal kept so far
+		PriorityQueue<Integer> heap = new PriorityQueue<>(max + 1, (a, b) -> relevances[a] != relevances[b] ? Integer.compare(relevances[a], relevances[b]) : Integer.compare(b, a));
+		for (int i = 0; i < relevances.length; i++) {
+			heap.add(i);
+			if (heap.size() > max) {
+				heap.poll();
+			}
+		}
+		int[] indexes = new int[heap.size()];
+		int k = 0;
+		for (int index : heap) {
+			indexes[k++] = index;
+		}
+		Arrays.sort(indexes);
+		List<CompletionProposal> selected = new ArrayList<>(indexes.length);
+		for (int index : indexes) {
+			selected.add(proposals.get(index));
+		}
+		return selected;
+	}
+
+	/**
+	 * Prepares the proposals collected for a previous completion for a
+	 * completion at the given offset, after the user has typed more
+	 * characters of the completed token. The proposals not matching the new
+	 * prefix, by prefix, camel case or substring match as the project's code
+	 * assist options enable them, are dropped. The others are kept as they
+	 * are, in a new response: they are sorted and selected by
+	 * {@link SortTextHelper} again on conversion, and their ranges are
+	 * extended to the offset of the new response on resolve. The previous
+	 * response is left as it is, so the items of the previous list can still
+	 * be resolved.
+	 *
+	 * @param prefix
+	 *            the new prefix, which extends the old one
+	 * @param offset
+	 *            the offset of the new completion
+	 * @return <code>false</code> if a proposal has no name to match the
+	 *         prefix against, the requestor is then left unchanged and the
+	 *         completion must be computed again
+	 */
+	public boolean refilter(String prefix, int offset) {
+		char[] token = prefix.toCharArray();
+		boolean camelCaseMatch = JavaCore.ENABLED.equals(unit.getJavaProject().getOption(JavaCore.CODEASSIST_CAMEL_CASE_MATCH, true));
+		boolean substringMatch = JavaCore.ENABLED.equals(unit.getJavaProject().getOption(JavaCore.CODEASSIST_SUBSTRING_MATCH, true));
+		List<CompletionProposal> filtered = new ArrayList<>(proposals.size());
+		for (CompletionProposal proposal : proposals) {
+			char[] name = getMatchName(proposal);
+			if (name == null) {
+				return false;
+			}
+			if (CharOperation.prefixEquals(token, name, false) || (camelCaseMatch && CharOperation.camelCaseMatch(token, name)) || (substringMatch && CharOperation.substringMatch(token, name))) {
+				filtered.add(proposal);
+			}
+		}
+		CompletionResponse previous = response;
+		response = new CompletionResponse();
+		response.setOffset(offset);
+		response.setContext(context);
+		response.setPreviousId(previous.getId());
+		proposals = filtered;
+		return true;
+	}
+
+	/**
+	 * Returns with the name the completion engine matches the token against,
+	 * or <code>null</code> if the proposal has none.
+	 */
+	private static char[] getMatchName(CompletionProposal proposal) {
+		char[] name;
+		switch (proposal.getKind()) {
+		case CompletionProposal.TYPE_REF:
+			name = Signature.getSignatureSimpleName(proposal.getSignature());
+			break;
+		case CompletionProposal.CONSTRUCTOR_INVOCATION:
+		case CompletionProposal.ANONYMOUS_CLASS_CONSTRUCTOR_INVOCATION:
+		case CompletionProposal.ANONYMOUS_CLASS_DECLARATION:
+			name = Signature.getSignatureSimpleName(proposal.getDeclarationSignature());
+			break;
+		case CompletionProposal.KEYWORD:
+		case CompletionProposal.LABEL_REF:
+		case CompletionProposal.PACKAGE_REF:
+			name = proposal.getCompletion();
+			break;
+		default:
+			name = proposal.getName();
+			if (name == null || name.length == 0) {
+				name = proposal.getCompletion();
+			}
+			break;
+		}
+		return name == null || name.length == 0 ? null : name;
 	}
 
 	public CompletionItem toCompletionItem(CompletionProposal proposal, int index) {
 		final CompletionItem $ = new CompletionItem();
 		$.setKind(mapKind(proposal));
 		Map<String, String> data = new HashMap<>();
-		// append data field so that resolve request can use it.
-		data.put(CompletionResolveHandler.DATA_FIELD_URI, JDTUtils.toURI(unit));
-		data.put(CompletionResolveHandler.DATA_FIELD_REQUEST_ID, String.valueOf(response.getId()));
-		data.put(CompletionResolveHandler.DATA_FIELD_PROPOSAL_ID, String.valueOf(index));
+		// collects the data the resolve request needs, it is moved to the response below and the item only refers to it
 		$.setData(data);
 		this.descriptionProvider.updateDescription(proposal, $);
 		$.setSortText(SortTextHelper.computeSortText(proposal));
-		if (proposal.getKind() == CompletionProposal.FIELD_REF) {
+		// Only values known to the Java model are shown here, the ones needing an AST are computed on resolve
+		if (proposal.getKind() == CompletionProposal.FIELD_REF && Flags.isStatic(proposal.getFlags()) && Flags.isFinal(proposal.getFlags())) {
 			try {
 				IField field = JDTUtils.resolveField(proposal, unit.getJavaProject());
-				Region nameRegion = null;
-				if (field != null) {
-					ITypeRoot typeRoot = field.getTypeRoot();
-					ISourceRange nameRange = ((ISourceReference) field).getNameRange();
-					if (SourceRange.isAvailable(nameRange)) {
-						nameRegion = new Region(nameRange.getOffset(), nameRange.getLength());
-					}
-					String constantValue = JDTUtils.getConstantValue(field, typeRoot, nameRegion);
-					if (constantValue != null) {
-						String label = $.getLabel();
-						$.setLabel(label + " = " + constantValue);
-						data.put(CompletionResolveHandler.DATA_FIELD_CONSTANT_VALUE, constantValue);
-					}
+				String constantValue = JDTUtils.getConstantValue(field);
+				if (constantValue != null) {
+					String label = $.getLabel();
+					$.setLabel(label + " = " + constantValue);
+					data.put(CompletionResolveHandler.DATA_FIELD_CONSTANT_VALUE, constantValue);
 				}
 			} catch (JavaModelException e) {
 				JavaLanguageServerPlugin.log(e);
 			}
 		}
-		if (proposal.getKind() == CompletionProposal.METHOD_REF || proposal.getKind() == CompletionProposal.ANNOTATION_ATTRIBUTE_REF) {
+		if (proposal.getKind() == CompletionProposal.ANNOTATION_ATTRIBUTE_REF) {
 			try {
 				IMethod method = JDTUtils.resolveMethod(proposal, unit.getJavaProject());
-				Region nameRegion = null;
 				if (method != null) {
-					ITypeRoot typeRoot = method.getTypeRoot();
-					ISourceRange nameRange = ((ISourceReference) method).getNameRange();
-					if (SourceRange.isAvailable(nameRange)) {
-						nameRegion = new Region(nameRange.getOffset(), nameRange.getLength());
-					}
-					String defaultValue = JDTUtils.getAnnotationMemberDefaultValue(method, typeRoot, nameRegion);
+					String defaultValue = JDTUtils.getAnnotationMemberDefaultValue(method, null, null);
 					if (defaultValue != null) {
 						String label = $.getLabel();
 						$.setLabel(label + " (Default: " + defaultValue + ")");
@@ -179,6 +419,8 @@ public final class CompletionProposalRequestor extends CompletionRequestor {
 				JavaLanguageServerPlugin.log(e);
 			}
 		}
+		response.setItemData(index, data.isEmpty() ? null : data);
+		$.setData(CompletionResolveHandler.toData(response.getId(), index));
 		return $;
 	}
 
@@ -294,4 +536,12 @@ public final class CompletionProposalRequestor extends CompletionRequestor {
 		return context;
 	}
 
+	/**
+	 * @return the response holding the proposals of the last
+	 *         {@link #getCompletionItems()}
+	 */
+	public CompletionResponse getResponse() {
+		return response;
+	}
+
 }
\ No newline at end of file
@@ -14,9 +14,7 @@
 package org.eclipse.jdt.ls.core.internal.contentassist;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.core.runtime.CoreException;
@@ -35,7 +33,6 @@ import org.eclipse.jdt.internal.corext.util.MethodOverrideTester;
 import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
-import org.eclipse.jdt.ls.core.internal.handlers.CompletionResolveHandler;
 import org.eclipse.jdt.ls.core.internal.handlers.JsonRpcHelpers;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -111,11 +108,6 @@ public class JavadocCompletionProposal {
 				documentation = documentation.replaceFirst(lineDelimiter, "");
 			}
 			ci.setDocumentation(documentation);
-			Map<String, String> data = new HashMap<>(3);
-			data.put(CompletionResolveHandler.DATA_FIELD_URI, JDTUtils.toURI(cu));
-			data.put(CompletionResolveHandler.DATA_FIELD_REQUEST_ID, "0");
-			data.put(CompletionResolveHandler.DATA_FIELD_PROPOSAL_ID, "0");
-			ci.setData(data);
 			result.add(ci);
 		} catch (BadLocationException excp) {
 			// stop work
@@ -13,7 +13,7 @@ package org.eclipse.jdt.ls.core.internal.contentassist;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,10 +43,8 @@ import org.eclipse.jdt.internal.core.manipulation.CodeTemplateContext;
 import org.eclipse.jdt.internal.core.manipulation.CodeTemplateContextType;
 import org.eclipse.jdt.internal.core.manipulation.util.Strings;
 import org.eclipse.jdt.internal.corext.dom.TokenScanner;
-import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
 import org.eclipse.jdt.ls.core.internal.corext.refactoring.structure.ASTNodeSearchUtil;
-import org.eclipse.jdt.ls.core.internal.handlers.CompletionResolveHandler;
 import org.eclipse.jdt.ls.core.internal.preferences.CodeGenerationTemplate;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.templates.Template;
@@ -68,6 +66,21 @@ public class SnippetCompletionProposal {
 	private static String PACKAGEHEADER = "package_header";
 	private static String CURSOR = "cursor";
 
+	private static final int MAX_SNIPPETS = 100;
+
+	/**
+	 * The evaluated snippets, by template, project, compilation unit name,
+	 * and the values of the template variables.
+	 */
+	private static final Map<List<Object>, String> SNIPPETS = new LinkedHashMap<List<Object>, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, String> eldest) {
+			return size() > MAX_SNIPPETS;
+		}
+	};
+
 	public static List<CompletionItem> getSnippets(ICompilationUnit cu, CompletionContext completionContext, IProgressMonitor monitor) {
 		if (cu == null) {
 			throw new IllegalArgumentException("Compilation unit must not be null"); //$NON-NLS-1$
@@ -90,19 +103,25 @@ public class SnippetCompletionProposal {
 		if (!isSnippetStringSupported() || UNSUPPORTED_RESOURCES.contains(cu.getResource().getName())) {
 			return Collections.emptyList();
 		}
+		// needsPublic may scan the compilation unit, so it is only computed when a snippet is proposed
+		boolean acceptClass = isClassPrefix && accept(cu, completionContext, true);
+		boolean acceptInterface = isInterfacePrefix && accept(cu, completionContext, false);
+		if (!acceptClass && !acceptInterface) {
+			return Collections.emptyList();
+		}
 		boolean needsPublic = needsPublic(cu, completionContext, monitor);
 		if (monitor.isCanceled()) {
 			return Collections.emptyList();
 		}
 		List<CompletionItem> res = new ArrayList<>(2);
-		if (isClassPrefix) {
-			CompletionItem classSnippet = getClassSnippet(cu, completionContext, needsPublic, monitor);
+		if (acceptClass) {
+			CompletionItem classSnippet = getClassSnippet(cu, needsPublic, monitor);
 			if (classSnippet != null) {
 				res.add(classSnippet);
 			}
 		}
-		if (isInterfacePrefix) {
-			CompletionItem interfaceSnippet = getInterfaceSnippet(cu, completionContext, needsPublic, monitor);
+		if (acceptInterface) {
+			CompletionItem interfaceSnippet = getInterfaceSnippet(cu, needsPublic, monitor);
 			if (interfaceSnippet != null) {
 				res.add(interfaceSnippet);
 			}
@@ -110,6 +129,16 @@ public class SnippetCompletionProposal {
 		return res;
 	}
 
+	/**
+	 * Drops the evaluated snippets, when the preferences they depend on
+	 * change.
+	 */
+	public static void clearCache() {
+		synchronized (SNIPPETS) {
+			SNIPPETS.clear();
+		}
+	}
+
 	private static boolean accept(ICompilationUnit cu, CompletionContext completionContext, boolean acceptClass) {
 		if (completionContext != null && completionContext.isExtended()) {
 			if (completionContext.isInJavadoc()) {
@@ -196,10 +225,7 @@ public class SnippetCompletionProposal {
 		return false;
 	}
 
-	private static CompletionItem getClassSnippet(ICompilationUnit cu, CompletionContext completionContext, boolean needsPublic, IProgressMonitor monitor) {
-		if (!accept(cu, completionContext, true)) {
-			return null;
-		}
+	private static CompletionItem getClassSnippet(ICompilationUnit cu, boolean needsPublic, IProgressMonitor monitor) {
 		if (monitor.isCanceled()) {
 			return null;
 		}
@@ -214,7 +240,7 @@ public class SnippetCompletionProposal {
 			} else {
 				classSnippetItem.setInsertText(getSnippetContent(cu, CodeGenerationTemplate.CLASSSNIPPET_DEFAULT, cu.findRecommendedLineSeparator(), true));
 			}
-			setFields(classSnippetItem, cu);
+			setFields(classSnippetItem);
 		} catch (CoreException e) {
 			JavaLanguageServerPlugin.log(e.getStatus());
 			return null;
@@ -222,10 +248,7 @@ public class SnippetCompletionProposal {
 		return classSnippetItem;
 	}
 
-	private static CompletionItem getInterfaceSnippet(ICompilationUnit cu, CompletionContext completionContext, boolean needsPublic, IProgressMonitor monitor) {
-		if (!accept(cu, completionContext, false)) {
-			return null;
-		}
+	private static CompletionItem getInterfaceSnippet(ICompilationUnit cu, boolean needsPublic, IProgressMonitor monitor) {
 		if (monitor.isCanceled()) {
 			return null;
 		}
@@ -240,7 +263,7 @@ public class SnippetCompletionProposal {
 			} else {
 				interfaceSnippetItem.setInsertText(getSnippetContent(cu, CodeGenerationTemplate.INTERFACESNIPPET_DEFAULT, cu.findRecommendedLineSeparator(), true));
 			}
-			setFields(interfaceSnippetItem, cu);
+			setFields(interfaceSnippetItem);
 		} catch (CoreException e) {
 			JavaLanguageServerPlugin.log(e.getStatus());
 			return null;
@@ -253,15 +276,10 @@ public class SnippetCompletionProposal {
 				&& JavaLanguageServerPlugin.getPreferencesManager().getClientPreferences().isCompletionSnippetsSupported();
 	}
 
-	private static void setFields(CompletionItem ci, ICompilationUnit cu) {
+	private static void setFields(CompletionItem ci) {
 		ci.setKind(CompletionItemKind.Snippet);
 		ci.setInsertTextFormat(InsertTextFormat.Snippet);
 		ci.setDocumentation(ci.getInsertText());
-		Map<String, String> data = new HashMap<>(3);
-		data.put(CompletionResolveHandler.DATA_FIELD_URI, JDTUtils.toURI(cu));
-		data.put(CompletionResolveHandler.DATA_FIELD_REQUEST_ID, "0");
-		data.put(CompletionResolveHandler.DATA_FIELD_PROPOSAL_ID, "0");
-		ci.setData(data);
 	}
 
 	private static String getSnippetContent(ICompilationUnit cu, CodeGenerationTemplate templateSetting, String lineDelimiter, boolean snippetStringSupport) throws CoreException {
@@ -269,12 +287,9 @@ public class SnippetCompletionProposal {
 		if (template == null) {
 			return null;
 		}
-		CodeTemplateContext context = new CodeTemplateContext(template.getContextTypeId(), cu.getJavaProject(), lineDelimiter);
-
 		IPackageDeclaration[] packageDeclarations = cu.getPackageDeclarations();
 		String packageName = cu.getParent().getElementName();
 		String packageHeader = ((packageName != null && !packageName.isEmpty()) && (packageDeclarations == null || packageDeclarations.length == 0)) ? "package " + packageName + ";\n\n" : "";
-		context.setVariable(PACKAGEHEADER, packageHeader);
 		String typeName = JavaCore.removeJavaLikeExtension(cu.getElementName());
 		List<IType> types = Arrays.asList(cu.getAllTypes());
 		int postfix = 0;
@@ -282,7 +297,28 @@ public class SnippetCompletionProposal {
 			typeName = "Inner" + JavaCore.removeJavaLikeExtension(cu.getElementName()) + (postfix == 0 ? "" : "_" + postfix);
 			postfix++;
 		}
-		if (postfix > 0 && snippetStringSupport) {
+
+		List<Object> key = Arrays.asList(templateSetting, template.getPattern(), cu.getJavaProject().getElementName(), cu.getElementName(), packageHeader, typeName, postfix > 0, lineDelimiter, snippetStringSupport);
+		String snippet;
+		synchronized (SNIPPETS) {
+			snippet = SNIPPETS.get(key);
+		}
+		if (snippet != null) {
+			return snippet;
+		}
+		snippet = evaluateSnippet(cu, template, lineDelimiter, packageHeader, typeName, postfix > 0, snippetStringSupport);
+		if (snippet != null) {
+			synchronized (SNIPPETS) {
+				SNIPPETS.put(key, snippet);
+			}
+		}
+		return snippet;
+	}
+
+	private static String evaluateSnippet(ICompilationUnit cu, Template template, String lineDelimiter, String packageHeader, String typeName, boolean renamed, boolean snippetStringSupport) throws CoreException {
+		CodeTemplateContext context = new CodeTemplateContext(template.getContextTypeId(), cu.getJavaProject(), lineDelimiter);
+		context.setVariable(PACKAGEHEADER, packageHeader);
+		if (renamed && snippetStringSupport) {
 			context.setVariable(CodeTemplateContextType.TYPENAME, "${1:" + typeName + "}");
 		} else {
 			context.setVariable(CodeTemplateContextType.TYPENAME, typeName);
@@ -58,7 +58,9 @@ public class BuildWorkspaceHandler {
 			for (IProject project : projects) {
 				if (!project.equals(projectsManager.getDefaultProject())) {
 					String uri = JDTUtils.getFileURI(project);
-					connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList()));
+					PublishDiagnosticsParams diagnostics = new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList());
+					DiagnosticsCache.update(diagnostics);
+					connection.publishDiagnostics(diagnostics);
 				}
 			}
 			if (forceReBuild) {
@@ -14,20 +14,28 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.ProgressMonitorWrapper;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.CompletionContext;
 import org.eclipse.jdt.core.CompletionProposal;
 import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.ls.core.internal.DocumentAdapter;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
 import org.eclipse.jdt.ls.core.internal.contentassist.CompletionProposalRequestor;
 import org.eclipse.jdt.ls.core.internal.contentassist.JavadocCompletionProposal;
 import org.eclipse.jdt.ls.core.internal.contentassist.SnippetCompletionProposal;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
+import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.CompletionOptions;
@@ -38,14 +46,35 @@ public class CompletionHandler{
 
 	public final static CompletionOptions DEFAULT_COMPLETION_OPTIONS = new CompletionOptions(Boolean.TRUE, Arrays.asList(".", "@", "#", "*"));
 
+	public static final String SPECULATIVE_COMPLETION_JOBS = "SpeculativeCompletionJobs";
+
+	/**
+	 * The last completion, which can be reused by the next one if it only
+	 * extends the completed name. Taken by the request reusing it.
+	 */
+	private static final AtomicReference<CompletionSession> SESSION = new AtomicReference<>();
+
+	/**
+	 * The completion computed in the background after a trigger character was
+	 * typed. Taken by the next completion request, or dropped by the next
+	 * change.
+	 */
+	private final AtomicReference<SpeculativeCompletion> speculation = new AtomicReference<>();
+
+	private final AtomicLong speculationHits = new AtomicLong();
+
 	Either<List<CompletionItem>, CompletionList> completion(CompletionParams position,
 			IProgressMonitor monitor) {
 		List<CompletionItem> completionItems = null;
+		CompletionList $ = new CompletionList();
 		try {
 			ICompilationUnit unit = JDTUtils.resolveCompilationUnit(position.getTextDocument().getUri());
-			completionItems = this.computeContentAssist(unit,
-					position.getPosition().getLine(),
-					position.getPosition().getCharacter(), monitor);
+			completionItems = getSpeculativeItems(unit, position.getPosition().getLine(), position.getPosition().getCharacter(), $, monitor);
+			if (completionItems == null) {
+				completionItems = this.computeContentAssist(unit,
+						position.getPosition().getLine(),
+						position.getPosition().getCharacter(), $, monitor);
+			}
 		} catch (OperationCanceledException ignorable) {
 			// No need to pollute logs when query is cancelled
 			monitor.setCanceled(true);
@@ -53,7 +82,6 @@ public class CompletionHandler{
 			JavaLanguageServerPlugin.logException("Problem with codeComplete for " +  position.getTextDocument().getUri(), e);
 			monitor.setCanceled(true);
 		}
-		CompletionList $ = new CompletionList();
 		if (monitor.isCanceled()) {
 			$.setIsIncomplete(true);
 			completionItems = null;
@@ -65,15 +93,129 @@ public class CompletionHandler{
 		return Either.forRight($);
 	}
 
-	private List<CompletionItem> computeContentAssist(ICompilationUnit unit, int line, int column, IProgressMonitor monitor) throws JavaModelException {
-		CompletionResponses.clear();
+	/**
+	 * Starts computing the completion at the given offset in the background,
+	 * once a completion trigger character has been typed there. The result is
+	 * used by the next completion request at the same offset, unless the
+	 * document changes first.
+	 *
+	 * @param unit
+	 *            the changed compilation unit
+	 * @param offset
+	 *            the offset following the trigger character
+	 */
+	public void speculate(ICompilationUnit unit, int offset) {
+		SpeculativeCompletion newSpeculation = new SpeculativeCompletion(unit, offset);
+		discardSpeculation(speculation.getAndSet(newSpeculation));
+		newSpeculation.schedule();
+	}
+
+	/**
+	 * Drops the completion computed in the background, if any, since the
+	 * documents changed.
+	 */
+	public void discardSpeculation() {
+		discardSpeculation(speculation.getAndSet(null));
+	}
+
+	private static void discardSpeculation(SpeculativeCompletion speculation) {
+		if (speculation != null) {
+			speculation.cancel();
+			// a running completion deletes its response once it notices the cancellation
+			CompletionResponses.delete(speculation.response);
+		}
+	}
+
+	/**
+	 * @return the number of completion requests answered with the items
+	 *         computed in the background
+	 */
+	long getSpeculationHitCount() {
+		return speculationHits.get();
+	}
+
+	/**
+	 * Returns <code>true</code> if the text ends with a completion trigger
+	 * character.
+	 */
+	public static boolean endsWithTriggerCharacter(String text) {
+		return text != null && !text.isEmpty() && DEFAULT_COMPLETION_OPTIONS.getTriggerCharacters().contains(text.substring(text.length() - 1));
+	}
+
+	/**
+	 * Returns with the items computed in the background for the completion at
+	 * the given position, waiting for them if they are still being computed,
+	 * or <code>null</code> if no such completion was started.
+	 */
+	private List<CompletionItem> getSpeculativeItems(ICompilationUnit unit, int line, int column, CompletionList list, IProgressMonitor monitor) throws JavaModelException {
+		SpeculativeCompletion speculation = this.speculation.getAndSet(null);
+		if (speculation == null) {
+			return null;
+		}
+		if (unit == null || !speculation.matches(unit, JsonRpcHelpers.toOffset(unit.getBuffer(), line, column))) {
+			discardSpeculation(speculation);
+			return null;
+		}
+		try {
+			Job.getJobManager().join(speculation, monitor);
+		} catch (InterruptedException e) {
+			discardSpeculation(speculation);
+			return null;
+		}
+		if (speculation.items == null || !speculation.matches(unit, speculation.offset)) {
+			discardSpeculation(speculation);
+			return null;
+		}
+		speculationHits.incrementAndGet();
+		list.setIsIncomplete(speculation.incomplete);
+		return speculation.items;
+	}
+
+	/**
+	 * Returns with the modification stamp of the buffer of the unit, or
+	 * <code>null</code> if its changes can't be told apart cheaply.
+	 */
+	private static Long getStamp(ICompilationUnit unit) throws JavaModelException {
+		IBuffer buffer = unit.getBuffer();
+		return buffer instanceof DocumentAdapter ? ((DocumentAdapter) buffer).getModificationStamp() : null;
+	}
+
+	private List<CompletionItem> computeContentAssist(ICompilationUnit unit, int line, int column, CompletionList list, IProgressMonitor monitor) throws JavaModelException {
+		return computeContentAssist(unit, line, column, list, null, monitor);
+	}
+
+	/**
+	 * Computes the completion items. A speculative completion neither reuses
+	 * nor replaces the session of the last completion, and records its
+	 * response, so the response can be deleted if the items are discarded.
+	 */
+	private List<CompletionItem> computeContentAssist(ICompilationUnit unit, int line, int column, CompletionList list, SpeculativeCompletion speculation, IProgressMonitor monitor) throws JavaModelException {
+		CompletionSession session = speculation == null ? SESSION.getAndSet(null) : null;
 		if (unit == null) {
 			return Collections.emptyList();
 		}
 		List<CompletionItem> proposals = new ArrayList<>();
 
 		final int offset = JsonRpcHelpers.toOffset(unit.getBuffer(), line, column);
+		IBuffer buffer = unit.getBuffer();
+		String contents = buffer == null ? null : buffer.getContents();
+		String prefix = session == null || offset < 0 ? null : session.getPrefix(unit, contents, offset);
+		if (prefix != null && session.collector.refilter(prefix, offset)) {
+			proposals.addAll(session.collector.getCompletionItems(monitor));
+			list.setIsIncomplete(session.collector.isIncomplete());
+			for (CompletionItem snippet : session.snippets) {
+				if (snippet.getFilterText().startsWith(prefix)) {
+					proposals.add(snippet);
+				}
+			}
+			SESSION.set(new CompletionSession(unit, contents, offset, prefix, session.collector, session.snippets));
+			return proposals;
+		}
+
 		CompletionProposalRequestor collector = new CompletionProposalRequestor(unit, offset);
+		if (speculation != null) {
+			speculation.response = collector.getResponse();
+		}
 		// Allow completions for unresolved types - since 3.3
 		collector.setAllowsRequiredProposals(CompletionProposal.FIELD_REF, CompletionProposal.TYPE_REF, true);
 		collector.setAllowsRequiredProposals(CompletionProposal.FIELD_REF, CompletionProposal.TYPE_IMPORT, true);
@@ -93,28 +235,34 @@ public class CompletionHandler{
 		collector.setFavoriteReferences(getFavoriteStaticMembers());
 
 		if (offset >-1 && !monitor.isCanceled()) {
-			IBuffer buffer = unit.getBuffer();
 			if (buffer != null && buffer.getLength() >= offset) {
-				IProgressMonitor subMonitor = new ProgressMonitorWrapper(monitor) {
-					private long timeLimit;
-					private static final long TIMEOUT = 5000;
-
-					@Override
-					public void beginTask(String name, int totalWork) {
-						timeLimit = System.currentTimeMillis() + TIMEOUT;
+				TimeBudgetMonitor subMonitor = new TimeBudgetMonitor(monitor, getCompletionTimeout());
+				try {
+					try {
+						unit.codeComplete(offset, collector, subMonitor);
+					} catch (OperationCanceledException e) {
+						if (!subMonitor.isExpired() || monitor.isCanceled()) {
+							throw e;
+						}
 					}
-
-					@Override
-					public boolean isCanceled() {
-						return super.isCanceled() || timeLimit <= System.currentTimeMillis();
+					if (subMonitor.isExpired()) {
+						// Return the proposals accepted so far instead of nothing
+						JavaLanguageServerPlugin.logInfo("Completion time budget exceeded, returning partial results");
+						if (collector.getContext() != null) {
+							proposals.addAll(collector.getCompletionItems(monitor));
+						}
+						list.setIsIncomplete(true);
+						return proposals;
+					}
+					proposals.addAll(collector.getCompletionItems(monitor));
+					list.setIsIncomplete(collector.isIncomplete());
+					List<CompletionItem> snippets = SnippetCompletionProposal.getSnippets(unit, collector.getContext(), subMonitor);
+					proposals.addAll(snippets);
+					List<CompletionItem> javadocs = new JavadocCompletionProposal().getProposals(unit, offset, collector, subMonitor);
+					proposals.addAll(javadocs);
+					if (speculation == null && javadocs.isEmpty() && !subMonitor.isCanceled()) {
+						CompletionSession.store(unit, contents, offset, collector, snippets);
 					}
-
-				};
-				try {
-					unit.codeComplete(offset, collector, subMonitor);
-					proposals.addAll(collector.getCompletionItems());
-					proposals.addAll(SnippetCompletionProposal.getSnippets(unit, collector.getContext(), subMonitor));
-					proposals.addAll(new JavadocCompletionProposal().getProposals(unit, offset, collector, subMonitor));
 				} catch (OperationCanceledException e) {
 					monitor.setCanceled(true);
 				}
@@ -123,6 +271,159 @@ public class CompletionHandler{
 		return proposals;
 	}
 
+	/**
+	 * Computes the completion following a trigger character in the background.
+	 */
+	private static final class SpeculativeCompletion extends Job {
+
+		private final ICompilationUnit unit;
+		private final int offset;
+		private final Long stamp;
+		private volatile List<CompletionItem> items;
+		private volatile boolean incomplete;
+		private volatile CompletionResponse response;
+
+		private SpeculativeCompletion(ICompilationUnit unit, int offset) {
+			super("Speculative completion");
+			this.unit = unit;
+			this.offset = offset;
+			Long stamp;
+			try {
+				stamp = getStamp(unit);
+			} catch (JavaModelException e) {
+				stamp = null;
+			}
+			this.stamp = stamp;
+			setSystem(true);
+		}
+
+		private boolean matches(ICompilationUnit unit, int offset) throws JavaModelException {
+			return this.unit.equals(unit) && this.offset == offset && stamp != null && stamp.equals(getStamp(unit));
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			CompletionList list = new CompletionList();
+			try {
+				int[] position = JsonRpcHelpers.toLine(unit.getBuffer(), offset);
+				if (position == null) {
+					return Status.OK_STATUS;
+				}
+				List<CompletionItem> proposals = new CompletionHandler().computeContentAssist(unit, position[0], position[1], list, this, monitor);
+				if (monitor.isCanceled()) {
+					CompletionResponses.delete(response);
+					return Status.CANCEL_STATUS;
+				}
+				incomplete = list.isIncomplete();
+				items = proposals;
+			} catch (OperationCanceledException e) {
+				CompletionResponses.delete(response);
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				// the proposals are computed again by the completion request
+			}
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == this || SPECULATIVE_COMPLETION_JOBS.equals(family);
+		}
+	}
+
+	/**
+	 * Reports the completion as cancelled once its time budget is exceeded,
+	 * while the request itself may still go on.
+	 */
+	private static final class TimeBudgetMonitor extends ProgressMonitorWrapper {
+
+		private final long timeLimit;
+
+		private TimeBudgetMonitor(IProgressMonitor monitor, int timeout) {
+			super(monitor);
+			this.timeLimit = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+		}
+
+		private boolean isExpired() {
+			return timeLimit <= System.currentTimeMillis();
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || isExpired();
+		}
+	}
+
+	/**
+	 * A completion of a name, whose proposals can be filtered again for a
+	 * completion at a later offset, as long as only the characters of the name
+	 * have been typed in between.
+	 */
+	private static final class CompletionSession {
+
+		private final ICompilationUnit unit;
+		private final String contents;
+		private final int offset;
+		private final String prefix;
+		private final CompletionProposalRequestor collector;
+		private final List<CompletionItem> snippets;
+
+		private CompletionSession(ICompilationUnit unit, String contents, int offset, String prefix, CompletionProposalRequestor collector, List<CompletionItem> snippets) {
+			this.unit = unit;
+			this.contents = contents;
+			this.offset = offset;
+			this.prefix = prefix;
+			this.collector = collector;
+			this.snippets = snippets;
+		}
+
+		/**
+		 * Stores the completion as the session to reuse, if it completed a
+		 * name outside of Javadoc.
+		 */
+		private static void store(ICompilationUnit unit, String contents, int offset, CompletionProposalRequestor collector, List<CompletionItem> snippets) {
+			CompletionContext context = collector.getContext();
+			if (contents == null || context == null || context.isInJavadoc() || context.getTokenKind() != CompletionContext.TOKEN_KIND_NAME || context.getToken() == null) {
+				return;
+			}
+			int start = context.getTokenStart();
+			String prefix = new String(context.getToken());
+			if (start < 0 || start > offset || !contents.substring(start, offset).equals(prefix)) {
+				return;
+			}
+			SESSION.set(new CompletionSession(unit, contents, offset, prefix, collector, snippets));
+		}
+
+		/**
+		 * Returns with the prefix of the name to complete at the given offset,
+		 * or <code>null</code> if the document has changed otherwise than by
+		 * typing more characters of the name since this completion.
+		 */
+		private String getPrefix(ICompilationUnit unit, String contents, int offset) {
+			int delta = offset - this.offset;
+			if (!this.unit.equals(unit) || contents == null || delta <= 0 || contents.length() != this.contents.length() + delta) {
+				return null;
+			}
+			if (!contents.regionMatches(0, this.contents, 0, this.offset) || !contents.regionMatches(offset, this.contents, this.offset, this.contents.length() - this.offset)) {
+				return null;
+			}
+			for (int i = this.offset; i < offset; i++) {
+				if (!Character.isJavaIdentifierPart(contents.charAt(i))) {
+					return null;
+				}
+			}
+			return prefix + contents.substring(this.offset, offset);
+		}
+	}
+
+	private int getCompletionTimeout() {
+		PreferenceManager preferenceManager = JavaLanguageServerPlugin.getPreferencesManager();
+		if (preferenceManager != null) {
+			return preferenceManager.getPreferences().getCompletionTimeout();
+		}
+		return Preferences.JAVA_COMPLETION_TIMEOUT_DEFAULT;
+	}
+
 	private String[] getFavoriteStaticMembers() {
 		PreferenceManager preferenceManager = JavaLanguageServerPlugin.getPreferencesManager();
 		if (preferenceManager != null) {
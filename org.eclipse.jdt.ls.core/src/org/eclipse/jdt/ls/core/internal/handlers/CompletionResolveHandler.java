@@ -15,6 +15,7 @@ import static org.eclipse.jdt.internal.corext.template.java.SignatureUtil.getLow
 import static org.eclipse.jdt.internal.corext.template.java.SignatureUtil.stripSignatureToFQN;
 
 import java.io.Reader;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -23,18 +24,21 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.SourceRange;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
-import org.eclipse.jdt.ls.core.internal.JSONUtility;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
 import org.eclipse.jdt.ls.core.internal.contentassist.CompletionProposalReplacementProvider;
 import org.eclipse.jdt.ls.core.internal.contentassist.CompletionProposalRequestor;
 import org.eclipse.jdt.ls.core.internal.javadoc.JavadocContentAccess;
 import org.eclipse.jdt.ls.core.internal.javadoc.JavadocContentAccess2;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.MarkupContent;
 import org.eclipse.lsp4j.MarkupKind;
@@ -43,6 +47,7 @@ import org.eclipse.osgi.util.NLS;
 import com.google.common.io.CharStreams;
 import com.google.common.util.concurrent.SimpleTimeLimiter;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
+import com.google.gson.JsonElement;
 /**
  * Adds the completion string and documentation.
  * It checks the client capabilities.
@@ -63,31 +68,60 @@ public class CompletionResolveHandler {
 		this.manager = manager;
 	}
 
-	public static final String DATA_FIELD_URI = "uri";
 	public static final String DATA_FIELD_DECLARATION_SIGNATURE = "decl_signature";
 	public static final String DATA_FIELD_SIGNATURE= "signature";
 	public static final String DATA_FIELD_NAME = "name";
-	public static final String DATA_FIELD_REQUEST_ID = "rid";
-	public static final String DATA_FIELD_PROPOSAL_ID = "pid";
 	public static final String DATA_FIELD_CONSTANT_VALUE = "constant_value";
 	public static final String DATA_METHOD_DEFAULT_VALUE = "default_value";
 
+	/**
+	 * Separates the request id from the proposal id in the data of the
+	 * completion items.
+	 */
+	private static final char DATA_SEPARATOR = '-';
+
+	/**
+	 * Returns with the data of the completion item of a proposal, which
+	 * identifies the {@link CompletionResponse} and the proposal in it. The
+	 * document URI and the other data needed to resolve the item are kept by
+	 * the response.
+	 *
+	 * @param requestId
+	 *            the id of the completion response
+	 * @param proposalId
+	 *            the index of the proposal in the response
+	 * @return the data of the completion item
+	 */
+	public static String toData(long requestId, int proposalId) {
+		return Long.toString(requestId) + DATA_SEPARATOR + proposalId;
+	}
+
 	public CompletionItem resolve(CompletionItem param, IProgressMonitor monitor) {
 
-		@SuppressWarnings("unchecked")
-		Map<String, String> data = JSONUtility.toModel(param.getData(),Map.class);
+		String token = toToken(param.getData());
 		// clean resolve data
 		param.setData(null);
-		if (!CompletionProposalRequestor.SUPPORTED_KINDS.contains(param.getKind()) || data == null || !data.containsKey(DATA_FIELD_URI) || !data.containsKey(DATA_FIELD_REQUEST_ID) || !data.containsKey(DATA_FIELD_PROPOSAL_ID)) {
+		int separator = token == null ? -1 : token.indexOf(DATA_SEPARATOR);
+		if (!CompletionProposalRequestor.SUPPORTED_KINDS.contains(param.getKind()) || separator < 0) {
+			return param;
+		}
+		long requestId;
+		int proposalId;
+		try {
+			requestId = Long.parseLong(token.substring(0, separator));
+			proposalId = Integer.parseInt(token.substring(separator + 1));
+		} catch (NumberFormatException e) {
 			return param;
 		}
-		int proposalId = Integer.parseInt(data.get(DATA_FIELD_PROPOSAL_ID));
-		long requestId = Long.parseLong(data.get(DATA_FIELD_REQUEST_ID));
 		CompletionResponse completionResponse = CompletionResponses.get(requestId);
 		if (completionResponse == null || completionResponse.getProposals().size() <= proposalId) {
 			throw new IllegalStateException("Invalid completion proposal");
 		}
-		String uri = data.get(DATA_FIELD_URI);
+		Map<String, String> data = completionResponse.getItemData(proposalId);
+		if (data == null) {
+			data = Collections.emptyMap();
+		}
+		String uri = completionResponse.getUri();
 		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
 		if (unit == null) {
 			throw new IllegalStateException(NLS.bind("Unable to match Compilation Unit from {0} ", uri));
@@ -157,6 +191,10 @@ public class CompletionResolveHandler {
 						monitor.setCanceled(true);
 					}
 					String constantValue = data.get(DATA_FIELD_CONSTANT_VALUE);
+					if (constantValue == null && member instanceof IField && !monitor.isCanceled()) {
+						// not known to the Java model when the completion item was created
+						constantValue = JDTUtils.getConstantValue((IField) member, member.getTypeRoot(), getNameRegion(member));
+					}
 					if (constantValue != null) {
 						if (manager.getClientPreferences().isSupportsCompletionDocumentationMarkdown()) {
 							javadoc = (javadoc == null ? EMPTY_STRING : javadoc) + "\n\n" + VALUE + constantValue;
@@ -165,6 +203,9 @@ public class CompletionResolveHandler {
 						}
 					}
 					String defaultValue = data.get(DATA_METHOD_DEFAULT_VALUE);
+					if (defaultValue == null && member instanceof IMethod && !monitor.isCanceled()) {
+						defaultValue = JDTUtils.getAnnotationMemberDefaultValue((IMethod) member, member.getTypeRoot(), getNameRegion(member));
+					}
 					if (defaultValue != null) {
 						if (manager.getClientPreferences().isSupportsCompletionDocumentationMarkdown()) {
 							javadoc = (javadoc == null ? EMPTY_STRING : javadoc) + "\n\n" + DEFAULT + defaultValue;
@@ -192,4 +233,17 @@ public class CompletionResolveHandler {
 		return param;
 	}
 
+	private static String toToken(Object data) {
+		if (data instanceof JsonElement) {
+			JsonElement element = (JsonElement) data;
+			return element.isJsonPrimitive() ? element.getAsString() : null;
+		}
+		return data instanceof String ? (String) data : null;
+	}
+
+	private static IRegion getNameRegion(IMember member) throws JavaModelException {
+		ISourceRange nameRange = member.getNameRange();
+		return SourceRange.isAvailable(nameRange) ? new Region(nameRange.getOffset(), nameRange.getLength()) : null;
+	}
+
 }
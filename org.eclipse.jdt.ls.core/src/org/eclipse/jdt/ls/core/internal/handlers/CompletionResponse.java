@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.ls.core.internal.handlers;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.core.CompletionContext;
@@ -25,9 +28,12 @@ public class CompletionResponse {
 
 	private static AtomicLong idSeed = new AtomicLong(0);
 	private Long id;
+	private Long previousId;
 	private int offset;
 	private CompletionContext context;
 	private List<CompletionProposal> proposals;
+	private String uri;
+	private List<Map<String, String>> itemData = Collections.emptyList();
 
 	public CompletionResponse() {
 		id = idSeed.getAndIncrement();
@@ -40,6 +46,21 @@ public class CompletionResponse {
 		return id;
 	}
 
+	/**
+	 * @return the id of the response whose proposals were filtered for this
+	 *         one, or <code>null</code> if the proposals were computed for it
+	 */
+	public Long getPreviousId() {
+		return previousId;
+	}
+
+	/**
+	 * @param previousId the id of the response whose proposals were filtered for this one
+	 */
+	public void setPreviousId(Long previousId) {
+		this.previousId = previousId;
+	}
+
 	/**
 	 * @return the context
 	 */
@@ -64,6 +85,38 @@ public class CompletionResponse {
 	public void setProposals(List<CompletionProposal> proposals) {
 		this.proposals = proposals;
 	}
+	/**
+	 * @return the URI of the completed document
+	 */
+	public String getUri() {
+		return uri;
+	}
+	/**
+	 * @param uri the URI of the completed document
+	 */
+	public void setUri(String uri) {
+		this.uri = uri;
+	}
+	/**
+	 * @param count the number of proposals converted to completion items
+	 */
+	public void setItemCount(int count) {
+		itemData = new ArrayList<>(Collections.nCopies(count, null));
+	}
+	/**
+	 * @param index the index of the proposal
+	 * @param data the data needed to resolve the completion item of the proposal
+	 */
+	public void setItemData(int index, Map<String, String> data) {
+		itemData.set(index, data);
+	}
+	/**
+	 * @param index the index of the proposal
+	 * @return the data needed to resolve the completion item of the proposal
+	 */
+	public Map<String, String> getItemData(int index) {
+		return index < itemData.size() ? itemData.get(index) : null;
+	}
 	/**
 	 * @return the offset
 	 */
@@ -10,39 +10,127 @@
  *******************************************************************************/
 package org.eclipse.jdt.ls.core.internal.handlers;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Cache of {@link CompletionResponse}s.
+ * <p>
+ * The most recently used responses are kept, so completion items of lists
+ * still shown by the client can be resolved, up to {@link #MAX_RESPONSES}
+ * responses and {@link #MAX_PROPOSALS} proposals in total. The least recently
+ * used responses are evicted beyond these limits.
+ * </p>
  *
  * @author Fred Bricon
  */
 public final class CompletionResponses {
 
+	public static final int MAX_RESPONSES = 20;
+
+	public static final int MAX_PROPOSALS = 20_000;
+
 	private CompletionResponses(){
 		//Don't instantiate
 	}
 
-	private static final Map<Long, CompletionResponse> COMPLETIONS = new ConcurrentHashMap<>();
+	private static final Map<Long, CompletionResponse> COMPLETIONS = new LinkedHashMap<>(16, 0.75f, true);
+
+	private static int proposalCount;
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong evictions = new AtomicLong();
 
 	public static CompletionResponse get(Long id) {
-		return COMPLETIONS.get(id);
+		CompletionResponse response;
+		synchronized (COMPLETIONS) {
+			response = COMPLETIONS.get(id);
+		}
+		(response == null ? misses : hits).incrementAndGet();
+		return response;
 	}
 
 	public static void store(CompletionResponse response) {
 		if (response != null) {
-			COMPLETIONS.put(response.getId(), response);
+			synchronized (COMPLETIONS) {
+				remove(COMPLETIONS.put(response.getId(), response));
+				proposalCount += getProposalCount(response);
+				Iterator<CompletionResponse> eldest = COMPLETIONS.values().iterator();
+				// the stored response is the last one, and is always kept
+				while ((COMPLETIONS.size() > MAX_RESPONSES || proposalCount > MAX_PROPOSALS) && COMPLETIONS.size() > 1) {
+					remove(eldest.next());
+					eldest.remove();
+					evictions.incrementAndGet();
+				}
+			}
 		}
 	}
 
 	public static void delete(CompletionResponse response) {
 		if (response != null) {
-			COMPLETIONS.remove(response.getId());
+			synchronized (COMPLETIONS) {
+				remove(COMPLETIONS.remove(response.getId()));
+			}
 		}
 	}
 
 	public static void clear() {
-		COMPLETIONS.clear();
+		synchronized (COMPLETIONS) {
+			COMPLETIONS.clear();
+			proposalCount = 0;
+		}
+	}
+
+	/**
+	 * @return the number of responses held
+	 */
+	public static int size() {
+		synchronized (COMPLETIONS) {
+			return COMPLETIONS.size();
+		}
+	}
+
+	/**
+	 * @return the number of proposals held by all the responses
+	 */
+	public static int getProposalCount() {
+		synchronized (COMPLETIONS) {
+			return proposalCount;
+		}
+	}
+
+	/**
+	 * @return the number of responses found by {@link #get(Long)}
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of responses not found by {@link #get(Long)},
+	 *         because they were evicted or deleted
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of responses evicted to stay within the limits
+	 */
+	public static long getEvictionCount() {
+		return evictions.get();
+	}
+
+	private static void remove(CompletionResponse response) {
+		if (response != null) {
+			proposalCount -= getProposalCount(response);
+		}
+	}
+
+	private static int getProposalCount(CompletionResponse response) {
+		return response.getProposals() == null ? 0 : response.getProposals().size();
 	}
 }
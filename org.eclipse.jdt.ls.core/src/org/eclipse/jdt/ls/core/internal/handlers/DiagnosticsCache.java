@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+
+/**
+ * Cache of the fingerprints of the last {@link Diagnostic}s published for
+ * each document, used to avoid sending identical diagnostics to the client
+ * again.
+ *
+ * Diagnostics are compared by range, code, severity, source and message,
+ * through a 64-bit hash of these fields.
+ */
+public final class DiagnosticsCache {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private DiagnosticsCache() {
+		//Don't instantiate
+	}
+
+	/**
+	 * The fingerprints by document URI, sorted so that the documents below a
+	 * folder or a project are evicted together.
+	 */
+	private static final ConcurrentNavigableMap<String, Long> PUBLISHED = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Records the given diagnostics as the last ones published for their
+	 * document.
+	 *
+	 * @return <code>true</code> if they differ from the previously published
+	 *         ones, or if nothing was published yet
+	 */
+	public static boolean update(PublishDiagnosticsParams params) {
+		if (params == null || params.getUri() == null) {
+			return true;
+		}
+		Long fingerprint = fingerprint(params.getDiagnostics() == null ? Collections.<Diagnostic> emptyList() : params.getDiagnostics());
+		Long previous = PUBLISHED.put(params.getUri(), fingerprint);
+		return !fingerprint.equals(previous);
+	}
+
+	public static void remove(String uri) {
+		if (uri != null) {
+			PUBLISHED.remove(uri);
+		}
+	}
+
+	/**
+	 * Drops the entries of the resource with the given URI and of the
+	 * documents below it, when it is a folder or a project.
+	 */
+	public static void removeAll(String uri) {
+		if (uri != null) {
+			PUBLISHED.remove(uri);
+			// the URIs below the resource, '0' follows '/'
+			PUBLISHED.subMap(uri + '/', uri + '0').clear();
+		}
+	}
+
+	public static void clear() {
+		PUBLISHED.clear();
+	}
+
+	/**
+	 * Computes the FNV-1a hash of the compared fields of the diagnostics.
+	 */
+	static long fingerprint(List<Diagnostic> diagnostics) {
+		long hash = hash(FNV_OFFSET_BASIS, diagnostics.size());
+		for (Diagnostic diagnostic : diagnostics) {
+			if (diagnostic.getRange() != null) {
+				hash = hash(hash, diagnostic.getRange().getStart());
+				hash = hash(hash, diagnostic.getRange().getEnd());
+			} else {
+				hash = hash(hash, -1);
+			}
+			hash = hash(hash, diagnostic.getSeverity() == null ? 0 : diagnostic.getSeverity().getValue());
+			hash = hash(hash, diagnostic.getCode() == null ? null : String.valueOf(diagnostic.getCode()));
+			hash = hash(hash, diagnostic.getSource());
+			hash = hash(hash, diagnostic.getMessage());
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, Position position) {
+		if (position == null) {
+			return hash(hash, -1);
+		}
+		return hash(hash(hash, position.getLine()), position.getCharacter());
+	}
+
+	private static long hash(long hash, String value) {
+		if (value == null) {
+			return hash(hash, -1);
+		}
+		hash = hash(hash, value.length());
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, int value) {
+		for (int i = 0; i < 4; i++) {
+			hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+			value >>>= 8;
+		}
+		return hash;
+	}
+}
@@ -117,7 +117,7 @@ public class DiagnosticsHandler implements IProblemRequestor {
 	public void endReporting() {
 		JavaLanguageServerPlugin.logInfo(problems.size() + " problems reported for " + this.uri.substring(this.uri.lastIndexOf('/')));
 		PublishDiagnosticsParams $ = new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), toDiagnosticsArray(this.cu, problems));
-		this.connection.publishDiagnostics($);
+		publishDiagnostics($);
 	}
 
 	@Override
@@ -126,14 +126,16 @@ public class DiagnosticsHandler implements IProblemRequestor {
 	}
 
 	public static List<Diagnostic> toDiagnosticsArray(IOpenable openable, List<IProblem> problems) {
+		Range[] ranges = convertRanges(openable, problems);
 		List<Diagnostic> array = new ArrayList<>(problems.size());
-		for (IProblem problem : problems) {
+		for (int i = 0; i < ranges.length; i++) {
+			IProblem problem = problems.get(i);
 			Diagnostic diag = new Diagnostic();
 			diag.setSource(JavaLanguageServerPlugin.SERVER_SOURCE_ID);
 			diag.setMessage(problem.getMessage());
 			diag.setCode(Integer.toString(problem.getID()));
 			diag.setSeverity(convertSeverity(problem));
-			diag.setRange(convertRange(openable, problem));
+			diag.setRange(ranges[i]);
 			array.add(diag);
 		}
 		return array;
@@ -149,35 +151,57 @@ public class DiagnosticsHandler implements IProblemRequestor {
 		return DiagnosticSeverity.Information;
 	}
 
-	@SuppressWarnings("restriction")
-	private static Range convertRange(IOpenable openable, IProblem problem) {
+	private static Range[] convertRanges(IOpenable openable, List<IProblem> problems) {
+		int[] offsets = new int[problems.size()];
+		int[] lengths = new int[problems.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			IProblem problem = problems.get(i);
+			offsets[i] = problem.getSourceStart();
+			lengths[i] = problem.getSourceEnd() - problem.getSourceStart() + 1;
+		}
 		try {
-			return JDTUtils.toRange(openable, problem.getSourceStart(), problem.getSourceEnd() - problem.getSourceStart() + 1);
+			return JDTUtils.toRanges(openable, offsets, lengths);
 		} catch (CoreException e) {
 			// In case failed to open the IOpenable's buffer, use the IProblem's information to calculate the range.
-			Position start = new Position();
-			Position end = new Position();
-
-			start.setLine(problem.getSourceLineNumber() - 1);// The protocol is 0-based.
-			end.setLine(problem.getSourceLineNumber() - 1);
-			if (problem instanceof DefaultProblem) {
-				DefaultProblem dProblem = (DefaultProblem) problem;
-				start.setCharacter(dProblem.getSourceColumnNumber() - 1);
-				int offset = 0;
-				if (dProblem.getSourceStart() != -1 && dProblem.getSourceEnd() != -1) {
-					offset = dProblem.getSourceEnd() - dProblem.getSourceStart() + 1;
-				}
-				end.setCharacter(dProblem.getSourceColumnNumber() - 1 + offset);
+			Range[] ranges = new Range[offsets.length];
+			for (int i = 0; i < ranges.length; i++) {
+				ranges[i] = convertRange(problems.get(i));
 			}
-			return new Range(start, end);
+			return ranges;
 		}
 	}
 
+	@SuppressWarnings("restriction")
+	private static Range convertRange(IProblem problem) {
+		Position start = new Position();
+		Position end = new Position();
+
+		start.setLine(problem.getSourceLineNumber() - 1);// The protocol is 0-based.
+		end.setLine(problem.getSourceLineNumber() - 1);
+		if (problem instanceof DefaultProblem) {
+			DefaultProblem dProblem = (DefaultProblem) problem;
+			start.setCharacter(dProblem.getSourceColumnNumber() - 1);
+			int offset = 0;
+			if (dProblem.getSourceStart() != -1 && dProblem.getSourceEnd() != -1) {
+				offset = dProblem.getSourceEnd() - dProblem.getSourceStart() + 1;
+			}
+			end.setCharacter(dProblem.getSourceColumnNumber() - 1 + offset);
+		}
+		return new Range(start, end);
+	}
+
 	public void clearDiagnostics() {
 		JavaLanguageServerPlugin.logInfo("Clearing problems for " + this.uri.substring(this.uri.lastIndexOf('/')));
 		problems.clear();
 		PublishDiagnosticsParams $ = new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList());
-		this.connection.publishDiagnostics($);
+		publishDiagnostics($);
+	}
+
+	private void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+		// the client already shows identical diagnostics
+		if (DiagnosticsCache.update(diagnostics)) {
+			this.connection.publishDiagnostics(diagnostics);
+		}
 	}
 
 	/**
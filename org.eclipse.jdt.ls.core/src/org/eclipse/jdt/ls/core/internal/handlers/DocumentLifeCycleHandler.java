@@ -10,13 +10,16 @@
  *******************************************************************************/
 package org.eclipse.jdt.ls.core.internal.handlers;
 
-import static com.google.common.collect.Lists.newArrayList;
-
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
@@ -32,6 +35,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
@@ -43,22 +47,19 @@ import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.manipulation.CoreASTProvider;
-import org.eclipse.jdt.internal.ui.javaeditor.HighlightedPositionCore;
 import org.eclipse.jdt.ls.core.internal.ActionableNotification;
 import org.eclipse.jdt.ls.core.internal.DocumentAdapter;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaClientConnection;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+import org.eclipse.jdt.ls.core.internal.ResourceUtils;
+import org.eclipse.jdt.ls.core.internal.RopeDocument;
 import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingService;
-import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingService.HighlightedPositionDiffContext;
 import org.eclipse.jdt.ls.core.internal.managers.ProjectsManager;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
 import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
 import org.eclipse.jdt.ls.core.internal.preferences.Preferences.Severity;
 import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.BadPositionCategoryException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4j.Command;
 import org.eclipse.lsp4j.DidChangeTextDocumentParams;
@@ -67,19 +68,23 @@ import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.DidSaveTextDocumentParams;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
-import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
 import org.eclipse.text.edits.DeleteEdit;
 import org.eclipse.text.edits.InsertEdit;
 import org.eclipse.text.edits.MalformedTreeException;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
 
-import com.google.common.collect.Iterables;
-
 public class DocumentLifeCycleHandler {
 
 	public static final String DOCUMENT_LIFE_CYCLE_JOBS = "DocumentLifeCycleJobs";
 	public static final String PUBLISH_DIAGNOSTICS_JOBS = "DocumentLifeCyclePublishDiagnosticsJobs";
+
+	/**
+	 * Delay, in milliseconds, during which documents opened or closed in a row
+	 * are gathered to be handled together.
+	 */
+	private static final long OPEN_CLOSE_BATCH_DELAY = 20;
+
 	private JavaClientConnection connection;
 	private PreferenceManager preferenceManager;
 	private ProjectsManager projectsManager;
@@ -87,8 +92,21 @@ public class DocumentLifeCycleHandler {
 	private CoreASTProvider sharedASTProvider;
 	private WorkspaceJob validationTimer;
 	private WorkspaceJob publishDiagnosticsJob;
+	private ReconcileScheduler reconcileScheduler;
+	private Job openCloseJob;
+	/**
+	 * The pending {@link DidOpenTextDocumentParams} and
+	 * {@link DidCloseTextDocumentParams}, in the order they were received.
+	 */
+	private final List<Object> pendingOpensAndCloses = new ArrayList<>();
+	private final Object openCloseLock = new Object();
 	private Set<ICompilationUnit> toReconcile = new HashSet<>();
+	private Set<ICompilationUnit> toPublish = new HashSet<>();
+	private WorkingCopyDependencyIndex dependencyIndex = new WorkingCopyDependencyIndex();
+	private ValidationDebouncer debouncer = new ValidationDebouncer();
 	private SemanticHighlightingService semanticHighlightingService;
+	private SemanticTokensHandler semanticTokensHandler;
+	private CompletionHandler completionHandler;
 
 	public DocumentLifeCycleHandler(JavaClientConnection connection, PreferenceManager preferenceManager, ProjectsManager projectsManager, boolean delayValidation) {
 		this.connection = connection;
@@ -111,7 +129,6 @@ public class DocumentLifeCycleHandler {
 					return DOCUMENT_LIFE_CYCLE_JOBS.equals(family);
 				}
 			};
-			this.validationTimer.setRule(ResourcesPlugin.getWorkspace().getRoot());
 			this.publishDiagnosticsJob = new WorkspaceJob("Publish Diagnostics") {
 				@Override
 				public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
@@ -126,18 +143,66 @@ public class DocumentLifeCycleHandler {
 					return PUBLISH_DIAGNOSTICS_JOBS.equals(family);
 				}
 			};
-			this.validationTimer.setRule(ResourcesPlugin.getWorkspace().getRoot());
+			// the validation and publish jobs hold no rule, so they don't block the whole workspace:
+			// the units are reconciled by one job per project, under the project rule, see ReconcileScheduler
+			this.reconcileScheduler = new ReconcileScheduler("Reconcile documents");
+			this.openCloseJob = new Job("Open and close documents") {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					handlePendingOpensAndCloses();
+					return Status.OK_STATUS;
+				}
+
+				/* (non-Javadoc)
+				 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+				 */
+				@Override
+				public boolean belongsTo(Object family) {
+					return DOCUMENT_LIFE_CYCLE_JOBS.equals(family);
+				}
+			};
 		}
 	}
 
+	/**
+	 * Sets the handler whose tokens are forgotten when a document is closed,
+	 * in order with the other opens and closes of the document.
+	 */
+	public void setSemanticTokensHandler(SemanticTokensHandler semanticTokensHandler) {
+		this.semanticTokensHandler = semanticTokensHandler;
+	}
+
+	/**
+	 * Sets the handler which computes the completions speculatively after a
+	 * trigger character is typed, and drops them on the next change.
+	 */
+	public void setCompletionHandler(CompletionHandler completionHandler) {
+		this.completionHandler = completionHandler;
+	}
+
 	private void triggerValidation(ICompilationUnit cu) throws JavaModelException {
-		triggerValidation(cu, 400);
+		triggerValidation(cu, validationTimer != null ? debouncer.getDelay(cu) : 0);
 	}
 
 	private void triggerValidation(ICompilationUnit cu, long delay) throws JavaModelException {
+		triggerValidation(Collections.singletonList(cu), delay);
+	}
+
+	/**
+	 * Validates the given units together, scheduling a single validation.
+	 */
+	private void triggerValidation(List<ICompilationUnit> cus, long delay) throws JavaModelException {
+		if (cus.isEmpty()) {
+			return;
+		}
 		synchronized (toReconcile) {
-			toReconcile.add(cu);
-			sharedASTProvider.setActiveJavaElement(cu);
+			toReconcile.addAll(cus);
+			sharedASTProvider.setActiveJavaElement(cus.get(cus.size() - 1));
+		}
+		if (reconcileScheduler != null) {
+			for (ICompilationUnit cu : cus) {
+				reconcileScheduler.cancel(cu);
+			}
 		}
 		if (validationTimer != null) {
 			validationTimer.cancel();
@@ -163,10 +228,17 @@ public class DocumentLifeCycleHandler {
 		}
 		// first reconcile all units with content changes
 		SubMonitor progress = SubMonitor.convert(monitor, cusToReconcile.size() + 1);
-		for (ICompilationUnit cu : cusToReconcile) {
-			cu.reconcile(ICompilationUnit.NO_AST, true, null, progress.newChild(1));
+		synchronized (toPublish) {
+			toPublish.addAll(cusToReconcile);
+		}
+		if (reconcileScheduler != null) {
+			reconcileScheduler.reconcile(cusToReconcile, this::reconcile, DOCUMENT_LIFE_CYCLE_JOBS, progress.newChild(cusToReconcile.size()));
+		} else {
+			for (ICompilationUnit cu : cusToReconcile) {
+				reconcile(cu, progress.newChild(1));
+			}
 		}
-		JavaLanguageServerPlugin.logInfo("Reconciled " + toReconcile.size() + ". Took " + (System.currentTimeMillis() - start) + " ms");
+		JavaLanguageServerPlugin.logInfo("Reconciled " + cusToReconcile.size() + ". Took " + (System.currentTimeMillis() - start) + " ms");
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
@@ -177,44 +249,110 @@ public class DocumentLifeCycleHandler {
 			} catch (InterruptedException e) {
 				// ignore
 			}
-			publishDiagnosticsJob.schedule(400);
+			publishDiagnosticsJob.schedule(debouncer.getPublishDelay());
 		} else {
 			return publishDiagnostics(new NullProgressMonitor());
 		}
 		return Status.OK_STATUS;
 	}
 
+	private void reconcile(ICompilationUnit cu, IProgressMonitor monitor) throws JavaModelException {
+		long start = System.currentTimeMillis();
+		cu.reconcile(ICompilationUnit.NO_AST, true, null, monitor);
+		if (!monitor.isCanceled()) {
+			debouncer.reconcileCompleted(cu, System.currentTimeMillis() - start);
+		}
+	}
+
 	private IStatus publishDiagnostics(IProgressMonitor monitor) throws JavaModelException {
 		long start = System.currentTimeMillis();
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
 		this.sharedASTProvider.disposeAST();
+		List<ICompilationUnit> changed;
+		synchronized (toPublish) {
+			changed = new ArrayList<>(toPublish);
+		}
 		List<ICompilationUnit> toValidate = Arrays.asList(JavaCore.getWorkingCopies(null));
+		boolean dependencyAware = isDependencyAwareValidationEnabled();
+		if (dependencyAware) {
+			toValidate = dependencyIndex.getAffectedUnits(changed, toValidate);
+		}
 		SubMonitor progress = SubMonitor.convert(monitor, toValidate.size() + 1);
 		List<CompilationUnit> astRoots = new ArrayList<>();
+		Map<CompilationUnit, IDocument> toHighlight = new LinkedHashMap<>();
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
 		for (ICompilationUnit rootToValidate : toValidate) {
+			boolean highlighting = semanticHighlightingService.hasPendingEdits(rootToValidate);
+			IDocument state = highlighting ? JsonRpcHelpers.toDocumentSnapshot(rootToValidate.getBuffer()) : null;
 			CompilationUnit astRoot = this.sharedASTProvider.getAST(rootToValidate, CoreASTProvider.WAIT_YES, monitor);
 			astRoots.add(astRoot);
+			// the AST matches the snapshot only if the unit was not edited meanwhile
+			if (highlighting && astRoot != null && isSameSnapshot(state, JsonRpcHelpers.toDocumentSnapshot(rootToValidate.getBuffer()))) {
+				toHighlight.put(astRoot, state);
+			}
+			if (dependencyAware) {
+				dependencyIndex.update(astRoot);
+			}
 			if (monitor.isCanceled()) {
 				return Status.CANCEL_STATUS;
 			}
 		}
-		for (CompilationUnit astRoot : astRoots) {
+		if (reconcileScheduler != null) {
+			List<ICompilationUnit> units = new ArrayList<>(astRoots.size());
+			for (CompilationUnit astRoot : astRoots) {
+				units.add((ICompilationUnit) astRoot.getTypeRoot());
+			}
+			// report errors, even if there are no problems in the file: The client need to know that they got fixed.
+			IStatus status = reconcileScheduler.reconcile(units, this::publishDiagnostics, PUBLISH_DIAGNOSTICS_JOBS, progress.newChild(units.size()));
+			if (status.getSeverity() == IStatus.CANCEL) {
+				return Status.CANCEL_STATUS;
+			}
+		} else {
+			for (CompilationUnit astRoot : astRoots) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				// report errors, even if there are no problems in the file: The client need to know that they got fixed.
+				ICompilationUnit unit = (ICompilationUnit) astRoot.getTypeRoot();
+				publishDiagnostics(unit, progress.newChild(1));
+			}
+		}
+		synchronized (toPublish) {
+			toPublish.removeAll(changed);
+		}
+		// highlight the edits with the reconciled ASTs, once the diagnostics are published
+		for (Map.Entry<CompilationUnit, IDocument> entry : toHighlight.entrySet()) {
 			if (monitor.isCanceled()) {
 				return Status.CANCEL_STATUS;
 			}
-			// report errors, even if there are no problems in the file: The client need to know that they got fixed.
-			ICompilationUnit unit = (ICompilationUnit) astRoot.getTypeRoot();
-			publishDiagnostics(unit, progress.newChild(1));
+			ICompilationUnit unit = (ICompilationUnit) entry.getKey().getTypeRoot();
+			try {
+				updateSemanticHighlightings(unit, entry.getValue(), entry.getKey());
+			} catch (BadLocationException e) {
+				JavaLanguageServerPlugin.logException("Error while highlighting document. URI: " + JDTUtils.toURI(unit), e);
+			}
 		}
 		JavaLanguageServerPlugin.logInfo("Validated " + toValidate.size() + ". Took " + (System.currentTimeMillis() - start) + " ms");
 		return Status.OK_STATUS;
 	}
 
+	private static boolean isSameSnapshot(IDocument snapshot, IDocument other) {
+		if (snapshot instanceof RopeDocument && other instanceof RopeDocument) {
+			// the snapshot of a buffer is replaced on every change
+			return ((RopeDocument) snapshot).getRope() == ((RopeDocument) other).getRope();
+		}
+		return snapshot.get().equals(other.get());
+	}
+
+	private boolean isDependencyAwareValidationEnabled() {
+		Preferences preferences = preferenceManager == null ? null : preferenceManager.getPreferences();
+		return preferences != null && preferences.isDependencyAwareValidationEnabled();
+	}
+
 	private void publishDiagnostics(ICompilationUnit unit, IProgressMonitor monitor) throws JavaModelException {
 		final DiagnosticsHandler handler = new DiagnosticsHandler(connection, unit);
 		WorkingCopyOwner wcOwner = new WorkingCopyOwner() {
@@ -245,6 +383,10 @@ public class DocumentLifeCycleHandler {
 	}
 
 	public void didClose(DidCloseTextDocumentParams params) {
+		if (openCloseJob != null) {
+			enqueueOpenOrClose(params);
+			return;
+		}
 		try {
 			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
 				@Override
@@ -258,6 +400,10 @@ public class DocumentLifeCycleHandler {
 	}
 
 	public void didOpen(DidOpenTextDocumentParams params) {
+		if (openCloseJob != null) {
+			enqueueOpenOrClose(params);
+			return;
+		}
 		try {
 			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
 				@Override
@@ -271,6 +417,7 @@ public class DocumentLifeCycleHandler {
 	}
 
 	public void didChange(DidChangeTextDocumentParams params) {
+		handlePendingOpensAndCloses();
 		try {
 			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
 				@Override
@@ -284,6 +431,7 @@ public class DocumentLifeCycleHandler {
 	}
 
 	public void didSave(DidSaveTextDocumentParams params) {
+		handlePendingOpensAndCloses();
 		try {
 			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
 				@Override
@@ -296,6 +444,75 @@ public class DocumentLifeCycleHandler {
 		}
 	}
 
+	private void enqueueOpenOrClose(Object params) {
+		synchronized (pendingOpensAndCloses) {
+			pendingOpensAndCloses.add(params);
+		}
+		// has no effect if the job is already sleeping, so a batch waits at most OPEN_CLOSE_BATCH_DELAY
+		openCloseJob.schedule(OPEN_CLOSE_BATCH_DELAY);
+	}
+
+	/**
+	 * Opens and closes the pending documents, in order and in a single
+	 * workspace operation. Consecutive closes are handled as one group. Waits
+	 * for the documents being opened or closed by another thread, so the
+	 * pending documents are always open or closed when this method returns.
+	 * Called before handling any document notification or request, so they
+	 * never see a document which is still waiting to be opened or closed.
+	 */
+	public void handlePendingOpensAndCloses() {
+		if (openCloseJob == null) {
+			return;
+		}
+		// acquired before the workspace lock, by all the callers
+		synchronized (openCloseLock) {
+			List<Object> pending;
+			synchronized (pendingOpensAndCloses) {
+				if (pendingOpensAndCloses.isEmpty()) {
+					return;
+				}
+				pending = new ArrayList<>(pendingOpensAndCloses);
+				pendingOpensAndCloses.clear();
+			}
+			try {
+				ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+					@Override
+					public void run(IProgressMonitor monitor) throws CoreException {
+						List<DidCloseTextDocumentParams> closes = new ArrayList<>();
+						for (Object params : pending) {
+							if (params instanceof DidCloseTextDocumentParams) {
+								closes.add((DidCloseTextDocumentParams) params);
+								continue;
+							}
+							closeDocuments(closes);
+							DidOpenTextDocumentParams openParams = (DidOpenTextDocumentParams) params;
+							try {
+								handleOpen(openParams);
+							} catch (RuntimeException e) {
+								JavaLanguageServerPlugin.logException("Error while opening document. URI: " + openParams.getTextDocument().getUri(), e);
+							}
+						}
+						closeDocuments(closes);
+					}
+				}, new NullProgressMonitor());
+			} catch (CoreException e) {
+				JavaLanguageServerPlugin.logException("Handle document open and close ", e);
+			}
+		}
+	}
+
+	private void closeDocuments(List<DidCloseTextDocumentParams> closes) {
+		if (closes.isEmpty()) {
+			return;
+		}
+		try {
+			handleClosed(closes);
+		} catch (RuntimeException e) {
+			JavaLanguageServerPlugin.logException("Error while closing documents", e);
+		}
+		closes.clear();
+	}
+
 	public void handleOpen(DidOpenTextDocumentParams params) {
 		String uri = params.getTextDocument().getUri();
 		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
@@ -347,19 +564,29 @@ public class DocumentLifeCycleHandler {
 			unit.becomeWorkingCopy(new NullProgressMonitor());
 			IBuffer buffer = unit.getBuffer();
 			String newContent = params.getTextDocument().getText();
-			if (buffer != null && !buffer.getContents().equals(newContent)) {
+			if (buffer != null && !hasContents(buffer, newContent)) {
 				buffer.setContents(newContent);
 			}
 			triggerValidation(unit);
 			installSemanticHighlightings(unit);
 			// see https://github.com/redhat-developer/vscode-java/issues/274
 			checkPackageDeclaration(uri, unit);
-		} catch (JavaModelException | BadPositionCategoryException e) {
+		} catch (JavaModelException e) {
 			JavaLanguageServerPlugin.logException("Error while opening document. URI: " + uri, e);
 		}
 	}
 
+	private static boolean hasContents(IBuffer buffer, String contents) {
+		if (buffer instanceof DocumentAdapter) {
+			return ((DocumentAdapter) buffer).hasContents(contents);
+		}
+		return Objects.equals(buffer.getContents(), contents);
+	}
+
 	public void handleChanged(DidChangeTextDocumentParams params) {
+		if (completionHandler != null) {
+			completionHandler.discardSpeculation();
+		}
 		String uri = params.getTextDocument().getUri();
 		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
 
@@ -371,8 +598,8 @@ public class DocumentLifeCycleHandler {
 			if (unit.equals(sharedASTProvider.getActiveJavaElement())) {
 				sharedASTProvider.disposeAST();
 			}
+			int triggerOffset = -1;
 			List<TextDocumentContentChangeEvent> contentChanges = params.getContentChanges();
-			List<HighlightedPositionDiffContext> diffContexts = newArrayList();
 			for (TextDocumentContentChangeEvent changeEvent : contentChanges) {
 
 				Range range = changeEvent.getRange();
@@ -399,64 +626,128 @@ public class DocumentLifeCycleHandler {
 				}
 
 				// Avoid any computation if the `SemanticHighlightingService#isEnabled` is `false`.
-				if (semanticHighlightingService.isEnabled()) {
-					IDocument oldState = new Document(unit.getBuffer().getContents());
-					IDocument newState = JsonRpcHelpers.toDocument(unit.getBuffer());
-					//@formatter:off
-					List<HighlightedPositionCore> oldPositions = diffContexts.isEmpty()
-						? semanticHighlightingService.getHighlightedPositions(uri)
-						: Iterables.getLast(diffContexts).newPositions;
-					//@formatter:on
-					edit.apply(newState, TextEdit.NONE);
-					// This is a must. Make the document immutable.
-					// Otherwise, any consecutive `newStates` get out-of-sync due to the shared buffer from the compilation unit.
-					newState = new Document(newState.get());
-					List<HighlightedPositionCore> newPositions = semanticHighlightingService.calculateHighlightedPositions(unit, true);
-					DocumentEvent event = new DocumentEvent(newState, startOffset, length, text);
-					diffContexts.add(new HighlightedPositionDiffContext(oldState, event, oldPositions, newPositions));
-				} else {
-					IDocument document = JsonRpcHelpers.toDocument(unit.getBuffer());
-					edit.apply(document, TextEdit.NONE);
+				boolean highlighting = semanticHighlightingService.isEnabled();
+				IDocument oldState = highlighting ? JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer()) : null;
+				IDocument document = JsonRpcHelpers.toDocument(unit.getBuffer());
+				edit.apply(document, TextEdit.NONE);
+				triggerOffset = CompletionHandler.endsWithTriggerCharacter(text) ? startOffset + text.length() : -1;
+				if (highlighting) {
+					// the highlighting is calculated once the unit is reconciled, see #publishDiagnostics(IProgressMonitor)
+					semanticHighlightingService.edited(unit, params.getTextDocument(), oldState, JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer()), startOffset, length, text);
 				}
 
 			}
+			debouncer.editReceived(unit);
 			triggerValidation(unit);
-			updateSemanticHighlightings(params.getTextDocument(), diffContexts);
-		} catch (JavaModelException | MalformedTreeException | BadLocationException | BadPositionCategoryException e) {
+			Preferences preferences = preferenceManager == null ? null : preferenceManager.getPreferences();
+			if (triggerOffset >= 0 && completionHandler != null && preferences != null && preferences.isCompletionEnabled() && preferences.isSpeculativeCompletion()) {
+				completionHandler.speculate(unit, triggerOffset);
+			}
+		} catch (JavaModelException | MalformedTreeException | BadLocationException e) {
 			JavaLanguageServerPlugin.logException("Error while handling document change. URI: " + uri, e);
 		}
 	}
 
 	public void handleClosed(DidCloseTextDocumentParams params) {
-		String uri = params.getTextDocument().getUri();
-		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
-		if (unit == null) {
+		handleClosed(Collections.singletonList(params));
+	}
+
+	/**
+	 * Closes the given documents as a group: the pending validations of all
+	 * the closed units are dropped first, then the diagnostics of the units
+	 * whose changes are discarded, and the validation of the open units
+	 * depending on them, are refreshed once for the whole group.
+	 */
+	public void handleClosed(List<DidCloseTextDocumentParams> closes) {
+		Map<String, ICompilationUnit> units = new LinkedHashMap<>();
+		for (DidCloseTextDocumentParams params : closes) {
+			String uri = params.getTextDocument().getUri();
+			ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
+			if (unit != null) {
+				units.put(uri, unit);
+			}
+		}
+		if (units.isEmpty()) {
 			return;
 		}
-		try {
-			synchronized (toReconcile) {
-				toReconcile.remove(unit);
+		synchronized (toReconcile) {
+			toReconcile.removeAll(units.values());
+		}
+		if (reconcileScheduler != null) {
+			for (ICompilationUnit unit : units.values()) {
+				reconcileScheduler.cancel(unit);
 			}
-			if (JDTUtils.isDefaultProject(unit) || !JDTUtils.isOnClassPath(unit) || unit.getResource().isDerived()) {
-				new DiagnosticsHandler(connection, unit).clearDiagnostics();
-			} else if (hasUnsavedChanges(unit)) {
-				unit.discardWorkingCopy();
-				unit.becomeWorkingCopy(new NullProgressMonitor());
+		}
+		synchronized (toPublish) {
+			toPublish.removeAll(units.values());
+		}
+		List<ICompilationUnit> discarded = new ArrayList<>();
+		Set<ICompilationUnit> dependents = new LinkedHashSet<>();
+		for (Map.Entry<String, ICompilationUnit> entry : units.entrySet()) {
+			ICompilationUnit unit = entry.getValue();
+			try {
+				if (JDTUtils.isDefaultProject(unit) || !JDTUtils.isOnClassPath(unit) || unit.getResource().isDerived()) {
+					new DiagnosticsHandler(connection, unit).clearDiagnostics();
+				} else if (hasUnsavedChanges(unit)) {
+					dependents.addAll(dependencyIndex.getDependents(unit));
+					unit.discardWorkingCopy();
+					unit.becomeWorkingCopy(new NullProgressMonitor());
+					discarded.add(unit);
+				}
+			} catch (CoreException e) {
+				JavaLanguageServerPlugin.logException("Error while handling document close. URI: " + entry.getKey(), e);
+			}
+		}
+		// publish the diagnostics of the saved content of the discarded units
+		for (ICompilationUnit unit : discarded) {
+			try {
 				publishDiagnostics(unit, new NullProgressMonitor());
+			} catch (CoreException e) {
+				JavaLanguageServerPlugin.logException("Error while handling document close. URI: " + JDTUtils.toURI(unit), e);
 			}
-			if (unit.equals(sharedASTProvider.getActiveJavaElement())) {
-				sharedASTProvider.disposeAST();
+		}
+		for (Map.Entry<String, ICompilationUnit> entry : units.entrySet()) {
+			String uri = entry.getKey();
+			ICompilationUnit unit = entry.getValue();
+			try {
+				if (unit.equals(sharedASTProvider.getActiveJavaElement())) {
+					sharedASTProvider.disposeAST();
+				}
+				unit.discardWorkingCopy();
+				dependencyIndex.remove(unit);
+				debouncer.remove(unit);
+				if (JDTUtils.isDefaultProject(unit)) {
+					File f = new File(unit.getUnderlyingResource().getLocationURI());
+					if (!f.exists()) {
+						unit.delete(true, null);
+					}
+				}
+				uninstallSemanticHighlightings(uri);
+				if (semanticTokensHandler != null) {
+					semanticTokensHandler.forget(uri);
+				}
+				DiagnosticsCache.remove(ResourceUtils.toClientUri(JDTUtils.toURI(unit)));
+			} catch (CoreException e) {
+				JavaLanguageServerPlugin.logException("Error while handling document close. URI: " + uri, e);
 			}
-			unit.discardWorkingCopy();
-			if (JDTUtils.isDefaultProject(unit)) {
-				File f = new File(unit.getUnderlyingResource().getLocationURI());
-				if (!f.exists()) {
-					unit.delete(true, null);
+		}
+		// the open units depending on the discarded changes now resolve against the saved content
+		if (!discarded.isEmpty() && isDependencyAwareValidationEnabled()) {
+			List<ICompilationUnit> toValidate = new ArrayList<>();
+			long delay = 0;
+			for (ICompilationUnit dependent : dependents) {
+				if (dependent.isWorkingCopy()) {
+					toValidate.add(dependent);
+					if (validationTimer != null) {
+						delay = Math.max(delay, debouncer.getDelay(dependent));
+					}
 				}
 			}
-			uninstallSemanticHighlightings(uri);
-		} catch (CoreException e) {
-			JavaLanguageServerPlugin.logException("Error while handling document close. URI: " + uri, e);
+			try {
+				triggerValidation(toValidate, delay);
+			} catch (JavaModelException e) {
+				JavaLanguageServerPlugin.logException("Error while validating the dependents of closed documents", e);
+			}
 		}
 	}
 
@@ -538,7 +829,7 @@ public class DocumentLifeCycleHandler {
 		return unit;
 	}
 
-	protected void installSemanticHighlightings(ICompilationUnit unit) throws JavaModelException, BadPositionCategoryException {
+	protected void installSemanticHighlightings(ICompilationUnit unit) throws JavaModelException {
 		this.semanticHighlightingService.install(unit);
 	}
 
@@ -546,8 +837,8 @@ public class DocumentLifeCycleHandler {
 		this.semanticHighlightingService.uninstall(uri);
 	}
 
-	protected void updateSemanticHighlightings(VersionedTextDocumentIdentifier textDocument, List<HighlightedPositionDiffContext> diffContexts) throws BadLocationException, BadPositionCategoryException, JavaModelException {
-		this.semanticHighlightingService.update(textDocument, diffContexts);
+	protected void updateSemanticHighlightings(ICompilationUnit unit, IDocument state, CompilationUnit astRoot) throws BadLocationException {
+		this.semanticHighlightingService.update(unit, state, astRoot);
 	}
 
 }
@@ -49,6 +49,7 @@ import org.eclipse.jdt.ls.core.internal.JobHelpers;
 import org.eclipse.jdt.ls.core.internal.LanguageServerWorkingCopyOwner;
 import org.eclipse.jdt.ls.core.internal.ServiceStatus;
 import org.eclipse.jdt.ls.core.internal.codemanipulation.GenerateGetterSetterOperation.AccessorField;
+import org.eclipse.jdt.ls.core.internal.contentassist.SnippetCompletionProposal;
 import org.eclipse.jdt.ls.core.internal.handlers.GenerateAccessorsHandler.GenerateAccessorsParams;
 import org.eclipse.jdt.ls.core.internal.handlers.GenerateConstructorsHandler.CheckConstructorsResponse;
 import org.eclipse.jdt.ls.core.internal.handlers.GenerateConstructorsHandler.GenerateConstructorsParams;
@@ -62,10 +63,17 @@ import org.eclipse.jdt.ls.core.internal.handlers.HashCodeEqualsHandler.CheckHash
 import org.eclipse.jdt.ls.core.internal.handlers.HashCodeEqualsHandler.GenerateHashCodeEqualsParams;
 import org.eclipse.jdt.ls.core.internal.handlers.OverrideMethodsHandler.AddOverridableMethodParams;
 import org.eclipse.jdt.ls.core.internal.handlers.OverrideMethodsHandler.OverridableMethodsResponse;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokens;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDelta;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDeltaParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensRangeParams;
 import org.eclipse.jdt.ls.core.internal.lsp.JavaProtocolExtensions;
+import org.eclipse.jdt.ls.core.internal.lsp.SemanticTokensProtocolExtensions;
 import org.eclipse.jdt.ls.core.internal.managers.ContentProviderManager;
 import org.eclipse.jdt.ls.core.internal.managers.FormatterManager;
 import org.eclipse.jdt.ls.core.internal.managers.ProjectsManager;
+import org.eclipse.jdt.ls.core.internal.preferences.IPreferencesChangeListener;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
 import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
 import org.eclipse.lsp4j.CodeAction;
@@ -133,7 +141,7 @@ import org.eclipse.lsp4j.services.WorkspaceService;
  * @author Gorkem Ercan
  *
  */
-public class JDTLanguageServer implements LanguageServer, TextDocumentService, WorkspaceService, JavaProtocolExtensions {
+public class JDTLanguageServer implements LanguageServer, TextDocumentService, WorkspaceService, JavaProtocolExtensions, SemanticTokensProtocolExtensions {
 
 	public static final String JAVA_LSP_JOIN_ON_COMPLETION = "java.lsp.joinOnCompletion";
 	/**
@@ -148,6 +156,8 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 	private WorkspaceDiagnosticsHandler workspaceDiagnosticsHandler;
 	private JVMConfigurator jvmConfigurator;
 	private WorkspaceExecuteCommandHandler commandHandler;
+	private SemanticTokensHandler semanticTokensHandler = new SemanticTokensHandler();
+	private CompletionHandler completionHandler = new CompletionHandler();
 
 	private Set<String> registeredCapabilities = new HashSet<>(3);
 
@@ -169,6 +179,16 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 		this.commandHandler = commandHandler;
 	}
 
+	private final IPreferencesChangeListener notificationsConfigurator = (oldPreferences, newPreferences) -> {
+		JavaClientConnection connection = this.client;
+		if (connection != null) {
+			connection.setNotificationsFlushInterval(newPreferences.getNotificationsFlushInterval());
+		}
+	};
+
+	// the code generation preferences are not tracked one by one, any change drops the evaluated snippets
+	private final IPreferencesChangeListener snippetsInvalidator = (oldPreferences, newPreferences) -> SnippetCompletionProposal.clearCache();
+
 	public void connectClient(JavaLanguageClient client) {
 		this.client = new JavaClientConnection(client);
 		progressReporterManager = new ProgressReporterManager(client, preferenceManager);
@@ -177,11 +197,17 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 		pm.setConnection(client);
 		WorkingCopyOwner.setPrimaryBufferProvider(this.workingCopyOwner);
 		this.documentLifeCycleHandler = new DocumentLifeCycleHandler(this.client, preferenceManager, pm, true);
+		this.documentLifeCycleHandler.setSemanticTokensHandler(semanticTokensHandler);
+		this.documentLifeCycleHandler.setCompletionHandler(completionHandler);
+		preferenceManager.addPreferencesChangeListener(notificationsConfigurator);
+		preferenceManager.addPreferencesChangeListener(snippetsInvalidator);
 	}
 
 	//For testing purposes
 	public void disconnectClient() {
 		Job.getJobManager().setProgressProvider(null);
+		preferenceManager.removePreferencesChangeListener(notificationsConfigurator);
+		preferenceManager.removePreferencesChangeListener(snippetsInvalidator);
 		this.client.disconnect();
 	}
 
@@ -254,6 +280,9 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 		if (preferenceManager.getClientPreferences().isSelectionRangeDynamicRegistered()) {
 			registerCapability(Preferences.SELECTION_RANGE_ID, Preferences.SELECTION_RANGE);
 		}
+		if (preferenceManager.getClientPreferences().isSemanticTokensSupported()) {
+			registerCapability(Preferences.SEMANTIC_TOKENS_ID, Preferences.SEMANTIC_TOKENS, SemanticTokensHandler.createOptions());
+		}
 		// we do not have the user setting initialized yet at this point but we should
 		// still call to enable defaults in case client does not support configuration changes
 		syncCapabilitiesToSettings();
@@ -473,7 +502,7 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 	@Override
 	public CompletableFuture<Either<List<CompletionItem>, CompletionList>> completion(CompletionParams position) {
 		logInfo(">> document/completion");
-		CompletionHandler handler = new CompletionHandler();
+		CompletionHandler handler = completionHandler;
 		final IProgressMonitor[] monitors = new IProgressMonitor[1];
 		CompletableFuture<Either<List<CompletionItem>, CompletionList>> result = computeAsync((monitor) -> {
 			monitors[0] = monitor;
@@ -798,6 +827,33 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 		});
 	}
 
+	@Override
+	public CompletableFuture<SemanticTokens> semanticTokensFull(SemanticTokensParams params) {
+		logInfo(">> document/semanticTokens/full");
+		return computeAsync((monitor) -> {
+			waitForLifecycleJobs(monitor);
+			return semanticTokensHandler.full(params, monitor);
+		});
+	}
+
+	@Override
+	public CompletableFuture<Either<SemanticTokens, SemanticTokensDelta>> semanticTokensFullDelta(SemanticTokensDeltaParams params) {
+		logInfo(">> document/semanticTokens/full/delta");
+		return computeAsync((monitor) -> {
+			waitForLifecycleJobs(monitor);
+			return semanticTokensHandler.delta(params, monitor);
+		});
+	}
+
+	@Override
+	public CompletableFuture<SemanticTokens> semanticTokensRange(SemanticTokensRangeParams params) {
+		logInfo(">> document/semanticTokens/range");
+		return computeAsync((monitor) -> {
+			waitForLifecycleJobs(monitor);
+			return semanticTokensHandler.range(params, monitor);
+		});
+	}
+
 	@Override
 	public CompletableFuture<OverridableMethodsResponse> listOverridableMethods(CodeActionParams params) {
 		logInfo(">> java/listOverridableMethods");
@@ -913,16 +969,30 @@ public class JDTLanguageServer implements LanguageServer, TextDocumentService, W
 	}
 
 	private <R> CompletableFuture<R> computeAsync(Function<IProgressMonitor, R> code) {
-		return CompletableFutures.computeAsync(cc -> code.apply(toMonitor(cc)));
+		return CompletableFutures.computeAsync(cc -> {
+			handlePendingOpensAndCloses();
+			return code.apply(toMonitor(cc));
+		});
 	}
 
 	private <R> CompletableFuture<R> computeAsyncWithClientProgress(Function<IProgressMonitor, R> code) {
 		return CompletableFutures.computeAsync((cc) -> {
+			handlePendingOpensAndCloses();
 			IProgressMonitor monitor = progressReporterManager.getProgressReporter(cc);
 			return code.apply(monitor);
 		});
 	}
 
+	/**
+	 * The documents are opened and closed in batches, the requests are handled
+	 * once the documents opened or closed before them are.
+	 */
+	private void handlePendingOpensAndCloses() {
+		if (documentLifeCycleHandler != null) {
+			documentLifeCycleHandler.handlePendingOpensAndCloses();
+		}
+	}
+
 	private IProgressMonitor toMonitor(CancelChecker checker) {
 		return new CancellableProgressMonitor(checker);
 	}
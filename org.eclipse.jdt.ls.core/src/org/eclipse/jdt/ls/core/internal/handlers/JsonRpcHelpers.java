@@ -20,7 +20,10 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+import org.eclipse.jdt.ls.core.internal.Rope;
+import org.eclipse.jdt.ls.core.internal.RopeDocument;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 
 final public class JsonRpcHelpers {
@@ -30,7 +33,8 @@ final public class JsonRpcHelpers {
 	}
 
 	/**
-	 * Convert line, column to a document offset.
+	 * Convert line, column to a document offset, using the cached
+	 * {@link LineOffsetIndex} of the buffer.
 	 * @param buffer
 	 * @param line
 	 * @param column
@@ -38,7 +42,11 @@ final public class JsonRpcHelpers {
 	 */
 	public static int toOffset(IBuffer buffer, int line, int column){
 		if (buffer != null) {
-			return toOffset(toDocument(buffer), line, column);
+			int offset = LineOffsetIndex.get(buffer).toOffset(line, column);
+			if (offset < 0) {
+				JavaLanguageServerPlugin.logError("Invalid line: " + line);
+			}
+			return offset;
 		}
 		return -1;
 	}
@@ -61,14 +69,22 @@ final public class JsonRpcHelpers {
 	}
 
 	/**
-	 * Convert offset to line number and column.
+	 * Convert offset to line number and column, using the cached
+	 * {@link LineOffsetIndex} of the buffer.
 	 * @param buffer
 	 * @param line
 	 * @param column
 	 * @return
 	 */
 	public static int[] toLine(IBuffer buffer, int offset){
-		return toLine(toDocument(buffer), offset);
+		if (buffer == null) {
+			return null;
+		}
+		int[] result = LineOffsetIndex.get(buffer).toLine(offset);
+		if (result == null) {
+			JavaLanguageServerPlugin.logError("Invalid offset: " + offset);
+		}
+		return result;
 	}
 
 	/**
@@ -113,6 +129,30 @@ final public class JsonRpcHelpers {
 	}
 
 
+	/**
+	 * Returns a document with a copy of the contents of the given buffer, which
+	 * is not affected by the later changes of the buffer. The contents of
+	 * {@link org.eclipse.jdt.ls.core.internal.DocumentAdapter}s are only
+	 * copied for their first snapshot, the document is backed by that snapshot
+	 * as updated by the later changes.
+	 *
+	 * @param buffer a buffer
+	 * @return a document with the same contents as the buffer or <code>null</code> is the buffer is <code>null</code>
+	 */
+	public static IDocument toDocumentSnapshot(IBuffer buffer) {
+		if (buffer == null) {
+			return null;
+		}
+		if (buffer instanceof org.eclipse.jdt.ls.core.internal.DocumentAdapter) {
+			Rope snapshot = ((org.eclipse.jdt.ls.core.internal.DocumentAdapter) buffer).getSnapshot();
+			if (snapshot != null) {
+				return new RopeDocument(snapshot);
+			}
+		}
+		String contents = buffer.getContents();
+		return new Document(contents == null ? "" : contents);
+	}
+
 	/**
 	 * Returns an {@link IDocument} for the given {@link IFile}.
 	 *
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.ls.core.internal.DocumentAdapter;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+/**
+ * Immutable index of the line start offsets of a text, converting offsets to
+ * line/column pairs and back with a binary search.
+ *
+ * Indexes of {@link IBuffer}s are cached until the buffer is modified: the
+ * modification stamp of the underlying document is used when there is one,
+ * the identity of the buffer contents otherwise.
+ */
+public final class LineOffsetIndex {
+
+	private static final Map<IBuffer, LineOffsetIndex> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final int[] lineStarts;
+	private final int length;
+	private final long modificationStamp;
+	private final char[] contents;
+
+	private LineOffsetIndex(int[] lineStarts, int length, long modificationStamp, char[] contents) {
+		this.lineStarts = lineStarts;
+		this.length = length;
+		this.modificationStamp = modificationStamp;
+		this.contents = contents;
+	}
+
+	/**
+	 * Returns the index of the given buffer, computing it if the buffer
+	 * changed since the last call.
+	 *
+	 * @param buffer
+	 *            a buffer, not <code>null</code>
+	 */
+	public static LineOffsetIndex get(IBuffer buffer) {
+		IDocument document = getDocument(buffer);
+		if (document != null) {
+			long stamp = getModificationStamp(document);
+			if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+				return create(document.get());
+			}
+			LineOffsetIndex index = CACHE.get(buffer);
+			if (index != null && index.contents == null && index.modificationStamp == stamp) {
+				return index;
+			}
+			index = create(document.get(), stamp, null);
+			// don't cache an index of contents modified while it was computed
+			if (getModificationStamp(document) == stamp) {
+				CACHE.put(buffer, index);
+			}
+			return index;
+		}
+		char[] contents = buffer.getCharacters();
+		if (contents == null) {
+			return create("");
+		}
+		LineOffsetIndex index = CACHE.get(buffer);
+		if (index != null && index.contents == contents) {
+			return index;
+		}
+		index = create(CharBuffer.wrap(contents), IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP, contents);
+		CACHE.put(buffer, index);
+		return index;
+	}
+
+	/**
+	 * Computes the index of the given text, without caching it.
+	 */
+	public static LineOffsetIndex create(CharSequence text) {
+		return create(text, IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP, null);
+	}
+
+	private static LineOffsetIndex create(CharSequence text, long modificationStamp, char[] contents) {
+		int length = text.length();
+		int[] lineStarts = new int[16];
+		int lines = 1;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+				i++;
+			} else if (c != '\r' && c != '\n') {
+				continue;
+			}
+			if (lines == lineStarts.length) {
+				lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+			}
+			lineStarts[lines++] = i + 1;
+		}
+		return new LineOffsetIndex(Arrays.copyOf(lineStarts, lines), length, modificationStamp, contents);
+	}
+
+	private static long getModificationStamp(IDocument document) {
+		return document instanceof IDocumentExtension4 ? ((IDocumentExtension4) document).getModificationStamp() : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private static IDocument getDocument(IBuffer buffer) {
+		if (buffer instanceof IDocument) {
+			return (IDocument) buffer;
+		} else if (buffer instanceof DocumentAdapter) {
+			return ((DocumentAdapter) buffer).getDocument();
+		}
+		return null;
+	}
+
+	public int getNumberOfLines() {
+		return lineStarts.length;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the line of the given offset, or <code>-1</code> if it is out of
+	 * the text.
+	 */
+	public int getLineOfOffset(int offset) {
+		if (offset < 0 || offset > length) {
+			return -1;
+		}
+		int line = Arrays.binarySearch(lineStarts, offset);
+		return line >= 0 ? line : -line - 2;
+	}
+
+	/**
+	 * Returns the offset of the first character of the given line, or
+	 * <code>-1</code> if there is no such line.
+	 */
+	public int getLineOffset(int line) {
+		if (line < 0 || line >= lineStarts.length) {
+			return -1;
+		}
+		return lineStarts[line];
+	}
+
+	/**
+	 * Converts a line and column to an offset.
+	 *
+	 * @return the offset, or <code>-1</code> if the line does not exist
+	 */
+	public int toOffset(int line, int column) {
+		int lineOffset = getLineOffset(line);
+		return lineOffset < 0 ? -1 : lineOffset + column;
+	}
+
+	/**
+	 * Converts an offset to a line and column.
+	 *
+	 * @return a <code>{line, column}</code> pair, or <code>null</code> if the
+	 *         offset is out of the text
+	 */
+	public int[] toLine(int offset) {
+		int line = getLineOfOffset(offset);
+		return line < 0 ? null : new int[] { line, offset - lineStarts[line] };
+	}
+
+	/**
+	 * Converts many offsets to lines and columns at once. The offsets are
+	 * sorted once, then the line table is walked in a single pass.
+	 *
+	 * @param offsets
+	 *            the offsets to convert, in any order
+	 * @return an array where the line and column of <code>offsets[i]</code>
+	 *         are stored at <code>2 * i</code> and <code>2 * i + 1</code>,
+	 *         both set to <code>-1</code> if the offset is out of the text
+	 */
+	public int[] toLines(int[] offsets) {
+		int count = offsets.length;
+		// sort the offsets along with their original position
+		long[] sorted = new long[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = ((long) offsets[i] << 32) | i;
+		}
+		Arrays.sort(sorted);
+		int[] result = new int[count * 2];
+		int line = 0;
+		for (long entry : sorted) {
+			int offset = (int) (entry >> 32);
+			int index = (int) entry;
+			if (offset < 0 || offset > length) {
+				result[2 * index] = -1;
+				result[2 * index + 1] = -1;
+				continue;
+			}
+			while (line + 1 < lineStarts.length && lineStarts[line + 1] <= offset) {
+				line++;
+			}
+			result[2 * index] = line;
+			result[2 * index + 1] = offset - lineStarts[line];
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+
+/**
+ * Runs an operation over a set of compilation units, one job per project.
+ * Jobs use their project as scheduling rule, so they are serialized with the
+ * builds and the other changes of the project, while the units of independent
+ * projects are processed at the same time, in a job group using at most as
+ * many threads as there are available cores.
+ *
+ * A unit which is being processed can be canceled individually, when a newer
+ * edit makes the ongoing operation obsolete.
+ */
+public class ReconcileScheduler {
+
+	@FunctionalInterface
+	public interface ReconcileOperation {
+		void reconcile(ICompilationUnit unit, IProgressMonitor monitor) throws CoreException;
+	}
+
+	static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	private final String name;
+	private final Map<ICompilationUnit, IProgressMonitor> unitMonitors = new ConcurrentHashMap<>();
+
+	public ReconcileScheduler(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Runs the operation on the given units and waits for its completion.
+	 *
+	 * @param units
+	 *            the units to process
+	 * @param operation
+	 *            the operation to run on each unit
+	 * @param family
+	 *            the family the scheduled jobs belong to
+	 * @param monitor
+	 *            the progress monitor, canceling it cancels the operation on
+	 *            the units which are not processed yet
+	 * @return {@link Status#CANCEL_STATUS} if the monitor was canceled,
+	 *         {@link Status#OK_STATUS} otherwise
+	 */
+	public IStatus reconcile(Collection<ICompilationUnit> units, ReconcileOperation operation, Object family, IProgressMonitor monitor) {
+		if (units.isEmpty()) {
+			return Status.OK_STATUS;
+		}
+		Map<ISchedulingRule, List<ICompilationUnit>> unitsByProject = groupByProject(units);
+		Map<ICompilationUnit, IProgressMonitor> monitors = new LinkedHashMap<>();
+		JobGroup group = new ReconcileJobGroup(name, Math.min(MAX_THREADS, unitsByProject.size()), unitsByProject.size());
+		for (Entry<ISchedulingRule, List<ICompilationUnit>> entry : unitsByProject.entrySet()) {
+			Map<ICompilationUnit, IProgressMonitor> projectMonitors = new LinkedHashMap<>();
+			for (ICompilationUnit unit : entry.getValue()) {
+				IProgressMonitor unitMonitor = new NullProgressMonitor();
+				IProgressMonitor previous = unitMonitors.put(unit, unitMonitor);
+				if (previous != null) {
+					previous.setCanceled(true);
+				}
+				projectMonitors.put(unit, unitMonitor);
+			}
+			monitors.putAll(projectMonitors);
+			Job job = new ReconcileJob(projectMonitors, operation, family);
+			job.setRule(entry.getKey());
+			job.setJobGroup(group);
+			job.setSystem(true);
+			job.schedule();
+		}
+		try {
+			group.join(0, monitor);
+		} catch (InterruptedException | OperationCanceledException e) {
+			// the results of the units still being processed are obsolete
+			for (Entry<ICompilationUnit, IProgressMonitor> entry : monitors.entrySet()) {
+				entry.getValue().setCanceled(true);
+				unitMonitors.remove(entry.getKey(), entry.getValue());
+			}
+			group.cancel();
+			return Status.CANCEL_STATUS;
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Cancels the pending or running operation on the given unit, if any.
+	 */
+	public void cancel(ICompilationUnit unit) {
+		IProgressMonitor monitor = unitMonitors.remove(unit);
+		if (monitor != null) {
+			monitor.setCanceled(true);
+		}
+	}
+
+	private static Map<ISchedulingRule, List<ICompilationUnit>> groupByProject(Collection<ICompilationUnit> units) {
+		Map<ISchedulingRule, List<ICompilationUnit>> result = new LinkedHashMap<>();
+		for (ICompilationUnit unit : units) {
+			IJavaProject javaProject = unit.getJavaProject();
+			IProject project = javaProject == null ? null : javaProject.getProject();
+			ISchedulingRule rule = project == null ? ResourcesPlugin.getWorkspace().getRoot() : project;
+			result.computeIfAbsent(rule, r -> new ArrayList<>()).add(unit);
+		}
+		return result;
+	}
+
+	private static class ReconcileJobGroup extends JobGroup {
+
+		public ReconcileJobGroup(String name, int maxThreads, int seedJobsCount) {
+			super(name, maxThreads, seedJobsCount);
+		}
+
+		// A canceled or failed project must not prevent the other projects from being processed.
+		@Override
+		protected boolean shouldCancel(IStatus lastCompletedJobResult, int numberOfFailedJobs, int numberOfCanceledJobs) {
+			return false;
+		}
+	}
+
+	private class ReconcileJob extends Job {
+
+		private final Map<ICompilationUnit, IProgressMonitor> monitors;
+		private final ReconcileOperation operation;
+		private final Object family;
+
+		public ReconcileJob(Map<ICompilationUnit, IProgressMonitor> monitors, ReconcileOperation operation, Object family) {
+			super(name);
+			this.monitors = monitors;
+			this.operation = operation;
+			this.family = family;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				for (Entry<ICompilationUnit, IProgressMonitor> entry : monitors.entrySet()) {
+					ICompilationUnit unit = entry.getKey();
+					IProgressMonitor unitMonitor = entry.getValue();
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+					if (unitMonitor.isCanceled()) {
+						continue;
+					}
+					try {
+						operation.reconcile(unit, unitMonitor);
+					} catch (OperationCanceledException e) {
+						// a newer edit superseded this one
+					} catch (CoreException e) {
+						JavaLanguageServerPlugin.logException("Error while reconciling " + unit.getElementName(), e);
+					}
+				}
+				return Status.OK_STATUS;
+			} finally {
+				for (Entry<ICompilationUnit, IProgressMonitor> entry : monitors.entrySet()) {
+					unitMonitors.remove(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.runtime.jobs.Job#canceling()
+		 */
+		@Override
+		protected void canceling() {
+			// the operation only checks the monitors of the units
+			for (IProgressMonitor unitMonitor : monitors.values()) {
+				unitMonitor.setCanceled(true);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+		 */
+		@Override
+		public boolean belongsTo(Object family) {
+			return this.family != null && this.family.equals(family);
+		}
+	}
+
+}
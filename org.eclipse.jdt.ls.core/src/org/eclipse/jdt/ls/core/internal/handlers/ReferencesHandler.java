@@ -11,7 +11,10 @@
 package org.eclipse.jdt.ls.core.internal.handlers;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -20,6 +23,7 @@ import org.eclipse.jdt.core.IClassFile;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IOpenable;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
@@ -31,8 +35,10 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+import org.eclipse.jdt.ls.core.internal.ResourceUtils;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
 import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.ReferenceParams;
 
 public final class ReferencesHandler {
@@ -55,6 +61,8 @@ public final class ReferencesHandler {
 	public List<Location> findReferences(ReferenceParams param, IProgressMonitor monitor) {
 
 		final List<Location> locations = new ArrayList<>();
+		final List<IOpenable> matchFiles = new ArrayList<>();
+		final List<SearchMatch> matches = new ArrayList<>();
 		try {
 			IJavaElement elementToSearch = JDTUtils.findElementAtSelection(JDTUtils.resolveTypeRoot(param.getTextDocument().getUri()), param.getPosition().getLine(), param.getPosition().getCharacter(), this.preferenceManager, monitor);
 
@@ -74,21 +82,23 @@ public final class ReferencesHandler {
 					if (o instanceof IJavaElement) {
 						IJavaElement element = (IJavaElement) o;
 						ICompilationUnit compilationUnit = (ICompilationUnit) element.getAncestor(IJavaElement.COMPILATION_UNIT);
-						Location location = null;
+						IOpenable file = null;
 						if (compilationUnit != null) {
-							location = JDTUtils.toLocation(compilationUnit, match.getOffset(), match.getLength());
+							file = compilationUnit;
 						} else if (includeClassFiles) {
 							IClassFile cf = (IClassFile) element.getAncestor(IJavaElement.CLASS_FILE);
 							if (cf != null && cf.getSourceRange() != null) {
-								location = JDTUtils.toLocation(cf, match.getOffset(), match.getLength());
+								file = cf;
 							}
 						}
-						if (location != null) {
-							locations.add(location);
+						if (file != null) {
+							matchFiles.add(file);
+							matches.add(match);
 						}
 					}
 				}
 			}, monitor);
+			locations.addAll(toLocations(matchFiles, matches));
 
 		} catch (CoreException e) {
 			JavaLanguageServerPlugin.logException("Find references failure ", e);
@@ -96,4 +106,42 @@ public final class ReferencesHandler {
 		return locations;
 	}
 
+	/**
+	 * Converts the matches to locations, converting all the matches of a file
+	 * in a single pass over its lines. The order of the matches is preserved.
+	 */
+	private static List<Location> toLocations(List<IOpenable> matchFiles, List<SearchMatch> matches) throws JavaModelException {
+		Map<IOpenable, List<Integer>> indexesByFile = new LinkedHashMap<>();
+		for (int i = 0; i < matchFiles.size(); i++) {
+			indexesByFile.computeIfAbsent(matchFiles.get(i), f -> new ArrayList<>()).add(i);
+		}
+		Location[] locations = new Location[matches.size()];
+		for (Entry<IOpenable, List<Integer>> entry : indexesByFile.entrySet()) {
+			IOpenable file = entry.getKey();
+			String uri = file instanceof ICompilationUnit ? ResourceUtils.toClientUri(JDTUtils.toURI((ICompilationUnit) file)) : JDTUtils.toUri((IClassFile) file);
+			if (uri == null) {
+				continue;
+			}
+			List<Integer> indexes = entry.getValue();
+			int[] offsets = new int[indexes.size()];
+			int[] lengths = new int[indexes.size()];
+			for (int i = 0; i < offsets.length; i++) {
+				SearchMatch match = matches.get(indexes.get(i));
+				offsets[i] = match.getOffset();
+				lengths[i] = match.getLength();
+			}
+			Range[] ranges = JDTUtils.toRanges(file, offsets, lengths);
+			for (int i = 0; i < ranges.length; i++) {
+				locations[indexes.get(i)] = new Location(uri, ranges[i]);
+			}
+		}
+		List<Location> result = new ArrayList<>(locations.length);
+		for (Location location : locations) {
+			if (location != null) {
+				result.add(location);
+			}
+		}
+		return result;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
+import org.eclipse.jdt.ls.core.internal.JDTUtils;
+import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+import org.eclipse.jdt.ls.core.internal.RopeDocument;
+import org.eclipse.jdt.ls.core.internal.highlighting.HighlightedPositions;
+import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingLS;
+import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingReconciler;
+import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightings;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+/**
+ * Computes the semantic tokens of compilation units for the
+ * <code>textDocument/semanticTokens</code> requests.
+ * <p>
+ * The tokens are the positions classified by {@link SemanticHighlightings},
+ * encoded as relative integers: five per token, the line delta, the character
+ * delta (relative to the previous token on the same line), the length, the
+ * token type and the token modifiers. The token type is the index of the
+ * highlighting, see {@link #getTokenTypes()}.
+ * <p>
+ * The last tokens sent for each document are held with their result id, so
+ * <code>full/delta</code> requests are answered with the changed range of the
+ * tokens only.
+ */
+public class SemanticTokensHandler {
+
+	private static final int TOKEN_SIZE = 5;
+
+	private final ConcurrentMap<String, SemanticTokensResult> results = new ConcurrentHashMap<>();
+	private final AtomicLong resultIds = new AtomicLong();
+
+	public static SemanticTokensOptions createOptions() {
+		SemanticTokensOptions options = new SemanticTokensOptions();
+		options.legend = new SemanticTokensLegend();
+		options.legend.tokenTypes = getTokenTypes();
+		options.legend.tokenModifiers = Collections.emptyList();
+		options.range = true;
+		options.full = new SemanticTokensFullOptions();
+		options.full.delta = true;
+		return options;
+	}
+
+	/**
+	 * Returns with the names of the token types, in the order of
+	 * {@link SemanticHighlightings#getSemanticHighlightings()}, derived from
+	 * the names of the highlightings. For example, <code>staticFinalField</code>
+	 * for the static final field highlighting.
+	 */
+	public static List<String> getTokenTypes() {
+		List<String> tokenTypes = new ArrayList<>();
+		for (SemanticHighlightingLS highlighting : SemanticHighlightings.getSemanticHighlightings()) {
+			String name = highlighting.getClass().getSimpleName();
+			if (name.endsWith("Highlighting")) {
+				name = name.substring(0, name.length() - "Highlighting".length());
+			}
+			tokenTypes.add(Character.toLowerCase(name.charAt(0)) + name.substring(1));
+		}
+		return tokenTypes;
+	}
+
+	public SemanticTokens full(SemanticTokensParams params, IProgressMonitor monitor) {
+		String uri = params.textDocument.getUri();
+		SemanticTokensResult result = compute(uri, null, monitor);
+		if (result == null) {
+			return new SemanticTokens(null, new int[0]);
+		}
+		return new SemanticTokens(result.resultId, result.data);
+	}
+
+	/**
+	 * Returns with the edits of the tokens sent with the previous result id, or
+	 * with all the tokens if that result is not held anymore.
+	 */
+	public Either<SemanticTokens, SemanticTokensDelta> delta(SemanticTokensDeltaParams params, IProgressMonitor monitor) {
+		String uri = params.textDocument.getUri();
+		SemanticTokensResult previous = results.get(uri);
+		if (previous == null || !previous.resultId.equals(params.previousResultId)) {
+			return Either.forLeft(full(new SemanticTokensParams(params.textDocument), monitor));
+		}
+		SemanticTokensResult result = compute(uri, previous, monitor);
+		if (result == null) {
+			return Either.forLeft(new SemanticTokens(null, new int[0]));
+		}
+		List<SemanticTokensEdit> edits = new ArrayList<>(1);
+		SemanticTokensEdit edit = diff(previous.data, result.data);
+		if (edit != null) {
+			edits.add(edit);
+		}
+		return Either.forRight(new SemanticTokensDelta(result.resultId, edits));
+	}
+
+	/**
+	 * Returns with the tokens in the range. Only the smallest AST node covering
+	 * the range is classified, and the tokens are not held for deltas.
+	 */
+	public SemanticTokens range(SemanticTokensRangeParams params, IProgressMonitor monitor) {
+		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(params.textDocument.getUri());
+		if (unit == null) {
+			return new SemanticTokens(null, new int[0]);
+		}
+		CompilationUnit ast = CoreASTProvider.getInstance().getAST(unit, CoreASTProvider.WAIT_YES, monitor);
+		if (ast == null || monitor.isCanceled()) {
+			return new SemanticTokens(null, new int[0]);
+		}
+		int start = Math.max(toOffset(ast, params.range.getStart()), 0);
+		int end = toOffset(ast, params.range.getEnd());
+		if (end < 0) {
+			end = ast.getStartPosition() + ast.getLength();
+		}
+		if (end <= start) {
+			return new SemanticTokens(null, new int[0]);
+		}
+		ASTNode node = new NodeFinder(ast, start, end - start).getCoveringNode();
+		HighlightedPositions positions = new SemanticHighlightingReconciler().collectPositions(node == null ? ast : node);
+		return new SemanticTokens(null, encode(ast, positions, positions.indexOf(start), positions.indexOf(end)));
+	}
+
+	/**
+	 * Forgets the tokens held for the document.
+	 */
+	public void forget(String uri) {
+		results.remove(uri);
+	}
+
+	/**
+	 * Computes and holds the tokens of the document. The tokens of the given
+	 * previous result are reused, with a new result id, if the document has not
+	 * changed since.
+	 */
+	private SemanticTokensResult compute(String uri, SemanticTokensResult previous, IProgressMonitor monitor) {
+		ICompilationUnit unit = JDTUtils.resolveCompilationUnit(uri);
+		if (unit == null) {
+			return null;
+		}
+		Object snapshot = getSnapshot(unit);
+		if (previous != null && snapshot != null && previous.snapshot == snapshot) {
+			SemanticTokensResult result = new SemanticTokensResult(nextResultId(), snapshot, previous.data);
+			results.put(uri, result);
+			return result;
+		}
+		CompilationUnit ast = CoreASTProvider.getInstance().getAST(unit, CoreASTProvider.WAIT_YES, monitor);
+		if (ast == null || monitor.isCanceled()) {
+			return null;
+		}
+		HighlightedPositions positions = new SemanticHighlightingReconciler().collectPositions(ast);
+		int[] data = encode(ast, positions, 0, positions.size());
+		// the AST might be newer than the snapshot, then the tokens are not reused
+		SemanticTokensResult result = new SemanticTokensResult(nextResultId(), snapshot == getSnapshot(unit) ? snapshot : null, data);
+		results.put(uri, result);
+		return result;
+	}
+
+	private String nextResultId() {
+		return Long.toString(resultIds.incrementAndGet());
+	}
+
+	/**
+	 * Returns with the immutable snapshot of the buffer of the unit, which is
+	 * replaced on every change, or <code>null</code> if the buffer has none.
+	 */
+	private static Object getSnapshot(ICompilationUnit unit) {
+		try {
+			IDocument document = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+			return document instanceof RopeDocument ? ((RopeDocument) document).getRope() : null;
+		} catch (JavaModelException e) {
+			JavaLanguageServerPlugin.logException(e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private static int toOffset(CompilationUnit ast, Position position) {
+		return ast.getPosition(position.getLine() + 1, position.getCharacter());
+	}
+
+	/**
+	 * Encodes the positions in the range <code>[from, to)</code> as relative
+	 * tokens. Of the positions starting at the same offset, only the first one
+	 * is encoded, since tokens must not overlap.
+	 */
+	static int[] encode(CompilationUnit ast, HighlightedPositions positions, int from, int to) {
+		int[] data = new int[(to - from) * TOKEN_SIZE];
+		int size = 0;
+		int previousLine = 0;
+		int previousColumn = 0;
+		for (int i = from; i < to; i++) {
+			int offset = positions.getOffset(i);
+			int line = ast.getLineNumber(offset) - 1;
+			int column = ast.getColumnNumber(offset);
+			if (line < 0 || column < 0 || (size > 0 && line == previousLine && column == previousColumn)) {
+				continue;
+			}
+			data[size++] = line - previousLine;
+			data[size++] = line == previousLine ? column - previousColumn : column;
+			data[size++] = positions.getLength(i);
+			data[size++] = positions.getScope(i);
+			data[size++] = 0;
+			previousLine = line;
+			previousColumn = column;
+		}
+		return size == data.length ? data : Arrays.copyOf(data, size);
+	}
+
+	/**
+	 * Returns with the single edit replacing the range between the common
+	 * prefix and suffix of the tokens, or <code>null</code> if they are equal.
+	 */
+	static SemanticTokensEdit diff(int[] previous, int[] current) {
+		int max = Math.min(previous.length, current.length);
+		int prefix = 0;
+		while (prefix < max && previous[prefix] == current[prefix]) {
+			prefix++;
+		}
+		if (prefix == previous.length && prefix == current.length) {
+			return null;
+		}
+		int suffix = 0;
+		while (suffix < max - prefix && previous[previous.length - 1 - suffix] == current[current.length - 1 - suffix]) {
+			suffix++;
+		}
+		return new SemanticTokensEdit(prefix, previous.length - prefix - suffix, Arrays.copyOfRange(current, prefix, current.length - suffix));
+	}
+
+	private static final class SemanticTokensResult {
+
+		private final String resultId;
+		private final Object snapshot;
+		private final int[] data;
+
+		private SemanticTokensResult(String resultId, Object snapshot, int[] data) {
+			this.resultId = resultId;
+			this.snapshot = snapshot;
+			this.data = data;
+		}
+	}
+
+	public static class SemanticTokensLegend {
+		public List<String> tokenTypes;
+		public List<String> tokenModifiers;
+	}
+
+	public static class SemanticTokensFullOptions {
+		public boolean delta;
+	}
+
+	public static class SemanticTokensOptions {
+		public SemanticTokensLegend legend;
+		public boolean range;
+		public SemanticTokensFullOptions full;
+	}
+
+	public static class SemanticTokensParams {
+		public TextDocumentIdentifier textDocument;
+
+		public SemanticTokensParams() {
+		}
+
+		public SemanticTokensParams(TextDocumentIdentifier textDocument) {
+			this.textDocument = textDocument;
+		}
+	}
+
+	public static class SemanticTokensDeltaParams {
+		public TextDocumentIdentifier textDocument;
+		public String previousResultId;
+	}
+
+	public static class SemanticTokensRangeParams {
+		public TextDocumentIdentifier textDocument;
+		public Range range;
+	}
+
+	public static class SemanticTokens {
+		public String resultId;
+		public int[] data;
+
+		public SemanticTokens(String resultId, int[] data) {
+			this.resultId = resultId;
+			this.data = data;
+		}
+	}
+
+	public static class SemanticTokensEdit {
+		public int start;
+		public int deleteCount;
+		public int[] data;
+
+		public SemanticTokensEdit(int start, int deleteCount, int[] data) {
+			this.start = start;
+			this.deleteCount = deleteCount;
+			this.data = data;
+		}
+	}
+
+	public static class SemanticTokensDelta {
+		public String resultId;
+		public List<SemanticTokensEdit> edits;
+
+		public SemanticTokensDelta(String resultId, List<SemanticTokensEdit> edits) {
+			this.resultId = resultId;
+			this.edits = edits;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+
+/**
+ * Computes the delay before validating a document from the measured cost of
+ * its reconciliation and from the pace at which it is being edited.
+ *
+ * While the user types, validation waits a bit longer than the usual gap
+ * between two edits, so it doesn't start in the middle of a burst. Expensive
+ * documents wait at least as long as their average reconcile time, cheap ones
+ * are validated almost immediately.
+ *
+ * The chosen delays are recorded, so their last value and their average can
+ * be reported without logging every keystroke.
+ */
+public class ValidationDebouncer {
+
+	public static final long MIN_DELAY = 50;
+	public static final long DEFAULT_DELAY = 400;
+	public static final long MAX_DELAY = 2000;
+
+	/**
+	 * Edits further apart than this don't belong to the same typing burst.
+	 */
+	private static final long TYPING_PAUSE = 1500;
+
+	/**
+	 * Weight of the latest sample in the moving averages.
+	 */
+	private static final double ALPHA = 0.3;
+
+	private static final double TYPING_FACTOR = 1.5;
+
+	private final Map<ICompilationUnit, Statistics> statistics = new ConcurrentHashMap<>();
+	private volatile long lastDelay = DEFAULT_DELAY;
+	private final LongAdder delayCount = new LongAdder();
+	private final LongAdder delaySum = new LongAdder();
+
+	public void editReceived(ICompilationUnit unit) {
+		editReceived(unit, System.currentTimeMillis());
+	}
+
+	void editReceived(ICompilationUnit unit, long timestamp) {
+		Statistics stats = statistics.computeIfAbsent(unit, u -> new Statistics());
+		synchronized (stats) {
+			if (stats.lastEdit >= 0) {
+				long gap = timestamp - stats.lastEdit;
+				stats.editGap = gap <= TYPING_PAUSE ? average(stats.editGap, gap) : -1;
+			}
+			stats.lastEdit = timestamp;
+		}
+	}
+
+	public void reconcileCompleted(ICompilationUnit unit, long duration) {
+		Statistics stats = statistics.computeIfAbsent(unit, u -> new Statistics());
+		synchronized (stats) {
+			stats.reconcileTime = average(stats.reconcileTime, duration);
+		}
+	}
+
+	/**
+	 * Returns the delay, in milliseconds, before validating the given unit.
+	 */
+	public long getDelay(ICompilationUnit unit) {
+		Statistics stats = statistics.get(unit);
+		if (stats == null) {
+			return record(DEFAULT_DELAY);
+		}
+		double editGap;
+		double reconcileTime;
+		synchronized (stats) {
+			editGap = stats.editGap;
+			reconcileTime = stats.reconcileTime;
+		}
+		double typingDelay = editGap < 0 ? MIN_DELAY : editGap * TYPING_FACTOR;
+		double costDelay = reconcileTime < 0 ? DEFAULT_DELAY : reconcileTime;
+		long delay = Math.round(Math.max(typingDelay, costDelay));
+		delay = Math.max(MIN_DELAY, Math.min(MAX_DELAY, delay));
+		return record(delay);
+	}
+
+	private long record(long delay) {
+		lastDelay = delay;
+		delayCount.increment();
+		delaySum.add(delay);
+		return delay;
+	}
+
+	/**
+	 * Returns the last delay returned by {@link #getDelay(ICompilationUnit)}.
+	 */
+	long getLastDelay() {
+		return lastDelay;
+	}
+
+	/**
+	 * Returns the number of delays returned by
+	 * {@link #getDelay(ICompilationUnit)}.
+	 */
+	public long getDelayCount() {
+		return delayCount.sum();
+	}
+
+	/**
+	 * Returns the average of the delays returned by
+	 * {@link #getDelay(ICompilationUnit)}, or {@link #DEFAULT_DELAY} if none
+	 * was.
+	 */
+	public long getAverageDelay() {
+		long count = delayCount.sum();
+		return count == 0 ? DEFAULT_DELAY : Math.round((double) delaySum.sum() / count);
+	}
+
+	/**
+	 * Returns the delay, in milliseconds, before publishing the diagnostics of
+	 * the last validation.
+	 */
+	public long getPublishDelay() {
+		return Math.min(lastDelay, DEFAULT_DELAY);
+	}
+
+	public void remove(ICompilationUnit unit) {
+		statistics.remove(unit);
+	}
+
+	private static double average(double current, long sample) {
+		return current < 0 ? sample : ALPHA * sample + (1 - ALPHA) * current;
+	}
+
+	private static class Statistics {
+		long lastEdit = -1;
+		double editGap = -1;
+		double reconcileTime = -1;
+	}
+
+}
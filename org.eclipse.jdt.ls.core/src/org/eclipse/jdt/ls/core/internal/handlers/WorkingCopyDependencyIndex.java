@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+/**
+ * Keeps track of the references between the open working copies, so that
+ * validation can be limited to the edited units and the units whose resolved
+ * types depend on them.
+ *
+ * The index is updated from the resolved AST of each validated unit. Units that
+ * were never indexed, or that currently have errors (which might be fixed by
+ * an edit anywhere else), are always considered affected.
+ */
+public class WorkingCopyDependencyIndex {
+
+	/**
+	 * open unit -> open units it references
+	 */
+	private final Map<ICompilationUnit, Set<ICompilationUnit>> references = new HashMap<>();
+
+	/**
+	 * open units whose last validation reported errors
+	 */
+	private final Set<ICompilationUnit> unstable = new HashSet<>();
+
+	/**
+	 * Records the open units referenced by the given resolved AST.
+	 *
+	 * @param astRoot
+	 *            an AST with resolved bindings, may be <code>null</code>
+	 */
+	public void update(CompilationUnit astRoot) {
+		if (astRoot == null) {
+			return;
+		}
+		ITypeRoot typeRoot = astRoot.getTypeRoot();
+		if (!(typeRoot instanceof ICompilationUnit)) {
+			return;
+		}
+		ICompilationUnit unit = ((ICompilationUnit) typeRoot).getPrimary();
+		ReferenceCollector collector = new ReferenceCollector(unit);
+		astRoot.accept(collector);
+		boolean hasErrors = hasErrors(astRoot);
+		synchronized (this) {
+			references.put(unit, collector.getReferences());
+			if (hasErrors) {
+				unstable.add(unit);
+			} else {
+				unstable.remove(unit);
+			}
+		}
+	}
+
+	/**
+	 * Forgets everything known about the given unit.
+	 */
+	public synchronized void remove(ICompilationUnit unit) {
+		unit = unit.getPrimary();
+		references.remove(unit);
+		unstable.remove(unit);
+	}
+
+	public synchronized void clear() {
+		references.clear();
+		unstable.clear();
+	}
+
+	/**
+	 * Returns the indexed units referencing the given unit.
+	 */
+	public synchronized Set<ICompilationUnit> getDependents(ICompilationUnit unit) {
+		ICompilationUnit primary = unit.getPrimary();
+		//@formatter:off
+		return references.entrySet().stream()
+				.filter(e -> !e.getKey().equals(primary) && e.getValue().contains(primary))
+				.map(Entry::getKey)
+				.collect(Collectors.toSet());
+		//@formatter:on
+	}
+
+	/**
+	 * Computes the units that need to be validated after the given units were
+	 * changed.
+	 *
+	 * @param changed
+	 *            the units whose content changed
+	 * @param workingCopies
+	 *            the currently open units
+	 * @return the open units to validate, in the order of
+	 *         <code>workingCopies</code>
+	 */
+	public synchronized List<ICompilationUnit> getAffectedUnits(Collection<ICompilationUnit> changed, List<ICompilationUnit> workingCopies) {
+		Set<ICompilationUnit> changedPrimaries = new LinkedHashSet<>();
+		for (ICompilationUnit unit : changed) {
+			changedPrimaries.add(unit.getPrimary());
+		}
+		//@formatter:off
+		return workingCopies.stream()
+				.filter(unit -> isAffected(unit.getPrimary(), changedPrimaries))
+				.collect(Collectors.toList());
+		//@formatter:on
+	}
+
+	private boolean isAffected(ICompilationUnit unit, Set<ICompilationUnit> changed) {
+		if (changed.contains(unit) || unstable.contains(unit)) {
+			return true;
+		}
+		Set<ICompilationUnit> referenced = references.get(unit);
+		if (referenced == null) {
+			return true;
+		}
+		for (ICompilationUnit cu : changed) {
+			if (referenced.contains(cu)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasErrors(CompilationUnit astRoot) {
+		for (IProblem problem : astRoot.getProblems()) {
+			if (problem.isError()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class ReferenceCollector extends ASTVisitor {
+
+		private final ICompilationUnit unit;
+		private final Set<String> visitedKeys = new HashSet<>();
+		private final Set<ICompilationUnit> references = new HashSet<>();
+
+		ReferenceCollector(ICompilationUnit unit) {
+			this.unit = unit;
+		}
+
+		Set<ICompilationUnit> getReferences() {
+			return references;
+		}
+
+		@Override
+		public boolean visit(SimpleName node) {
+			IBinding binding = node.resolveBinding();
+			if (binding == null) {
+				return false;
+			}
+			switch (binding.getKind()) {
+				case IBinding.TYPE:
+					addType((ITypeBinding) binding);
+					break;
+				case IBinding.METHOD:
+					IMethodBinding method = (IMethodBinding) binding;
+					addType(method.getDeclaringClass());
+					addType(method.getReturnType());
+					break;
+				case IBinding.VARIABLE:
+					IVariableBinding variable = (IVariableBinding) binding;
+					addType(variable.getDeclaringClass());
+					addType(variable.getType());
+					break;
+				default:
+					break;
+			}
+			return false;
+		}
+
+		private void addType(ITypeBinding type) {
+			if (type == null) {
+				return;
+			}
+			if (type.isArray()) {
+				type = type.getElementType();
+			}
+			if (type.isPrimitive() || type.isNullType() || type.isTypeVariable() || type.isCapture() || type.isWildcardType()) {
+				return;
+			}
+			type = type.getErasure();
+			while (type.getDeclaringClass() != null) {
+				type = type.getDeclaringClass();
+			}
+			if (!type.isFromSource() || !visitedKeys.add(type.getKey())) {
+				return;
+			}
+			IJavaElement element = type.getJavaElement();
+			if (element instanceof IType) {
+				ICompilationUnit cu = ((IType) element).getCompilationUnit();
+				if (cu != null) {
+					cu = cu.getPrimary();
+					if (!unit.equals(cu)) {
+						references.add(cu);
+					}
+				}
+			}
+		}
+	}
+
+}
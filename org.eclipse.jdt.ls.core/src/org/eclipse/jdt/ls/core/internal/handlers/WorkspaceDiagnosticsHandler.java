@@ -10,14 +10,15 @@
  *******************************************************************************/
 package org.eclipse.jdt.ls.core.internal.handlers;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.core.internal.resources.CheckMissingNaturesListener;
 import org.eclipse.core.resources.IFile;
@@ -32,6 +33,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaModelMarker;
 import org.eclipse.jdt.core.IJavaProject;
@@ -42,7 +44,6 @@ import org.eclipse.jdt.ls.core.internal.JavaClientConnection;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
 import org.eclipse.jdt.ls.core.internal.ResourceUtils;
 import org.eclipse.jdt.ls.core.internal.managers.ProjectsManager;
-import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
@@ -64,6 +65,11 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 	public static final String PROJECT_CONFIGURATION_IS_NOT_UP_TO_DATE_WITH_POM_XML = "Project configuration is not up-to-date with pom.xml, requires an update.";
 	private final JavaClientConnection connection;
 	private final ProjectsManager projectsManager;
+	/**
+	 * The URIs the diagnostics of the projects were published for, by project
+	 * name, since the location of a removed project may not be known anymore.
+	 */
+	private final Map<String, String> projectUris = new ConcurrentHashMap<>();
 
 	public WorkspaceDiagnosticsHandler(JavaClientConnection connection, ProjectsManager projectsManager) {
 		this.connection = connection;
@@ -99,6 +105,16 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 	@Override
 	public boolean visit(IResourceDelta delta) throws CoreException {
 		IResource resource = delta.getResource();
+		if (resource != null && delta.getKind() == IResourceDelta.REMOVED) {
+			// the entries of the resource and of the documents below it are dropped
+			String uri = resource.getType() == IResource.PROJECT ? projectUris.remove(resource.getName()) : null;
+			if (uri == null) {
+				URI location = resource.getRawLocationURI() == null ? resource.getLocationURI() : resource.getRawLocationURI();
+				uri = location == null ? null : ResourceUtils.toClientUri(ResourceUtils.fixURI(location));
+			}
+			DiagnosticsCache.removeAll(uri);
+			return false;
+		}
 		// Check if resource is accessible.
 		// We do not deal with the markers for deleted files here
 		// WorkspaceEventsHandler removes the diagnostics for deleted resources.
@@ -124,7 +140,7 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 			return false;
 		}
 		IFile file = (IFile) resource;
-		IDocument document = null;
+		LineOffsetIndex lines = null;
 		IMarker[] markers = null;
 		// Check if it is a Java ...
 		if (JavaCore.isJavaLikeFileName(file.getName())) {
@@ -133,7 +149,7 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 			IJavaProject javaProject = cu.getJavaProject();
 			if (javaProject == null || !javaProject.isOnClasspath(cu)) {
 				String uri = JDTUtils.getFileURI(resource);
-				this.connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList()));
+				publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList()));
 				return false;
 			}
 
@@ -141,16 +157,16 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 			IMarker[] taskMarkers = resource.findMarkers(IJavaModelMarker.TASK_MARKER, false, IResource.DEPTH_ONE);
 			markers = Arrays.copyOf(javaMarkers, javaMarkers.length + taskMarkers.length);
 			System.arraycopy(taskMarkers, 0, markers, javaMarkers.length, taskMarkers.length);
-			document = JsonRpcHelpers.toDocument(cu.getBuffer());
+			lines = toLineOffsetIndex(cu.getBuffer());
 		} // or a build file
 		else if (projectsManager.isBuildFile(file)) {
 			//all errors on that build file should be relevant
 			markers = file.findMarkers(null, true, 1);
-			document = JsonRpcHelpers.toDocument(file);
+			lines = toLineOffsetIndex(JsonRpcHelpers.toDocument(file));
 		}
-		if (document != null) {
+		if (lines != null) {
 			String uri = JDTUtils.getFileURI(resource);
-			this.connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), toDiagnosticsArray(document, markers)));
+			publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), toDiagnosticsArray(lines, markers)));
 		}
 		return false;
 	}
@@ -175,13 +191,14 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 		}
 		List<Diagnostic> diagnostics = toDiagnosticArray(range, projectMarkers);
 		String clientUri = ResourceUtils.toClientUri(uri);
-		connection.publishDiagnostics(new PublishDiagnosticsParams(clientUri, diagnostics));
+		projectUris.put(project.getName(), clientUri);
+		publishDiagnostics(new PublishDiagnosticsParams(clientUri, diagnostics));
 		if (pom.exists()) {
 			IDocument document = JsonRpcHelpers.toDocument(pom);
 			diagnostics = toDiagnosticsArray(document, pom.findMarkers(null, true, IResource.DEPTH_ZERO));
 			List<Diagnostic> diagnosicts2 = toDiagnosticArray(range, pomMarkers);
 			diagnostics.addAll(diagnosicts2);
-			connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(clientUri + "/pom.xml"), diagnostics));
+			publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(clientUri + "/pom.xml"), diagnostics));
 		}
 	}
 
@@ -236,30 +253,36 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 			if (file == null) {
 				continue;
 			}
-			IDocument document = null;
+			LineOffsetIndex lines = null;
 			String uri = JDTUtils.getFileURI(file);
 			if (JavaCore.isJavaLikeFileName(file.getName())) {
 				ICompilationUnit cu = JDTUtils.resolveCompilationUnit(uri);
 				//ignoring working copies, they're handled in the DocumentLifecycleHandler
 				if (!cu.isWorkingCopy()) {
 					try {
-						document = JsonRpcHelpers.toDocument(cu.getBuffer());
+						lines = toLineOffsetIndex(cu.getBuffer());
 					} catch (JavaModelException e) {
 						JavaLanguageServerPlugin.logException("Failed to publish diagnostics for " + uri, e);
 					}
 				}
 			} else if (projectsManager.isBuildFile(file)) {
-				document = JsonRpcHelpers.toDocument(file);
+				lines = toLineOffsetIndex(JsonRpcHelpers.toDocument(file));
 			}
-			if (document != null) {
-				List<Diagnostic> diagnostics = WorkspaceDiagnosticsHandler.toDiagnosticsArray(document, entry.getValue().toArray(new IMarker[0]));
-				connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), diagnostics));
+			if (lines != null) {
+				List<Diagnostic> diagnostics = WorkspaceDiagnosticsHandler.toDiagnosticsArray(lines, entry.getValue().toArray(new IMarker[0]));
+				publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), diagnostics));
 			}
 		}
 	}
 
 
 
+	private void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+		// markers are always published, but the documents handled by the DiagnosticsHandler must know about them
+		DiagnosticsCache.update(diagnostics);
+		connection.publishDiagnostics(diagnostics);
+	}
+
 	/**
 	 * Transforms {@link IMarker}s into a list of {@link Diagnostic}s
 	 *
@@ -298,57 +321,84 @@ public final class WorkspaceDiagnosticsHandler implements IResourceChangeListene
 	 * @return a list of {@link Diagnostic}s
 	 */
 	public static List<Diagnostic> toDiagnosticsArray(IDocument document, IMarker[] markers) {
-		List<Diagnostic> diagnostics = Stream.of(markers)
-				.map(m -> toDiagnostic(document, m))
-				.filter(d -> d != null)
-				.collect(Collectors.toList());
-		return diagnostics;
+		LineOffsetIndex lines = toLineOffsetIndex(document);
+		// without a document the markers are reported at the start of their line
+		return toDiagnosticsArray(lines == null ? LineOffsetIndex.create("") : lines, markers);
 	}
 
-	private static Diagnostic toDiagnostic(IDocument document, IMarker marker) {
-		if (marker == null || !marker.exists()) {
-			return null;
+	/**
+	 * Transforms {@link IMarker}s into a list of {@link Diagnostic}s, converting
+	 * the offsets of all the markers in a single pass over the lines of their
+	 * document.
+	 *
+	 * @param lines
+	 *            the line offsets of the document of the markers
+	 * @param markers
+	 * @return a list of {@link Diagnostic}s
+	 * @see LineOffsetIndex#toLines(int[])
+	 */
+	private static List<Diagnostic> toDiagnosticsArray(LineOffsetIndex lines, IMarker[] markers) {
+		List<IMarker> existing = new ArrayList<>(markers.length);
+		for (IMarker marker : markers) {
+			if (marker != null && marker.exists()) {
+				existing.add(marker);
+			}
 		}
-		Diagnostic d = new Diagnostic();
-		d.setSource(JavaLanguageServerPlugin.SERVER_SOURCE_ID);
-		d.setMessage(marker.getAttribute(IMarker.MESSAGE, ""));
-		d.setCode(String.valueOf(marker.getAttribute(IJavaModelMarker.ID, 0)));
-		d.setSeverity(convertSeverity(marker.getAttribute(IMarker.SEVERITY, -1)));
-		d.setRange(convertRange(document, marker));
-		return d;
+		int[] offsets = new int[existing.size() * 2];
+		for (int i = 0; i < existing.size(); i++) {
+			IMarker marker = existing.get(i);
+			int start = marker.getAttribute(IMarker.CHAR_START, -1);
+			offsets[2 * i] = start;
+			offsets[2 * i + 1] = Math.max(start, marker.getAttribute(IMarker.CHAR_END, -1));
+		}
+		int[] positions = lines.toLines(offsets);
+		List<Diagnostic> diagnostics = new ArrayList<>(existing.size());
+		for (int i = 0; i < existing.size(); i++) {
+			IMarker marker = existing.get(i);
+			Diagnostic d = new Diagnostic();
+			d.setSource(JavaLanguageServerPlugin.SERVER_SOURCE_ID);
+			d.setMessage(marker.getAttribute(IMarker.MESSAGE, ""));
+			d.setCode(String.valueOf(marker.getAttribute(IJavaModelMarker.ID, 0)));
+			d.setSeverity(convertSeverity(marker.getAttribute(IMarker.SEVERITY, -1)));
+			d.setRange(convertRange(marker, positions, 4 * i));
+			diagnostics.add(d);
+		}
+		return diagnostics;
+	}
+
+	private static LineOffsetIndex toLineOffsetIndex(IBuffer buffer) {
+		return buffer == null ? null : LineOffsetIndex.get(buffer);
+	}
+
+	private static LineOffsetIndex toLineOffsetIndex(IDocument document) {
+		return document == null ? null : LineOffsetIndex.create(document.get());
 	}
 
 	/**
 	 * @param marker
+	 * @param positions
+	 *            the lines and columns of the start and end offsets of the
+	 *            marker, from <code>index</code>
 	 * @return
 	 */
-	private static Range convertRange(IDocument document, IMarker marker) {
+	private static Range convertRange(IMarker marker, int[] positions, int index) {
 		int line = marker.getAttribute(IMarker.LINE_NUMBER, -1) - 1;
-		int cStart = 0;
-		int cEnd = 0;
 		try {
 			//Buildship doesn't provide markers for gradle files, Maven does
 			if (marker.isSubtypeOf(IMavenConstants.MARKER_ID)) {
-				cStart = marker.getAttribute(IMavenConstants.MARKER_COLUMN_START, -1);
-				cEnd = marker.getAttribute(IMavenConstants.MARKER_COLUMN_END, -1);
-			} else {
-				int lineOffset = 0;
-				try {
-					lineOffset = document.getLineOffset(line);
-				} catch (BadLocationException unlikelyException) {
-					JavaLanguageServerPlugin.logException(unlikelyException.getMessage(), unlikelyException);
-					return new Range(new Position(line, 0), new Position(line, 0));
-				}
-				cEnd = marker.getAttribute(IMarker.CHAR_END, -1) - lineOffset;
-				cStart = marker.getAttribute(IMarker.CHAR_START, -1) - lineOffset;
+				int cStart = Math.max(0, marker.getAttribute(IMavenConstants.MARKER_COLUMN_START, -1));
+				int cEnd = Math.max(0, marker.getAttribute(IMavenConstants.MARKER_COLUMN_END, -1));
+				return new Range(new Position(line, cStart), new Position(line, cEnd));
 			}
 		} catch (CoreException e) {
 			JavaLanguageServerPlugin.logException(e.getMessage(), e);
 		}
-		cStart = Math.max(0, cStart);
-		cEnd = Math.max(0, cEnd);
-
-		return new Range(new Position(line, cStart), new Position(line, cEnd));
+		if (positions[index] < 0) {
+			return new Range(new Position(line, 0), new Position(line, 0));
+		}
+		Position start = new Position(positions[index], positions[index + 1]);
+		Position end = positions[index + 2] < 0 ? new Position(start.getLine(), start.getCharacter()) : new Position(positions[index + 2], positions[index + 3]);
+		return new Range(start, end);
 	}
 
 	/**
@@ -120,7 +120,10 @@ public class WorkspaceEventsHandler {
 	}
 
 	private void cleanUpDiagnostics(String uri){
-		this.connection.publishDiagnostics(new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList()));
+		PublishDiagnosticsParams diagnostics = new PublishDiagnosticsParams(ResourceUtils.toClientUri(uri), Collections.emptyList());
+		this.connection.publishDiagnostics(diagnostics);
+		// the file is gone, nothing needs to be compared with its next diagnostics
+		DiagnosticsCache.remove(diagnostics.getUri());
 	}
 
 }
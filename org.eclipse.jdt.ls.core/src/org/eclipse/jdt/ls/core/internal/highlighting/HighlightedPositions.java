@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.highlighting;
+
+import java.util.Arrays;
+
+/**
+ * The highlighted positions of a document, sorted by offset, stored as
+ * parallel arrays of offsets, lengths and scope indices. See
+ * {@link SemanticHighlightingService#getScopes(int)} for the scopes of an
+ * index.
+ *
+ * Instances are immutable, so they are shared between threads and handed out
+ * without copying.
+ */
+public final class HighlightedPositions {
+
+	public static final HighlightedPositions EMPTY = new HighlightedPositions(new int[0], new int[0], new int[0]);
+
+	private final int[] offsets;
+	private final int[] lengths;
+	private final int[] scopes;
+
+	private HighlightedPositions(int[] offsets, int[] lengths, int[] scopes) {
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.scopes = scopes;
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	public boolean isEmpty() {
+		return offsets.length == 0;
+	}
+
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	public int getScope(int index) {
+		return scopes[index];
+	}
+
+	/**
+	 * Returns the index of the first position starting at or after the given
+	 * offset, or {@link #size()} if there is none.
+	 */
+	public int indexOf(int offset) {
+		int low = 0;
+		int high = offsets.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (offsets[middle] < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(offsets) + Arrays.hashCode(lengths)) + Arrays.hashCode(scopes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof HighlightedPositions)) {
+			return false;
+		}
+		HighlightedPositions other = (HighlightedPositions) obj;
+		return Arrays.equals(offsets, other.offsets) && Arrays.equals(lengths, other.lengths) && Arrays.equals(scopes, other.scopes);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < offsets.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(offsets[i]).append(':').append(lengths[i]).append(':').append(scopes[i]);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Collects positions, in any order, into {@link HighlightedPositions}.
+	 */
+	public static final class Builder {
+
+		private int[] offsets;
+		private int[] lengths;
+		private int[] scopes;
+		private int size;
+		private boolean sorted = true;
+
+		public Builder() {
+			this(16);
+		}
+
+		public Builder(int capacity) {
+			capacity = Math.max(capacity, 1);
+			offsets = new int[capacity];
+			lengths = new int[capacity];
+			scopes = new int[capacity];
+		}
+
+		public Builder add(int offset, int length, int scope) {
+			if (size == offsets.length) {
+				int capacity = size * 2;
+				offsets = Arrays.copyOf(offsets, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+				scopes = Arrays.copyOf(scopes, capacity);
+			}
+			if (size > 0 && offsets[size - 1] > offset) {
+				sorted = false;
+			}
+			offsets[size] = offset;
+			lengths[size] = length;
+			scopes[size] = scope;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Adds the positions in the range <code>[from, to)</code> of the given
+		 * positions, with their offsets shifted by the given delta.
+		 */
+		public Builder addAll(HighlightedPositions positions, int from, int to, int delta) {
+			for (int i = from; i < to; i++) {
+				add(positions.offsets[i] + delta, positions.lengths[i], positions.scopes[i]);
+			}
+			return this;
+		}
+
+		public HighlightedPositions build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			if (sorted) {
+				return new HighlightedPositions(Arrays.copyOf(offsets, size), Arrays.copyOf(lengths, size), Arrays.copyOf(scopes, size));
+			}
+			// stable sort by offset: the index breaks the ties
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = ((long) offsets[i] << 32) | i;
+			}
+			Arrays.sort(keys);
+			int[] sortedOffsets = new int[size];
+			int[] sortedLengths = new int[size];
+			int[] sortedScopes = new int[size];
+			for (int i = 0; i < size; i++) {
+				int index = (int) keys[i];
+				sortedOffsets[i] = offsets[index];
+				sortedLengths[i] = lengths[index];
+				sortedScopes[i] = scopes[index];
+			}
+			return new HighlightedPositions(sortedOffsets, sortedLengths, sortedScopes);
+		}
+	}
+
+}
@@ -10,240 +10,139 @@
  *******************************************************************************/
 package org.eclipse.jdt.ls.core.internal.highlighting;
 
-import static com.google.common.collect.Lists.newArrayList;
-
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
-import org.eclipse.core.runtime.Assert;
-import org.eclipse.jdt.internal.ui.javaeditor.HighlightedPositionCore;
-import org.eclipse.jdt.ls.core.internal.handlers.JsonRpcHelpers;
 import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingService.HighlightedPositionDiffContext;
 import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.jface.text.Position;
 import org.eclipse.lsp4j.SemanticHighlightingInformation;
 import org.eclipse.lsp4j.util.SemanticHighlightingTokens;
 
-import com.google.common.base.Preconditions;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-
 public class SemanticHighlightingDiffCalculator {
 
+	/**
+	 * Returns with the lines of the new state whose highlighting has changed,
+	 * sorted by line. Each line carries all its tokens, or <code>null</code>
+	 * tokens if the line has no highlighting anymore.
+	 * <p>
+	 * The old positions are moved to the new state with the delta of the edit
+	 * and merged with the new positions in a single pass over both sorted
+	 * arrays, so only the lines with a mismatching position are looked up in
+	 * the documents. Old positions overlapping the edit, or following it on the
+	 * same line when the edit changes their column, never match.
+	 */
 	public List<SemanticHighlightingInformation> getDiffInfos(HighlightedPositionDiffContext context) throws BadLocationException {
-
-		IDocument newState = context.newState;
 		IDocument oldState = context.oldState;
-
-		// Can be negative or zero too.
-		int lineShiftCount = this.getLineShift(oldState, context.event);
+		IDocument newState = context.newState;
+		HighlightedPositions oldPositions = context.oldPositions;
+		HighlightedPositions newPositions = context.newPositions;
 
 		int eventOffset = context.event.getOffset();
-		int eventOldLength = context.event.getLength();
-		int eventEnd = eventOffset + eventOldLength;
-
-		Map<Integer, SemanticHighlightingInformation> infosPerLine = Maps.newHashMap();
-		Multimap<Integer, SemanticHighlightingTokens.Token> tokensPerLine = HashMultimap.create();
-		Multimap<Integer, HighlightedPositionCore> pendingPositions = HashMultimap.create();
-		Map<LookupKey, HighlightedPositionCore> newPositions = Maps.newHashMap();
-		for (HighlightedPositionCore newPosition : context.newPositions) {
-			LookupKey key = createKey(newState, newPosition);
-			newPositions.put(key, newPosition);
-			pendingPositions.put(key.line, newPosition);
+		int eventEnd = eventOffset + context.event.getLength();
+		String text = context.event.getText();
+		int delta = (text == null ? 0 : text.length()) - context.event.getLength();
+
+		// Old positions starting in [eventEnd, movedEnd) are on the last line of the edit, after it.
+		int movedEnd = eventEnd;
+		if (getColumn(oldState, eventEnd) != getColumn(newState, eventEnd + delta)) {
+			movedEnd = getNextLineOffset(oldState, oldState.getLineOfOffset(eventEnd));
 		}
 
-		for (HighlightedPositionCore oldPosition : context.oldPositions) {
-			int[] oldLineAndColumn = getLineAndColumn(oldState, oldPosition);
-			int originalOldLine = oldLineAndColumn[0];
-			int oldColumn = oldLineAndColumn[1];
-			int oldOffset = oldPosition.getOffset();
-			int oldLength = oldPosition.getLength();
-			int oldEnd = oldOffset + oldLength;
-			// If the position is before the change (event), no need to shift the line. Otherwise we consider the line shift.
-			int adjustedOldLine = oldEnd < eventEnd ? originalOldLine : originalOldLine + lineShiftCount;
-
-			@SuppressWarnings("unchecked")
-			int scope = SemanticHighlightingService.getIndex((List<String>) oldPosition.getHighlighting());
-			LookupKey key = createKey(adjustedOldLine, oldColumn, getTextAt(oldState, oldPosition), scope);
-			HighlightedPositionCore newPosition = newPositions.remove(key);
-			if (newPosition == null && !infosPerLine.containsKey(originalOldLine)) {
-				infosPerLine.put(originalOldLine, new SemanticHighlightingInformation(originalOldLine, null));
+		Lines changed = new Lines();
+		int i = 0;
+		int j = 0;
+		while (i < oldPositions.size()) {
+			int oldOffset = oldPositions.getOffset(i);
+			if (oldOffset + oldPositions.getLength(i) > eventOffset && oldOffset < eventEnd) {
+				changed.add(newState.getLineOfOffset(Math.min(oldOffset, eventOffset)));
+				i++;
+				continue;
 			}
-		}
-
-		for (Entry<LookupKey, HighlightedPositionCore> entries : newPositions.entrySet()) {
-			LookupKey lookupKey = entries.getKey();
-			int line = lookupKey.line;
-			int length = lookupKey.text.length();
-			int character = lookupKey.column;
-			int scope = lookupKey.scope;
-			SemanticHighlightingInformation info = infosPerLine.get(line);
-			if (info == null) {
-				info = new SemanticHighlightingInformation(line, null);
-				infosPerLine.put(line, info);
+			int offset = oldOffset < eventEnd ? oldOffset : oldOffset + delta;
+			if (oldOffset >= eventEnd && oldOffset < movedEnd) {
+				changed.add(newState.getLineOfOffset(offset));
+				i++;
+				continue;
 			}
-			tokensPerLine.put(line, new SemanticHighlightingTokens.Token(character, length, scope));
-			// If a line contains at least one change, we need to invalidate the entire line by consuming all pending positions.
-			Collection<HighlightedPositionCore> pendings = pendingPositions.removeAll(line);
-			if (pendings != null) {
-				for (HighlightedPositionCore pendingPosition : pendings) {
-					if (pendingPosition != entries.getValue()) {
-						int[] lineAndColumn = getLineAndColumn(newState, pendingPosition);
-						int pendingCharacter = lineAndColumn[1];
-						int pendingLength = pendingPosition.length;
-						@SuppressWarnings("unchecked")
-						int pendingScope = SemanticHighlightingService.getIndex((List<String>) pendingPosition.getHighlighting());
-						tokensPerLine.put(line, new SemanticHighlightingTokens.Token(pendingCharacter, pendingLength, pendingScope));
-					}
+			if (j == newPositions.size() || offset < newPositions.getOffset(j)) {
+				changed.add(newState.getLineOfOffset(offset));
+				i++;
+			} else if (offset > newPositions.getOffset(j)) {
+				changed.add(newState.getLineOfOffset(newPositions.getOffset(j)));
+				j++;
+			} else {
+				if (oldPositions.getLength(i) != newPositions.getLength(j) || oldPositions.getScope(i) != newPositions.getScope(j)) {
+					changed.add(newState.getLineOfOffset(offset));
 				}
+				i++;
+				j++;
 			}
 		}
-
-		for (Entry<Integer, Collection<SemanticHighlightingTokens.Token>> entry : tokensPerLine.asMap().entrySet()) {
-			List<SemanticHighlightingTokens.Token> tokens = newArrayList(entry.getValue());
-			Collections.sort(tokens);
-			infosPerLine.get(entry.getKey()).setTokens(SemanticHighlightingTokens.encode(tokens));
+		for (; j < newPositions.size(); j++) {
+			changed.add(newState.getLineOfOffset(newPositions.getOffset(j)));
 		}
 
-		return FluentIterable.from(infosPerLine.values()).toSortedList(HighlightingInformationComparator.INSTANCE);
-	}
-
-	protected int[] getLineAndColumn(IDocument document, HighlightedPositionCore position) {
-		//@formatter:off
-		int[] lineAndColumn = JsonRpcHelpers.toLine(document, position.offset);
-		Assert.isNotNull(
-				lineAndColumn,
-				"Cannot retrieve the line and column information for document. Position was: " + position + " Document was:>" + document.get() + "<."
-				);
-		return lineAndColumn;
-		//@formatter:off
-	}
-
-	protected int getLineShift(IDocument oldState, DocumentEvent event) throws BadLocationException {
-		// Insert edit.
-		if (event.fLength == 0) {
-			Preconditions.checkNotNull(event.fText, "fText");
-			int beforeEndLine = event.fDocument.getLineOfOffset(event.fOffset + event.fLength);
-			int afterEndLine = event.fDocument.getLineOfOffset(event.fOffset + event.fText.length());
-			return afterEndLine - beforeEndLine;
-		// Delete edit.
-		} else if (event.fText == null || event.fText.isEmpty()) {
-			return event.fDocument.getLineOfOffset(event.fOffset) - oldState.getLineOfOffset(event.fOffset + event.fLength);
-		// Replace edit.
-		} else {
-			int startLine = oldState.getLineOfOffset(event.fOffset + event.fLength);
-			int lineShift = event.fDocument.getLineOfOffset(event.fOffset + event.fText.length()) - startLine;
-			return lineShift;
+		int[] lines = changed.toSortedArray();
+		List<SemanticHighlightingInformation> infos = new ArrayList<>(lines.length);
+		for (int line : lines) {
+			int lineOffset = newState.getLineOffset(line);
+			int from = newPositions.indexOf(lineOffset);
+			int to = newPositions.indexOf(getNextLineOffset(newState, line));
+			String tokens = null;
+			if (from < to) {
+				List<SemanticHighlightingTokens.Token> lineTokens = new ArrayList<>(to - from);
+				for (int k = from; k < to; k++) {
+					lineTokens.add(new SemanticHighlightingTokens.Token(newPositions.getOffset(k) - lineOffset, newPositions.getLength(k), newPositions.getScope(k)));
+				}
+				tokens = SemanticHighlightingTokens.encode(lineTokens);
+			}
+			infos.add(new SemanticHighlightingInformation(line, tokens));
 		}
+		return infos;
 	}
 
-	protected String getTextAt(IDocument document, Position position) throws BadLocationException {
-		return document.get(position.offset, position.length);
-	}
-
-	protected LookupKey createKey(IDocument document, HighlightedPositionCore position) throws BadLocationException {
-		int[] lineAndColumn = getLineAndColumn(document, position);
-		@SuppressWarnings("unchecked")
-		int scope = SemanticHighlightingService.getIndex((List<String>) position.getHighlighting());
-		return createKey(lineAndColumn[0], lineAndColumn[1], getTextAt(document, position), scope);
+	protected int getColumn(IDocument document, int offset) throws BadLocationException {
+		return offset - document.getLineOffset(document.getLineOfOffset(offset));
 	}
 
-	protected LookupKey createKey(int line, int column, String text, int scope) {
-		return new LookupKey(line, column, text, scope);
+	/**
+	 * Returns with the offset of the line following the given one, or the
+	 * offset after the end of the document for its last line.
+	 */
+	protected int getNextLineOffset(IDocument document, int line) throws BadLocationException {
+		return line + 1 < document.getNumberOfLines() ? document.getLineOffset(line + 1) : document.getLength() + 1;
 	}
 
-	protected static class HighlightingInformationComparator implements Comparator<SemanticHighlightingInformation> {
+	/**
+	 * The changed lines, collected mostly in ascending order.
+	 */
+	private static final class Lines {
 
-		protected static final Comparator<SemanticHighlightingInformation> INSTANCE = new HighlightingInformationComparator();
+		private int[] lines = new int[8];
+		private int size;
 
-		@Override
-		public int compare(SemanticHighlightingInformation left, SemanticHighlightingInformation right) {
-			//@formatter:off
-			return ComparisonChain.start()
-				.compare(left.getLine(), right.getLine())
-				.result();
-			//@formatter:on
-		}
-	}
-
-	private static final class LookupKey {
-
-		private final int line;
-		private final int column;
-		private final String text;
-		private final int scope;
-
-		private LookupKey(int line, int column, String text, int scope) {
-			this.line = line;
-			this.column = column;
-			this.text = text;
-			this.scope = scope;
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + column;
-			result = prime * result + line;
-			result = prime * result + scope;
-			result = prime * result + ((text == null) ? 0 : text.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
+		private void add(int line) {
+			if (size > 0 && lines[size - 1] == line) {
+				return;
 			}
-			if (obj == null) {
-				return false;
+			if (size == lines.length) {
+				lines = Arrays.copyOf(lines, size * 2);
 			}
-			if (getClass() != obj.getClass()) {
-				return false;
-			}
-			LookupKey other = (LookupKey) obj;
-			if (column != other.column) {
-				return false;
-			}
-			if (line != other.line) {
-				return false;
-			}
-			if (scope != other.scope) {
-				return false;
-			}
-			if (text == null) {
-				if (other.text != null) {
-					return false;
-				}
-			} else if (!text.equals(other.text)) {
-				return false;
-			}
-			return true;
+			lines[size++] = line;
 		}
 
-		@Override
-		public String toString() {
-			StringBuilder sb = new StringBuilder();
-			sb.append("Line: ");
-			sb.append(line);
-			sb.append("\nColumn: ");
-			sb.append(column);
-			sb.append("\nText: ");
-			sb.append(text);
-			sb.append("\nScopes: ");
-			sb.append(Iterables.toString(SemanticHighlightingService.getScopes(scope)));
-			return sb.toString();
+		private int[] toSortedArray() {
+			int[] sorted = Arrays.copyOf(lines, size);
+			Arrays.sort(sorted);
+			int count = 0;
+			for (int k = 0; k < sorted.length; k++) {
+				if (count == 0 || sorted[count - 1] != sorted[k]) {
+					sorted[count++] = sorted[k];
+				}
+			}
+			return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
 		}
 
 	}
@@ -68,7 +68,7 @@ public class SemanticHighlightingReconciler {
 					int offset= node.getStartPosition();
 					int length= node.getLength();
 					if (offset > -1 && length > 0) {
-						addPosition(offset, length, fJobHighlightings.get(i));
+						addPosition(offset, length, i);
 					}
 					break;
 				}
@@ -84,7 +84,7 @@ public class SemanticHighlightingReconciler {
 		@Override
 		public boolean visit(ConstructorInvocation node) {
 			// XXX Hack for performance reasons (should loop over fJobSemanticHighlightings can call consumes(*))
-			if (fJobDeprecatedMemberHighlighting != null) {
+			if (fJobDeprecatedMemberHighlighting >= 0) {
 				IMethodBinding constructorBinding= node.resolveConstructorBinding();
 				if (constructorBinding != null && constructorBinding.isDeprecated()) {
 					int offset= node.getStartPosition();
@@ -104,7 +104,7 @@ public class SemanticHighlightingReconciler {
 		@Override
 		public boolean visit(SuperConstructorInvocation node) {
 			// XXX Hack for performance reasons (should loop over fJobSemanticHighlightings can call consumes(*))
-			if (fJobDeprecatedMemberHighlighting != null) {
+			if (fJobDeprecatedMemberHighlighting >= 0) {
 				IMethodBinding constructorBinding= node.resolveConstructorBinding();
 				if (constructorBinding != null && constructorBinding.isDeprecated()) {
 					int offset= node.getStartPosition();
@@ -126,7 +126,7 @@ public class SemanticHighlightingReconciler {
 					for (int i= 0; i < fJobSemanticHighlightings.length; i++) {
 						SemanticHighlightingCore semanticHighlighting = fJobSemanticHighlightings[i];
 						if (semanticHighlighting instanceof VarKeywordHighlighting) {
-							addPosition(offset, length, fJobHighlightings.get(i));
+							addPosition(offset, length, i);
 							return false;
 						}
 					}
@@ -147,7 +147,7 @@ public class SemanticHighlightingReconciler {
 					int offset= node.getStartPosition();
 					int length= node.getLength();
 					if (offset > -1 && length > 0) {
-						addPosition(offset, length, fJobHighlightings.get(i));
+						addPosition(offset, length, i);
 					}
 					break;
 				}
@@ -164,10 +164,15 @@ public class SemanticHighlightingReconciler {
 		 *            The range offset
 		 * @param length
 		 *            The range length
-		 * @param scopes
-		 *            The highlighting
+		 * @param index
+		 *            The index of the highlighting, which is also its scope index
 		 */
-		private void addPosition(int offset, int length, List<String> scopes) {
+		private void addPosition(int offset, int length, int index) {
+			if (fJobPositions != null) {
+				fJobPositions.add(offset, length, index);
+				return;
+			}
+			List<String> scopes= fJobHighlightings.get(index);
 			boolean isExisting= false;
 			// TODO: use binary search
 			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
@@ -212,7 +217,7 @@ public class SemanticHighlightingReconciler {
 
 	/** The semantic highlighting presenter */
 	private SemanticHighlightingPresenterCore fPresenter = new SemanticHighlightingPresenterCore();
-	/** Semantic highlightings */
+	/** Semantic highlightings, the index of a highlighting is its scope index in {@link SemanticHighlightingService} */
 	private SemanticHighlightingCore[] fSemanticHighlightings = SemanticHighlightings.getSemanticHighlightings();
 	/** Highlightings */
 	private List<List<String>> fHighlightings = FluentIterable.from(Arrays.asList(fSemanticHighlightings)).transform(highlighting -> (List<String>) ImmutableList.copyOf(((SemanticHighlightingLS) highlighting).getScopes())).toList();
@@ -247,7 +252,10 @@ public class SemanticHighlightingReconciler {
 	 * XXX Hack for performance reasons (should loop over fJobSemanticHighlightings can call consumes(*))
 	 * @since 3.5
 	 */
-	private List<String> fJobDeprecatedMemberHighlighting;
+	private int fJobDeprecatedMemberHighlighting= -1;
+
+	/** Collected positions - only valid during {@link #collectPositions(ASTNode)} */
+	private HighlightedPositions.Builder fJobPositions;
 
 	public List<HighlightedPositionCore> reconciled(IDocument document, ASTNode ast, boolean forced, IProgressMonitor progressMonitor) throws BadPositionCategoryException {
 		// ensure at most one thread can be reconciling at any time
@@ -275,14 +283,7 @@ public class SemanticHighlightingReconciler {
 			startReconcilingPositions();
 
 			if (!fJobPresenter.isCanceled()) {
-				fJobDeprecatedMemberHighlighting= null;
-				for (int i= 0, n= fJobSemanticHighlightings.length; i < n; i++) {
-					SemanticHighlightingCore semanticHighlighting= fJobSemanticHighlightings[i];
-					if (semanticHighlighting instanceof DeprecatedMemberHighlighting) {
-						fJobDeprecatedMemberHighlighting = fJobHighlightings.get(i);
-						break;
-					}
-				}
+				fJobDeprecatedMemberHighlighting= getDeprecatedMemberHighlighting();
 				reconcilePositions(subtrees);
 			}
 
@@ -302,13 +303,60 @@ public class SemanticHighlightingReconciler {
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
 			fJobHighlightings= null;
-			fJobDeprecatedMemberHighlighting= null;
+			fJobDeprecatedMemberHighlighting= -1;
+			synchronized (fReconcileLock) {
+				fIsReconciling= false;
+			}
+		}
+	}
+
+	/**
+	 * Collects the highlighted positions of the given subtree. Unlike
+	 * {@link #reconciled(IDocument, ASTNode, boolean, IProgressMonitor)}, the
+	 * positions are not registered in a document, and no position object is
+	 * created.
+	 *
+	 * @param subtree the AST subtree
+	 * @return the highlighted positions of the subtree
+	 */
+	public HighlightedPositions collectPositions(ASTNode subtree) {
+		synchronized (fReconcileLock) {
+			if (fIsReconciling) {
+				return HighlightedPositions.EMPTY;
+			} else {
+				fIsReconciling= true;
+			}
+		}
+		fJobPresenter= fPresenter;
+		fJobSemanticHighlightings= fSemanticHighlightings;
+		fJobHighlightings= fHighlightings;
+
+		try {
+			fJobPositions= new HighlightedPositions.Builder(Math.max(16, subtree.getLength() / 16));
+			fJobDeprecatedMemberHighlighting= getDeprecatedMemberHighlighting();
+			subtree.accept(fCollector);
+			return fJobPositions.build();
+		} finally {
+			fJobPositions= null;
+			fJobPresenter= null;
+			fJobSemanticHighlightings= null;
+			fJobHighlightings= null;
+			fJobDeprecatedMemberHighlighting= -1;
 			synchronized (fReconcileLock) {
 				fIsReconciling= false;
 			}
 		}
 	}
 
+	private int getDeprecatedMemberHighlighting() {
+		for (int i= 0, n= fJobSemanticHighlightings.length; i < n; i++) {
+			if (fJobSemanticHighlightings[i] instanceof DeprecatedMemberHighlighting) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * @param node Root node
 	 * @return Array of subtrees that may be affected by past document changes
@@ -12,11 +12,11 @@ package org.eclipse.jdt.ls.core.internal.highlighting;
 
 import static com.google.common.base.Suppliers.memoize;
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
-import static java.util.Collections.emptyList;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,18 +26,25 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeMemberDeclaration;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
 import org.eclipse.jdt.core.manipulation.CoreASTProvider;
-import org.eclipse.jdt.internal.ui.javaeditor.HighlightedPositionCore;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaClientConnection;
 import org.eclipse.jdt.ls.core.internal.JavaLanguageServerPlugin;
+import org.eclipse.jdt.ls.core.internal.RopeDocument;
 import org.eclipse.jdt.ls.core.internal.handlers.JsonRpcHelpers;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
 import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.BadPositionCategoryException;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.jface.text.Position;
 import org.eclipse.lsp4j.SemanticHighlightingInformation;
 import org.eclipse.lsp4j.SemanticHighlightingParams;
 import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
@@ -115,28 +122,130 @@ public class SemanticHighlightingService {
 		public final IDocument oldState;
 		public final IDocument newState;
 		public final DocumentEvent event;
-		public final List<HighlightedPositionCore> oldPositions;
-		public final List<HighlightedPositionCore> newPositions;
+		public final HighlightedPositions oldPositions;
+		public final HighlightedPositions newPositions;
 
 		public HighlightedPositionDiffContext(
 				IDocument oldState,
 				DocumentEvent event,
-				Iterable<? extends HighlightedPositionCore> oldPositions,
-				Iterable<? extends HighlightedPositionCore> newPositions) {
+				HighlightedPositions oldPositions,
+				HighlightedPositions newPositions) {
 
 			this.oldState = oldState;
 			this.newState = event.fDocument;
 			this.event = event;
-			this.oldPositions = ImmutableList.copyOf(oldPositions);
-			this.newPositions = ImmutableList.copyOf(newPositions);
+			this.oldPositions = oldPositions;
+			this.newPositions = newPositions;
 		}
 		//@formatter:on
 
 	}
 
+	/**
+	 * The highlighted positions of a document, sorted by offset, together with
+	 * the ranges of the method and initializer bodies of the AST they were
+	 * calculated from.
+	 */
+	private static class HighlightingState {
+
+		private final HighlightedPositions positions;
+		/**
+		 * The start and end offsets of the bodies, as consecutive pairs, sorted.
+		 */
+		private final int[] bodies;
+
+		private HighlightingState(HighlightedPositions positions, int[] bodies) {
+			this.positions = positions;
+			this.bodies = bodies;
+		}
+
+		/**
+		 * Returns with the index of the body strictly containing the given
+		 * range, so the braces of the body are not edited, or {@code -1}.
+		 */
+		private int indexOfBody(int offset, int length) {
+			int low = 0;
+			int high = bodies.length / 2 - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (bodies[2 * middle + 1] <= offset) {
+					low = middle + 1;
+				} else if (bodies[2 * middle] >= offset) {
+					high = middle - 1;
+				} else {
+					return offset + length < bodies[2 * middle + 1] ? middle : -1;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns with the state after the given edit, highlighting only the
+		 * edited body of the new AST, or {@code null} if the edit is not
+		 * confined to a body, or changes the declarations.
+		 */
+		private HighlightingState update(SemanticHighlightingService service, ASTNode ast, int offset, int length, int delta) {
+			int index = indexOfBody(offset, length);
+			if (index < 0) {
+				return null;
+			}
+			List<Block> newBodies = getBodies(ast);
+			if (newBodies.size() * 2 != bodies.length) {
+				return null;
+			}
+			int start = bodies[2 * index];
+			int end = bodies[2 * index + 1];
+			Block body = newBodies.get(index);
+			if (body.getStartPosition() != start || body.getStartPosition() + body.getLength() != end + delta) {
+				return null;
+			}
+			HighlightedPositions bodyPositions = service.calculateHighlightedPositions(body);
+			int bodyStart = positions.indexOf(start);
+			int bodyEnd = positions.indexOf(end);
+			HighlightedPositions.Builder newPositions = new HighlightedPositions.Builder(positions.size() - (bodyEnd - bodyStart) + bodyPositions.size());
+			newPositions.addAll(positions, 0, bodyStart, 0);
+			newPositions.addAll(bodyPositions, 0, bodyPositions.size(), 0);
+			newPositions.addAll(positions, bodyEnd, positions.size(), delta);
+			return new HighlightingState(newPositions.build(), toRanges(newBodies));
+		}
+	}
+
+	/**
+	 * The edits of a document that are not highlighted yet, merged into a
+	 * single replacement of the range <code>[start, oldEnd)</code> of the old
+	 * state with the range <code>[start, newEnd)</code> of the new state.
+	 */
+	private static class PendingEdits {
+
+		private final VersionedTextDocumentIdentifier textDocument;
+		private final IDocument oldState;
+		private final IDocument newState;
+		private final int start;
+		private final int oldEnd;
+		private final int newEnd;
+
+		private PendingEdits(VersionedTextDocumentIdentifier textDocument, IDocument oldState, IDocument newState, int start, int oldEnd, int newEnd) {
+			this.textDocument = textDocument;
+			this.oldState = oldState;
+			this.newState = newState;
+			this.start = start;
+			this.oldEnd = oldEnd;
+			this.newEnd = newEnd;
+		}
+
+		/**
+		 * Returns with the edits followed by the given edit of the new state.
+		 */
+		private PendingEdits merge(VersionedTextDocumentIdentifier textDocument, IDocument newState, int offset, int length, int textLength) {
+			int end = Math.max(newEnd, offset + length);
+			return new PendingEdits(textDocument, oldState, newState, Math.min(start, offset), oldEnd + end - newEnd, end + textLength - length);
+		}
+	}
+
 	private final Supplier<Boolean> enabled;
 	private final JavaClientConnection connection;
-	private final Map<String, List<HighlightedPositionCore>> cache;
+	private final ConcurrentMap<String, HighlightingState> cache;
+	private final ConcurrentMap<String, PendingEdits> pending;
 	private CoreASTProvider astProvider;
 	private SemanticHighlightingDiffCalculator diffCalculator;
 
@@ -148,7 +257,8 @@ public class SemanticHighlightingService {
 		this.connection = connection;
 		this.astProvider = astProvider;
 		this.enabled = enabled; // XXX: move this out and have a factory instead, that creates a NOOP service instance.
-		this.cache = newHashMap();
+		this.cache = new ConcurrentHashMap<>();
+		this.pending = new ConcurrentHashMap<>();
 		this.diffCalculator = new SemanticHighlightingDiffCalculator();
 	}
 
@@ -159,57 +269,200 @@ public class SemanticHighlightingService {
 	public void uninstall(String uri) {
 		if (enabled.get()) {
 			this.cache.remove(uri);
+			this.pending.remove(uri);
 		}
 	}
 
-	public List<Position> install(ICompilationUnit unit) throws JavaModelException, BadPositionCategoryException {
+	public HighlightedPositions install(ICompilationUnit unit) throws JavaModelException {
 		if (enabled.get()) {
-			List<HighlightedPositionCore> positions = calculateHighlightedPositions(unit, false);
+			HighlightingState state = calculateState(getASTNode(unit));
+			HighlightedPositions positions = state.positions;
 			String uri = JDTUtils.getFileURI(unit.getResource());
-			this.cache.put(uri, positions);
+			this.cache.put(uri, state);
+			this.pending.remove(uri);
 			if (!positions.isEmpty()) {
 				IDocument document = JsonRpcHelpers.toDocument(unit.getBuffer());
 				List<SemanticHighlightingInformation> infos = toInfos(document, positions);
 				VersionedTextDocumentIdentifier textDocument = new VersionedTextDocumentIdentifier(uri, 1);
 				notifyClient(textDocument, infos);
 			}
-			return ImmutableList.copyOf(positions);
+			return positions;
 		}
-		return emptyList();
+		return HighlightedPositions.EMPTY;
 	}
 
-	public List<HighlightedPositionCore> calculateHighlightedPositions(ICompilationUnit unit, boolean cache) throws JavaModelException, BadPositionCategoryException {
+	public HighlightedPositions calculateHighlightedPositions(ICompilationUnit unit, boolean cache) throws JavaModelException {
 		if (enabled.get()) {
-			IDocument document = JsonRpcHelpers.toDocument(unit.getBuffer());
-			ASTNode ast = getASTNode(unit);
-			List<HighlightedPositionCore> positions = calculateHighlightedPositions(document, ast);
+			HighlightingState state = calculateState(getASTNode(unit));
 			if (cache) {
 				String uri = JDTUtils.getFileURI(unit.getResource());
-				this.cache.put(uri, positions);
+				this.cache.put(uri, state);
 			}
-			return ImmutableList.copyOf(positions);
+			return state.positions;
+		}
+		return HighlightedPositions.EMPTY;
+	}
+
+	/**
+	 * Returns with the cached highlighted positions of the document. The
+	 * positions are immutable, and they are not copied.
+	 */
+	public HighlightedPositions getHighlightedPositions(String uri) {
+		HighlightingState state = cache.get(uri);
+		return state == null ? HighlightedPositions.EMPTY : state.positions;
+	}
+
+	/**
+	 * Records an edit of the document of the unit. The highlighting is not
+	 * calculated here, but by {@link #update(ICompilationUnit, IDocument, ASTNode)},
+	 * once the edited unit is reconciled.
+	 *
+	 * @param oldState
+	 *            an immutable snapshot of the document before the edit
+	 * @param newState
+	 *            an immutable snapshot of the document after the edit
+	 */
+	public void edited(ICompilationUnit unit, VersionedTextDocumentIdentifier textDocument, IDocument oldState, IDocument newState, int offset, int length, String text) {
+		if (enabled.get()) {
+			String uri = JDTUtils.getFileURI(unit.getResource());
+			int textLength = text == null ? 0 : text.length();
+			//@formatter:off
+			this.pending.compute(uri, (key, edits) -> edits == null
+				? new PendingEdits(textDocument, oldState, newState, offset, offset + length, offset + textLength)
+				: edits.merge(textDocument, newState, offset, length, textLength));
+			//@formatter:on
+		}
+	}
+
+	public boolean hasPendingEdits(ICompilationUnit unit) {
+		return enabled.get() && !this.pending.isEmpty() && this.pending.containsKey(JDTUtils.getFileURI(unit.getResource()));
+	}
+
+	/**
+	 * Highlights the pending edits of the unit, and notifies the client about
+	 * the changed lines.
+	 *
+	 * Does nothing if the AST does not match the last pending edit, or if the
+	 * unit is edited meanwhile: the results would be stale, and the edits are
+	 * highlighted once the newer version is reconciled.
+	 *
+	 * @param state
+	 *            the content the AST was created from
+	 * @param ast
+	 *            the AST of the reconciled unit
+	 */
+	public void update(ICompilationUnit unit, IDocument state, ASTNode ast) throws BadLocationException {
+		if (!enabled.get() || ast == null) {
+			return;
+		}
+		String uri = JDTUtils.getFileURI(unit.getResource());
+		PendingEdits edits = this.pending.get(uri);
+		if (edits == null || !hasSameContent(edits.newState, state)) {
+			return;
+		}
+		HighlightingState oldState = this.cache.get(uri);
+		int length = edits.oldEnd - edits.start;
+		String text = edits.newState.get(edits.start, edits.newEnd - edits.start);
+		HighlightingState newState = oldState == null ? null : oldState.update(this, ast, edits.start, length, text.length() - length);
+		if (newState == null) {
+			newState = calculateState(ast);
+		}
+		if (!this.pending.remove(uri, edits)) {
+			return;
+		}
+		this.cache.put(uri, newState);
+		HighlightedPositions oldPositions = oldState == null ? HighlightedPositions.EMPTY : oldState.positions;
+		DocumentEvent event = new DocumentEvent(edits.newState, edits.start, length, text);
+		notifyClient(edits.textDocument, diffCalculator.getDiffInfos(new HighlightedPositionDiffContext(edits.oldState, event, oldPositions, newState.positions)));
+	}
+
+	private static boolean hasSameContent(IDocument document, IDocument other) {
+		if (document == other) {
+			return true;
+		}
+		if (document instanceof RopeDocument && other instanceof RopeDocument) {
+			return ((RopeDocument) document).getRope().contentEquals(((RopeDocument) other).getRope());
+		}
+		return document.get().equals(other.get());
+	}
+
+	/**
+	 * Returns with the highlighted positions of the given AST or subtree.
+	 */
+	protected HighlightedPositions calculateHighlightedPositions(ASTNode ast) {
+		if (ast == null) {
+			return HighlightedPositions.EMPTY;
 		}
-		return emptyList();
+		return new SemanticHighlightingReconciler().collectPositions(ast);
 	}
 
-	public List<HighlightedPositionCore> getHighlightedPositions(String uri) {
-		return ImmutableList.copyOf(cache.getOrDefault(uri, emptyList()));
+	private HighlightingState calculateState(ASTNode ast) {
+		return new HighlightingState(calculateHighlightedPositions(ast), toRanges(getBodies(ast)));
 	}
 
-	public void update(VersionedTextDocumentIdentifier textDocument, List<HighlightedPositionDiffContext> diffContexts) throws BadLocationException, BadPositionCategoryException, JavaModelException {
-		if (enabled.get() && !diffContexts.isEmpty()) {
-			List<SemanticHighlightingInformation> deltaInfos = newArrayList();
-			for (HighlightedPositionDiffContext context : diffContexts) {
-				deltaInfos.addAll(diffCalculator.getDiffInfos(context));
+	/**
+	 * Returns with the bodies of the methods and initializers of the types
+	 * declared by the AST, in source order. Local and anonymous types are not
+	 * considered.
+	 */
+	private static List<Block> getBodies(ASTNode ast) {
+		List<Block> bodies = newArrayList();
+		if (ast == null) {
+			return bodies;
+		}
+		ast.accept(new ASTVisitor() {
+
+			@Override
+			public boolean visit(MethodDeclaration node) {
+				if (node.getBody() != null) {
+					bodies.add(node.getBody());
+				}
+				return false;
 			}
-			if (!deltaInfos.isEmpty()) {
-				notifyClient(textDocument, deltaInfos);
+
+			@Override
+			public boolean visit(Initializer node) {
+				bodies.add(node.getBody());
+				return false;
 			}
-		}
+
+			@Override
+			public boolean visit(FieldDeclaration node) {
+				return false;
+			}
+
+			@Override
+			public boolean visit(EnumConstantDeclaration node) {
+				return false;
+			}
+
+			@Override
+			public boolean visit(AnnotationTypeMemberDeclaration node) {
+				return false;
+			}
+
+			@Override
+			public boolean visit(ImportDeclaration node) {
+				return false;
+			}
+
+			@Override
+			public boolean visit(PackageDeclaration node) {
+				return false;
+			}
+
+		});
+		return bodies;
 	}
 
-	protected List<HighlightedPositionCore> calculateHighlightedPositions(IDocument document, ASTNode ast) throws BadPositionCategoryException {
-		return new SemanticHighlightingReconciler().reconciled(document, ast, false, new NullProgressMonitor());
+	private static int[] toRanges(List<Block> bodies) {
+		int[] ranges = new int[bodies.size() * 2];
+		for (int i = 0; i < bodies.size(); i++) {
+			Block body = bodies.get(i);
+			ranges[2 * i] = body.getStartPosition();
+			ranges[2 * i + 1] = body.getStartPosition() + body.getLength();
+		}
+		return ranges;
 	}
 
 	protected ASTNode getASTNode(ICompilationUnit unit) {
@@ -220,19 +473,18 @@ public class SemanticHighlightingService {
 		return this.astProvider.getAST(unit, CoreASTProvider.WAIT_YES, new NullProgressMonitor());
 	}
 
-	protected List<SemanticHighlightingInformation> toInfos(IDocument document, List<HighlightedPositionCore> positions) {
+	protected List<SemanticHighlightingInformation> toInfos(IDocument document, HighlightedPositions positions) {
 		Multimap<Integer, SemanticHighlightingTokens.Token> infos = HashMultimap.create();
-		for (HighlightedPositionCore position : positions) {
-			int[] lineAndColumn = JsonRpcHelpers.toLine(document, position.offset);
+		for (int i = 0; i < positions.size(); i++) {
+			int offset = positions.getOffset(i);
+			int[] lineAndColumn = JsonRpcHelpers.toLine(document, offset);
 			if (lineAndColumn == null) {
-				JavaLanguageServerPlugin.logError("Cannot locate line and column information for the semantic highlighting position: " + position + ". Skipping it.");
+				JavaLanguageServerPlugin.logError("Cannot locate line and column information for the semantic highlighting position at offset: " + offset + ". Skipping it.");
 				continue;
 			}
 			int line = lineAndColumn[0];
 			int character = lineAndColumn[1];
-			int length = position.length;
-			int scope = LOOKUP_TABLE.inverse().get(position.getHighlighting());
-			infos.put(line, new SemanticHighlightingTokens.Token(character, length, scope));
+			infos.put(line, new SemanticHighlightingTokens.Token(character, positions.getLength(i), positions.getScope(i)));
 		}
 		//@formatter:off
 		return infos.asMap().entrySet().stream()
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.lsp;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokens;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDelta;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDeltaParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensRangeParams;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
+import org.eclipse.lsp4j.jsonrpc.services.JsonSegment;
+
+/**
+ * Interface for the semantic tokens requests, which are not part of the
+ * protocol supported by LSP4J yet.
+ */
+@JsonSegment("textDocument")
+public interface SemanticTokensProtocolExtensions {
+
+	@JsonRequest("semanticTokens/full")
+	CompletableFuture<SemanticTokens> semanticTokensFull(SemanticTokensParams params);
+
+	@JsonRequest("semanticTokens/full/delta")
+	CompletableFuture<Either<SemanticTokens, SemanticTokensDelta>> semanticTokensFullDelta(SemanticTokensDeltaParams params);
+
+	@JsonRequest("semanticTokens/range")
+	CompletableFuture<SemanticTokens> semanticTokensRange(SemanticTokensRangeParams params);
+}
@@ -201,6 +201,10 @@ public class ClientPreferences {
 		return Boolean.parseBoolean(extendedClientCapabilities.getOrDefault("generateDelegateMethodsPromptSupport", "false").toString());
 	}
 
+	public boolean isSemanticTokensSupported() {
+		return Boolean.parseBoolean(extendedClientCapabilities.getOrDefault("semanticTokensSupport", "false").toString());
+	}
+
 	public boolean isAdvancedExtractRefactoringSupported() {
 		return Boolean.parseBoolean(extendedClientCapabilities.getOrDefault("advancedExtractRefactoringSupport", "false").toString());
 	}
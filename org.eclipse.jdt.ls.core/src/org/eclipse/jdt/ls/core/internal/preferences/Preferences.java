@@ -174,6 +174,21 @@ public class Preferences {
 	 */
 	public static final String SELECTIONRANGE_ENABLED_KEY = "java.selectionRange.enabled";
 
+	/**
+	 * Preference key to only revalidate the edited documents and the open
+	 * documents depending on them, instead of every open document.
+	 */
+	public static final String VALIDATION_DEPENDENCY_AWARE_ENABLED_KEY = "java.validation.dependencyAware.enabled";
+
+	/**
+	 * Preference key for the interval, in milliseconds, at which the pending
+	 * diagnostics and semantic highlighting notifications are sent to the
+	 * client. <code>0</code> sends them immediately.
+	 */
+	public static final String NOTIFICATIONS_FLUSH_INTERVAL_KEY = "java.notifications.flushInterval";
+
+	public static final int NOTIFICATIONS_FLUSH_INTERVAL_DEFAULT = 50;
+
 	/**
 	 * A named preference that holds the favorite static members.
 	 * <p>
@@ -201,6 +216,42 @@ public class Preferences {
 	 */
 	public static final String JAVA_COMPLETION_GUESS_METHOD_ARGUMENTS_KEY = "java.completion.guessMethodArguments";
 
+	/**
+	 * A named preference that holds the maximum number of completion items
+	 * returned to the client. The most relevant items are kept, and the list
+	 * is marked as incomplete when it is truncated.
+	 * <p>
+	 * Value is of type <code>Integer</code>: <code>0</code> or less means no
+	 * limit.
+	 * </p>
+	 */
+	public static final String JAVA_COMPLETION_MAX_RESULTS_KEY = "java.completion.maxResults";
+
+	public static final int JAVA_COMPLETION_MAX_RESULTS_DEFAULT = 50;
+
+	/**
+	 * A named preference that holds the time budget of a completion, in
+	 * milliseconds. When it is exceeded, the proposals found so far are
+	 * returned, and the list is marked as incomplete.
+	 * <p>
+	 * Value is of type <code>Integer</code>: <code>0</code> or less means no
+	 * limit.
+	 * </p>
+	 */
+	public static final String JAVA_COMPLETION_TIMEOUT_KEY = "java.completion.timeout";
+
+	public static final int JAVA_COMPLETION_TIMEOUT_DEFAULT = 5000;
+
+	/**
+	 * A named preference that controls if the completion proposals are
+	 * computed in the background as soon as a completion trigger character is
+	 * typed, before the client requests them.
+	 * <p>
+	 * Value is of type <code>Boolean</code>.
+	 * </p>
+	 */
+	public static final String JAVA_COMPLETION_SPECULATIVE_KEY = "java.completion.speculative";
+
 	/**
 	 * A named preference that defines how member elements are ordered by code
 	 * actions.
@@ -276,6 +327,7 @@ public class Preferences {
 	public static final String WORKSPACE_CHANGE_FOLDERS = "workspace/didChangeWorkspaceFolders";
 	public static final String IMPLEMENTATION = "textDocument/implementation";
 	public static final String SELECTION_RANGE = "textDocument/selectionRange";
+	public static final String SEMANTIC_TOKENS = "textDocument/semanticTokens";
 
 	public static final String FORMATTING_ID = UUID.randomUUID().toString();
 	public static final String FORMATTING_ON_TYPE_ID = UUID.randomUUID().toString();
@@ -298,6 +350,7 @@ public class Preferences {
 	public static final String WORKSPACE_WATCHED_FILES_ID = UUID.randomUUID().toString();
 	public static final String IMPLEMENTATION_ID = UUID.randomUUID().toString();
 	public static final String SELECTION_RANGE_ID = UUID.randomUUID().toString();
+	public static final String SEMANTIC_TOKENS_ID = UUID.randomUUID().toString();
 
 	private Map<String, Object> configuration;
 	private Severity incompleteClasspathSeverity;
@@ -323,7 +376,12 @@ public class Preferences {
 	private boolean completionOverwrite;
 	private boolean foldingRangeEnabled;
 	private boolean selectionRangeEnabled;
+	private boolean dependencyAwareValidationEnabled;
+	private int notificationsFlushInterval;
 	private boolean guessMethodArguments;
+	private int maxCompletionResults;
+	private int completionTimeout;
+	private boolean speculativeCompletion;
 	private boolean javaFormatComments;
 	private boolean hashCodeEqualsTemplateUseJava7Objects;
 	private boolean hashCodeEqualsTemplateUseInstanceof;
@@ -437,7 +495,12 @@ public class Preferences {
 		completionOverwrite = true;
 		foldingRangeEnabled = true;
 		selectionRangeEnabled = true;
+		dependencyAwareValidationEnabled = false;
+		notificationsFlushInterval = NOTIFICATIONS_FLUSH_INTERVAL_DEFAULT;
 		guessMethodArguments = false;
+		maxCompletionResults = JAVA_COMPLETION_MAX_RESULTS_DEFAULT;
+		completionTimeout = JAVA_COMPLETION_TIMEOUT_DEFAULT;
+		speculativeCompletion = false;
 		javaFormatComments = true;
 		hashCodeEqualsTemplateUseJava7Objects = false;
 		hashCodeEqualsTemplateUseInstanceof = false;
@@ -526,9 +589,24 @@ public class Preferences {
 		boolean selectionRangeEnabled = getBoolean(configuration, SELECTIONRANGE_ENABLED_KEY, true);
 		prefs.setSelectionRangeEnabled(selectionRangeEnabled);
 
+		boolean dependencyAwareValidationEnabled = getBoolean(configuration, VALIDATION_DEPENDENCY_AWARE_ENABLED_KEY, false);
+		prefs.setDependencyAwareValidationEnabled(dependencyAwareValidationEnabled);
+
+		int notificationsFlushInterval = getInt(configuration, NOTIFICATIONS_FLUSH_INTERVAL_KEY, NOTIFICATIONS_FLUSH_INTERVAL_DEFAULT);
+		prefs.setNotificationsFlushInterval(notificationsFlushInterval);
+
 		boolean guessMethodArguments = getBoolean(configuration, JAVA_COMPLETION_GUESS_METHOD_ARGUMENTS_KEY, false);
 		prefs.setGuessMethodArguments(guessMethodArguments);
 
+		int maxCompletionResults = getInt(configuration, JAVA_COMPLETION_MAX_RESULTS_KEY, JAVA_COMPLETION_MAX_RESULTS_DEFAULT);
+		prefs.setMaxCompletionResults(maxCompletionResults);
+
+		int completionTimeout = getInt(configuration, JAVA_COMPLETION_TIMEOUT_KEY, JAVA_COMPLETION_TIMEOUT_DEFAULT);
+		prefs.setCompletionTimeout(completionTimeout);
+
+		boolean speculativeCompletion = getBoolean(configuration, JAVA_COMPLETION_SPECULATIVE_KEY, false);
+		prefs.setSpeculativeCompletion(speculativeCompletion);
+
 		boolean hashCodeEqualsTemplateUseJava7Objects = getBoolean(configuration, JAVA_CODEGENERATION_HASHCODEEQUALS_USEJAVA7OBJECTS, false);
 		prefs.setHashCodeEqualsTemplateUseJava7Objects(hashCodeEqualsTemplateUseJava7Objects);
 		boolean hashCodeEqualsTemplateUseInstanceof = getBoolean(configuration, JAVA_CODEGENERATION_HASHCODEEQUALS_USEINSTANCEOF, false);
@@ -724,11 +802,36 @@ public class Preferences {
 		return this;
 	}
 
+	public Preferences setDependencyAwareValidationEnabled(boolean enabled) {
+		this.dependencyAwareValidationEnabled = enabled;
+		return this;
+	}
+
+	public Preferences setNotificationsFlushInterval(int notificationsFlushInterval) {
+		this.notificationsFlushInterval = Math.max(0, notificationsFlushInterval);
+		return this;
+	}
+
 	public Preferences setGuessMethodArguments(boolean guessMethodArguments) {
 		this.guessMethodArguments = guessMethodArguments;
 		return this;
 	}
 
+	public Preferences setMaxCompletionResults(int maxCompletionResults) {
+		this.maxCompletionResults = Math.max(0, maxCompletionResults);
+		return this;
+	}
+
+	public Preferences setCompletionTimeout(int completionTimeout) {
+		this.completionTimeout = Math.max(0, completionTimeout);
+		return this;
+	}
+
+	public Preferences setSpeculativeCompletion(boolean speculativeCompletion) {
+		this.speculativeCompletion = speculativeCompletion;
+		return this;
+	}
+
 	public Preferences setJavaFormatEnabled(boolean enabled) {
 		this.javaFormatEnabled = enabled;
 		return this;
@@ -922,10 +1025,30 @@ public class Preferences {
 		return selectionRangeEnabled;
 	}
 
+	public boolean isDependencyAwareValidationEnabled() {
+		return dependencyAwareValidationEnabled;
+	}
+
+	public int getNotificationsFlushInterval() {
+		return notificationsFlushInterval;
+	}
+
 	public boolean isGuessMethodArguments() {
 		return guessMethodArguments;
 	}
 
+	public int getMaxCompletionResults() {
+		return maxCompletionResults;
+	}
+
+	public int getCompletionTimeout() {
+		return completionTimeout;
+	}
+
+	public boolean isSpeculativeCompletion() {
+		return speculativeCompletion;
+	}
+
 	public boolean isHashCodeEqualsTemplateUseJava7Objects() {
 		return hashCodeEqualsTemplateUseJava7Objects;
 	}
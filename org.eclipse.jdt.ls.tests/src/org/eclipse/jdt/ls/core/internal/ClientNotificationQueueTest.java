@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.ls.core.internal.JavaClientConnection.JavaLanguageClient;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.SemanticHighlightingInformation;
+import org.eclipse.lsp4j.SemanticHighlightingParams;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ClientNotificationQueueTest {
+
+	private JavaLanguageClient client;
+	private ClientNotificationQueue queue;
+
+	@Before
+	public void setUp() {
+		client = mock(JavaLanguageClient.class);
+		queue = new ClientNotificationQueue(client, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		queue.dispose();
+	}
+
+	@Test
+	public void testLatestDiagnosticsWin() {
+		PublishDiagnosticsParams first = new PublishDiagnosticsParams("file:///Foo.java", Collections.singletonList(new Diagnostic()));
+		PublishDiagnosticsParams second = new PublishDiagnosticsParams("file:///Foo.java", Collections.emptyList());
+		PublishDiagnosticsParams other = new PublishDiagnosticsParams("file:///Bar.java", Collections.emptyList());
+		queue.publishDiagnostics(first);
+		queue.publishDiagnostics(other);
+		queue.publishDiagnostics(second);
+		verify(client, never()).publishDiagnostics(any());
+
+		queue.flush();
+		ArgumentCaptor<PublishDiagnosticsParams> captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+		verify(client, times(2)).publishDiagnostics(captor.capture());
+		assertEquals(Arrays.asList(other, second), captor.getAllValues());
+	}
+
+	@Test
+	public void testMergeSemanticHighlightingOfSameVersion() {
+		VersionedTextDocumentIdentifier document = new VersionedTextDocumentIdentifier("file:///Foo.java", 1);
+		queue.semanticHighlighting(new SemanticHighlightingParams(document, Arrays.asList(new SemanticHighlightingInformation(0, "a"), new SemanticHighlightingInformation(2, "b"))));
+		queue.semanticHighlighting(new SemanticHighlightingParams(document, Arrays.asList(new SemanticHighlightingInformation(2, "c"), new SemanticHighlightingInformation(1, "d"))));
+		VersionedTextDocumentIdentifier newer = new VersionedTextDocumentIdentifier("file:///Foo.java", 2);
+		queue.semanticHighlighting(new SemanticHighlightingParams(newer, Collections.singletonList(new SemanticHighlightingInformation(3, "e"))));
+
+		queue.flush();
+		ArgumentCaptor<SemanticHighlightingParams> captor = ArgumentCaptor.forClass(SemanticHighlightingParams.class);
+		verify(client, times(2)).semanticHighlighting(captor.capture());
+		List<SemanticHighlightingParams> sent = captor.getAllValues();
+		assertEquals(Arrays.asList(new SemanticHighlightingInformation(0, "a"), new SemanticHighlightingInformation(1, "d"), new SemanticHighlightingInformation(2, "c")), sent.get(0).getLines());
+		assertEquals(Collections.singletonList(new SemanticHighlightingInformation(3, "e")), sent.get(1).getLines());
+	}
+
+	@Test
+	public void testPeriodicFlush() {
+		queue.setFlushInterval(10);
+		queue.publishDiagnostics(new PublishDiagnosticsParams("file:///Foo.java", Collections.emptyList()));
+		verify(client, timeout(1000)).publishDiagnostics(any());
+	}
+
+	@Test
+	public void testDispose() {
+		queue.publishDiagnostics(new PublishDiagnosticsParams("file:///Foo.java", Collections.emptyList()));
+		queue.dispose();
+		verify(client, times(1)).publishDiagnostics(any());
+		queue.publishDiagnostics(new PublishDiagnosticsParams("file:///Bar.java", Collections.emptyList()));
+		verify(client, times(2)).publishDiagnostics(any());
+	}
+
+	@Test
+	public void testConcurrentFlushesKeepOrder() throws Exception {
+		PublishDiagnosticsParams first = new PublishDiagnosticsParams("file:///Foo.java", Collections.singletonList(new Diagnostic()));
+		PublishDiagnosticsParams second = new PublishDiagnosticsParams("file:///Foo.java", Collections.emptyList());
+		List<PublishDiagnosticsParams> sent = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			PublishDiagnosticsParams params = (PublishDiagnosticsParams) invocation.getArguments()[0];
+			if (params == first) {
+				sending.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			sent.add(params);
+			return null;
+		}).when(client).publishDiagnostics(any());
+
+		queue.publishDiagnostics(first);
+		Thread firstFlush = new Thread(queue::flush);
+		firstFlush.start();
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+		queue.publishDiagnostics(second);
+		Thread secondFlush = new Thread(queue::flush);
+		secondFlush.start();
+		// the second flush must not overtake the one still sending
+		secondFlush.join(200);
+		release.countDown();
+		firstFlush.join(5000);
+		secondFlush.join(5000);
+		assertEquals(Arrays.asList(first, second), sent);
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.ls.core.internal.managers.AbstractProjectsManagerBasedTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConstantValueCacheTest extends AbstractProjectsManagerBasedTest {
+
+	//@formatter:off
+	private static final String CONTENT = "package _package;\n" +
+			"\n" +
+			"public class A {\n" +
+			"	public static final int SUM = 1 + 2;\n" +
+			"	public static final String NAME = \"a\" + \"b\";\n" +
+			"	public static final int NOT_CONSTANT = Integer.valueOf(1);\n" +
+			"	public final int instance = 4;\n" +
+			"	interface I {\n" +
+			"		long MAX = 1L << 40;\n" +
+			"	}\n" +
+			"}\n";
+	//@formatter:on
+
+	private IPackageFragment _package;
+
+	@Before
+	public void setup() throws Exception {
+		ConstantValueCache.clear();
+		IJavaProject project = newEmptyProject();
+		IPackageFragmentRoot src = project.getPackageFragmentRoot(project.getProject().getFolder("src"));
+		_package = src.createPackageFragment("_package", false, null);
+	}
+
+	@After
+	public void cleanup() {
+		ConstantValueCache.clear();
+	}
+
+	@Test
+	public void testConstantValues() throws Exception {
+		ICompilationUnit unit = _package.createCompilationUnit("A.java", CONTENT, false, null);
+		IType type = unit.getType("A");
+		assertNull(ConstantValueCache.getCachedConstantValue(type.getField("SUM")));
+		assertEquals(3, ConstantValueCache.getConstantValue(type.getField("SUM"), null));
+
+		// collected by the same pass
+		assertEquals("ab", ConstantValueCache.getCachedConstantValue(type.getField("NAME")));
+		assertEquals(1L << 40, ConstantValueCache.getCachedConstantValue(type.getType("I").getField("MAX")));
+		assertNull(ConstantValueCache.getConstantValue(type.getField("NOT_CONSTANT"), null));
+		assertNull(ConstantValueCache.getConstantValue(type.getField("instance"), null));
+
+		assertEquals("\"ab\"", JDTUtils.getConstantValue(type.getField("NAME")));
+	}
+
+	@Test
+	public void testInvalidation() throws Exception {
+		ICompilationUnit unit = _package.createCompilationUnit("A.java", CONTENT, false, null);
+		assertEquals(3, ConstantValueCache.getConstantValue(unit.getType("A").getField("SUM"), null));
+
+		unit = _package.createCompilationUnit("A.java", CONTENT.replace("1 + 2", "2 + 2"), true, null);
+		assertNull(ConstantValueCache.getCachedConstantValue(unit.getType("A").getField("SUM")));
+		assertEquals(4, ConstantValueCache.getConstantValue(unit.getType("A").getField("SUM"), null));
+	}
+
+	@Test
+	public void testWorkingCopyInvalidation() throws Exception {
+		ICompilationUnit unit = _package.createCompilationUnit("A.java", CONTENT, false, null);
+		unit.becomeWorkingCopy(null);
+		try {
+			IType type = unit.getType("A");
+			assertEquals(3, ConstantValueCache.getConstantValue(type.getField("SUM"), null));
+			assertEquals(3, ConstantValueCache.getCachedConstantValue(type.getField("SUM")));
+
+			// any change of the buffer drops the values
+			unit.getBuffer().replace(CONTENT.indexOf("1 + 2"), 1, "2");
+			assertNull(ConstantValueCache.getCachedConstantValue(type.getField("SUM")));
+			assertEquals(4, ConstantValueCache.getConstantValue(type.getField("SUM"), null));
+		} finally {
+			unit.discardWorkingCopy();
+		}
+	}
+}
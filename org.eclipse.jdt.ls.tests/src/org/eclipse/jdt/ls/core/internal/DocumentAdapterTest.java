@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.ls.core.internal.managers.AbstractProjectsManagerBasedTest;
+import org.junit.After;
+import org.junit.Test;
+
+public class DocumentAdapterTest extends AbstractProjectsManagerBasedTest {
+
+	private static final String CONTENT = "package _package;\nclass Foo {\n}\n";
+
+	@After
+	public void tearDown() throws Exception {
+		for (ICompilationUnit unit : JavaCore.getWorkingCopies(null)) {
+			unit.discardWorkingCopy();
+		}
+	}
+
+	@Test
+	public void testSnapshotFollowsChanges() throws Exception {
+		DocumentAdapter buffer = open(CONTENT);
+		long stamp = buffer.getModificationStamp();
+		Rope snapshot = buffer.getSnapshot();
+		assertSame(snapshot, buffer.getSnapshot());
+		assertEquals(stamp, buffer.getModificationStamp());
+
+		buffer.replace(CONTENT.indexOf('}'), 0, "\tint i;\n");
+		assertNotEquals(stamp, buffer.getModificationStamp());
+		Rope changed = buffer.getSnapshot();
+		assertNotSame(snapshot, changed);
+		// the earlier snapshot is not affected
+		assertEquals(CONTENT, snapshot.toString());
+		assertEquals(buffer.getContents(), changed.toString());
+
+		buffer.replace(0, "package _package;".length(), "");
+		assertTrue(buffer.getSnapshot().contentEquals(buffer.getContents()));
+	}
+
+	@Test
+	public void testHasContents() throws Exception {
+		DocumentAdapter buffer = open(CONTENT);
+		assertTrue(buffer.hasContents(CONTENT));
+		// same length and hash, different contents
+		String collision = CONTENT.replace("Foo", "GPo");
+		assertEquals(CONTENT.hashCode(), collision.hashCode());
+		assertFalse(buffer.hasContents(collision));
+		assertFalse(buffer.hasContents(CONTENT + " "));
+		String changed = CONTENT.replace("Foo", "Bar");
+		assertFalse(buffer.hasContents(changed));
+
+		buffer.replace(CONTENT.indexOf("Foo"), 3, "Bar");
+		assertTrue(buffer.hasContents(changed));
+		assertFalse(buffer.hasContents(CONTENT));
+		buffer.getSnapshot();
+		assertTrue(buffer.hasContents(changed));
+
+		buffer.setContents(CONTENT);
+		assertTrue(buffer.hasContents(CONTENT));
+		assertEquals(CONTENT, buffer.getContents());
+	}
+
+	private DocumentAdapter open(String content) throws Exception {
+		IJavaProject project = newEmptyProject();
+		IPackageFragmentRoot src = project.getPackageFragmentRoot(project.getProject().getFolder("src"));
+		IPackageFragment _package = src.createPackageFragment("_package", false, null);
+		ICompilationUnit unit = _package.createCompilationUnit("Foo.java", content, false, null);
+		unit.becomeWorkingCopy(null);
+		return (DocumentAdapter) unit.getBuffer();
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.Test;
+
+public class RopeDocumentTest {
+
+	private static final String[] FRAGMENTS = { "a", "bc", "\n", "\r", "\r\n", "class Foo {\n\tint i;\r\n}\n", "" };
+
+	@Test
+	public void testRandomEdits() throws Exception {
+		Random random = new Random(42);
+		Document expected = new Document();
+		RopeDocument actual = new RopeDocument(Rope.EMPTY);
+		for (int i = 0; i < 2000; i++) {
+			int offset = random.nextInt(expected.getLength() + 1);
+			int length = random.nextInt(Math.min(20, expected.getLength() - offset) + 1);
+			StringBuilder text = new StringBuilder();
+			for (int j = random.nextInt(3); j >= 0; j--) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			expected.replace(offset, length, text.toString());
+			actual.replace(offset, length, text.toString());
+			if (i % 100 == 0) {
+				assertSameLines(expected, actual);
+			}
+		}
+		assertSameLines(expected, actual);
+	}
+
+	@Test
+	public void testLargeText() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			text.append("\tint field").append(i).append(i % 3 == 0 ? ";\r\n" : ";\n");
+		}
+		Document expected = new Document(text.toString());
+		RopeDocument actual = new RopeDocument(text.toString());
+		assertSameLines(expected, actual);
+
+		expected.replace(12345, 100, "x\r");
+		actual.replace(12345, 100, "x\r");
+		assertSameLines(expected, actual);
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		RopeDocument document = new RopeDocument("abc\ndef");
+		Rope snapshot = document.getRope();
+		document.replace(1, 4, "\r\n");
+		assertEquals("abc\ndef", snapshot.toString());
+		assertEquals(2, snapshot.getNumberOfLines());
+		assertEquals("a\r\nef", document.get());
+		assertEquals("abc\ndef", new RopeDocument(snapshot).get());
+	}
+
+	@Test
+	public void testContentIdentity() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		RopeDocument document = new RopeDocument(text.toString());
+		document.replace(50, 3, "abc");
+		String expected = document.get();
+		Rope rope = document.getRope();
+		assertEquals(expected.hashCode(), rope.contentHash());
+		assertTrue(rope.contentEquals(expected));
+		assertFalse(rope.contentEquals(text.toString()));
+		assertFalse(rope.contentEquals(expected + " "));
+	}
+
+	private static void assertSameLines(IDocument expected, IDocument actual) throws BadLocationException {
+		assertEquals(expected.get(), actual.get());
+		assertEquals(expected.getNumberOfLines(), actual.getNumberOfLines());
+		for (int line = 0; line < expected.getNumberOfLines(); line++) {
+			assertEquals("line " + line, expected.getLineOffset(line), actual.getLineOffset(line));
+			assertEquals("line " + line, expected.getLineLength(line), actual.getLineLength(line));
+			assertEquals("line " + line, expected.getLineDelimiter(line), actual.getLineDelimiter(line));
+			assertEquals("line " + line, expected.getLineInformation(line), actual.getLineInformation(line));
+		}
+		for (int offset = 0; offset <= expected.getLength(); offset++) {
+			assertEquals("offset " + offset, expected.getLineOfOffset(offset), actual.getLineOfOffset(offset));
+		}
+	}
+}
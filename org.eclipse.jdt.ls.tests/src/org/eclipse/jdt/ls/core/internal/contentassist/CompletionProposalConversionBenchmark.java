@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.contentassist;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.ls.core.internal.handlers.AbstractCompilationUnitBasedTest;
+import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the conversion of large lists of type and method proposals to
+ * completion items in the current thread and in fork-join chunks. Each run
+ * converts proposals fresh from the completion engine, so the parallel runs
+ * include computing the parameter names of the method proposals beforehand.
+ * <p>
+ * Not part of the test suite, whose classes are named <code>*Test</code>: run
+ * it manually as a JUnit Plug-in Test, the timings are printed to the
+ * standard output.
+ * </p>
+ */
+public class CompletionProposalConversionBenchmark extends AbstractCompilationUnitBasedTest {
+
+	private static final int WARMUP_ITERATIONS = 20;
+	private static final int ITERATIONS = 50;
+
+	private ICompilationUnit unit;
+
+	@Before
+	public void createUnit() throws Exception {
+		preferences.setMaxCompletionResults(0);
+		unit = getWorkingCopy(
+		//@formatter:off
+				"src/java/Foo.java",
+				"public class Foo {\n"+
+						"	void foo() {\n"+
+						"		S\n"+
+						"		new java.util.ArrayList<String>().\n"+
+						"	}\n"+
+				"}\n");
+		//@formatter:on
+	}
+
+	@After
+	public void resetPreferences() {
+		preferences.setMaxCompletionResults(Preferences.JAVA_COMPLETION_MAX_RESULTS_DEFAULT);
+	}
+
+	@Test
+	public void benchmarkTypeConversion() throws Exception {
+		benchmark("type", unit.getSource().indexOf("S\n") + 1);
+	}
+
+	@Test
+	public void benchmarkMethodConversion() throws Exception {
+		benchmark("method", unit.getSource().indexOf(").\n") + 2);
+	}
+
+	private void benchmark(String kind, int offset) throws Exception {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			measure(offset, false);
+			measure(offset, true);
+		}
+		long sequential = 0;
+		long parallel = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			sequential += measure(offset, false);
+			parallel += measure(offset, true);
+		}
+		System.out.printf("Conversion of %d %s proposals, average of %d runs: %d us sequential, %d us parallel (%d threads)%n", collect(offset).getResponse().getProposals().size(), kind, ITERATIONS, sequential / ITERATIONS / 1000, parallel / ITERATIONS / 1000, CompletionProposalRequestor.MAX_CONVERSION_THREADS);
+	}
+
+	/**
+	 * Returns with the time of converting proposals collected anew, in
+	 * nanoseconds.
+	 */
+	private long measure(int offset, boolean parallel) throws Exception {
+		CompletionProposalRequestor collector = collect(offset);
+		int size = collector.getResponse().getProposals().size();
+		long start = System.nanoTime();
+		assertEquals(size, collector.toCompletionItems(parallel, null).size());
+		return System.nanoTime() - start;
+	}
+
+	private CompletionProposalRequestor collect(int offset) throws Exception {
+		CompletionProposalRequestor collector = new CompletionProposalRequestor(unit, offset);
+		unit.codeComplete(offset, collector);
+		collector.selectProposals();
+		return collector;
+	}
+}
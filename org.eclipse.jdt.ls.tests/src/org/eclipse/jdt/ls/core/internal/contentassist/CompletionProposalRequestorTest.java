@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.contentassist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.ls.core.internal.handlers.AbstractCompilationUnitBasedTest;
+import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
+import org.eclipse.lsp4j.CompletionItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompletionProposalRequestorTest extends AbstractCompilationUnitBasedTest {
+
+	private CompletionProposalRequestor collector;
+
+	@Before
+	public void collectTypes() throws Exception {
+		preferences.setMaxCompletionResults(0);
+		ICompilationUnit unit = getWorkingCopy(
+		//@formatter:off
+				"src/java/Foo.java",
+				"public class Foo {\n"+
+						"	void foo() {\n"+
+						"		S\n"+
+						"	}\n"+
+				"}\n");
+		//@formatter:on
+		int offset = unit.getSource().indexOf("S\n") + 1;
+		collector = new CompletionProposalRequestor(unit, offset);
+		unit.codeComplete(offset, collector);
+	}
+
+	@After
+	public void resetPreferences() {
+		preferences.setMaxCompletionResults(Preferences.JAVA_COMPLETION_MAX_RESULTS_DEFAULT);
+	}
+
+	@Test
+	public void testParallelConversionKeepsOrder() throws Exception {
+		List<CompletionItem> items = collector.getCompletionItems(new NullProgressMonitor());
+		assertTrue(String.valueOf(items.size()), items.size() > CompletionProposalRequestor.CONVERSION_CHUNK_SIZE * 4);
+		List<CompletionItem> sequential = collector.toCompletionItems(false, null);
+		List<CompletionItem> parallel = collector.toCompletionItems(true, null);
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.get(i).getLabel(), parallel.get(i).getLabel());
+			assertEquals(sequential.get(i).getSortText(), parallel.get(i).getSortText());
+			assertEquals(sequential.get(i).getData(), parallel.get(i).getData());
+		}
+	}
+
+	@Test
+	public void testCancelledConversion() throws Exception {
+		collector.getCompletionItems();
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			collector.toCompletionItems(true, monitor);
+			fail("The conversion should be cancelled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+}
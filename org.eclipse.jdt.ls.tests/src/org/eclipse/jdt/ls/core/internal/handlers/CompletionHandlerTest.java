@@ -29,7 +29,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -47,8 +46,10 @@ import org.eclipse.jdt.ls.core.internal.JsonMessageHelper;
 import org.eclipse.jdt.ls.core.internal.TextEditUtil;
 import org.eclipse.jdt.ls.core.internal.WorkspaceHelper;
 import org.eclipse.jdt.ls.core.internal.contentassist.JavadocCompletionProposal;
+import org.eclipse.jdt.ls.core.internal.contentassist.SnippetCompletionProposal;
 import org.eclipse.jdt.ls.core.internal.preferences.ClientPreferences;
 import org.eclipse.jdt.ls.core.internal.preferences.PreferenceManager;
+import org.eclipse.jdt.ls.core.internal.preferences.Preferences;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.CompletionList;
@@ -169,6 +170,56 @@ public class CompletionHandlerTest extends AbstractCompilationUnitBasedTest {
 		}
 	}
 
+	@Test
+	public void testCompletion_speculative() throws Exception {
+		ICompilationUnit unit = getCompilationUnit("src/java/Foo.java");
+		unit.becomeWorkingCopy(null);
+		CompletionHandler handler = new CompletionHandler();
+		lifeCycleHandler.setCompletionHandler(handler);
+		try {
+			String source = "package java;\n" +
+					"public class Foo {\n" +
+					"	void foo(Object o) {\n" +
+					"		o.";
+			// off by default
+			changeDocument(unit, source, 1);
+			int[] loc = findCompletionLocation(unit, "o.");
+			CompletionList list = handler.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1])), new NullProgressMonitor()).getRight();
+			assertFalse(list.getItems().isEmpty());
+			assertEquals(0, handler.getSpeculationHitCount());
+
+			preferences.setSpeculativeCompletion(true);
+			CompletionResponses.clear();
+			// the completion starts in the background, after the trigger character
+			changeDocument(unit, source, 2);
+			list = handler.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1])), new NullProgressMonitor()).getRight();
+			assertNotNull(list);
+			assertEquals(1, handler.getSpeculationHitCount());
+			assertTrue(list.getItems().stream().anyMatch(item -> item.getLabel().startsWith("hashCode")));
+			assertNotNull(server.resolveCompletionItem(list.getItems().get(0)).join());
+
+			// the next change drops it
+			changeDocument(unit, source + "toS", 3);
+			loc = findCompletionLocation(unit, "o.toS");
+			list = handler.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1])), new NullProgressMonitor()).getRight();
+			assertNotNull(list);
+			assertEquals(1, handler.getSpeculationHitCount());
+			assertFalse(list.getItems().isEmpty());
+			assertTrue(list.getItems().stream().anyMatch(item -> item.getLabel().startsWith("toString")));
+
+			// a discarded completion does not keep its response
+			int responses = CompletionResponses.size();
+			changeDocument(unit, source, 4);
+			changeDocument(unit, source + "x", 5);
+			Job.getJobManager().join(CompletionHandler.SPECULATIVE_COMPLETION_JOBS, null);
+			assertEquals(responses, CompletionResponses.size());
+		} finally {
+			preferences.setSpeculativeCompletion(false);
+			handler.discardSpeculation();
+			unit.discardWorkingCopy();
+		}
+	}
+
 	private void changeDocument(ICompilationUnit unit, String content, int version) throws JavaModelException {
 		DidChangeTextDocumentParams changeParms = new DidChangeTextDocumentParams();
 		VersionedTextDocumentIdentifier textDocument = new VersionedTextDocumentIdentifier();
@@ -214,12 +265,8 @@ public class CompletionHandlerTest extends AbstractCompilationUnitBasedTest {
 			assertFalse(item.getFilterText().contains(" "));
 			assertTrue(item.getLabel().startsWith(item.getFilterText()));
 			//Check contains data used for completionItem resolution
-			@SuppressWarnings("unchecked")
-			Map<String,String> data = (Map<String, String>) item.getData();
-			assertNotNull(data);
-			assertTrue(isNotBlank(data.get(CompletionResolveHandler.DATA_FIELD_URI)));
-			assertTrue(isNotBlank(data.get(CompletionResolveHandler.DATA_FIELD_PROPOSAL_ID)));
-			assertTrue(isNotBlank(data.get(CompletionResolveHandler.DATA_FIELD_REQUEST_ID)));
+			assertTrue(item.getData() instanceof String);
+			assertTrue(isNotBlank((String) item.getData()));
 		}
 	}
 
@@ -239,16 +286,147 @@ public class CompletionHandlerTest extends AbstractCompilationUnitBasedTest {
 
 		List<CompletionItem> items = new ArrayList<>(list.getItems());
 		for ( CompletionItem item : items) {
-			@SuppressWarnings("unchecked")
-			Map<String,String> data = (Map<String, String>) item.getData();
+			String data = (String) item.getData();
 			assertNotNull(data);
-			String uri = data.get(CompletionResolveHandler.DATA_FIELD_URI);
+			// the data refers to the response, which holds the URI
+			CompletionResponse response = CompletionResponses.get(Long.valueOf(data.substring(0, data.indexOf('-'))));
+			assertNotNull(response);
+			String uri = response.getUri();
 			assertTrue(isNotBlank(uri));
 			assertTrue("unexpected URI prefix: " + uri, uri.matches("file://.*/src/java/Foo\\.java"));
 		}
 	}
 
 
+	@Test
+	public void testCompletion_timeout() throws Exception {
+		ICompilationUnit unit = getWorkingCopy(
+				"src/java/Foo.java",
+				"public class Foo {\n"+
+						"	void foo() {\n"+
+						"		S\n"+
+						"	}\n"+
+				"}\n");
+		int[] loc = findCompletionLocation(unit, "		S");
+		try {
+			// the list is only incomplete because of the time budget
+			preferences.setMaxCompletionResults(0);
+			CompletionList list = null;
+			// the budget must expire once some proposals were accepted, which depends on the machine
+			for (int timeout = 1; timeout <= 1024; timeout *= 2) {
+				preferences.setCompletionTimeout(timeout);
+				list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+				assertNotNull(list);
+				if (list.isIncomplete() && !list.getItems().isEmpty()) {
+					break;
+				}
+			}
+			assertTrue(list.isIncomplete());
+			assertFalse("No partial results were returned", list.getItems().isEmpty());
+			// the partial results are sorted and resolvable
+			for (CompletionItem item : list.getItems()) {
+				assertTrue(isNotBlank(item.getSortText()));
+				assertTrue(item.getData() instanceof String);
+			}
+		} finally {
+			preferences.setCompletionTimeout(Preferences.JAVA_COMPLETION_TIMEOUT_DEFAULT);
+			preferences.setMaxCompletionResults(Preferences.JAVA_COMPLETION_MAX_RESULTS_DEFAULT);
+		}
+	}
+
+	@Test
+	public void testCompletion_maxResults() throws Exception {
+		ICompilationUnit unit = getWorkingCopy(
+				"src/java/Foo.java",
+				"public class Foo {\n"+
+						"	void foo() {\n"+
+						"		Objec\n"+
+						"	}\n"+
+				"}\n");
+		int[] loc = findCompletionLocation(unit, "Objec");
+		CompletionList list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+		assertNotNull(list);
+		assertTrue(list.getItems().size() > 2);
+		List<CompletionItem> items = new ArrayList<>(list.getItems());
+		Collections.sort(items, (CompletionItem a, CompletionItem b) -> a.getSortText().compareTo(b.getSortText()));
+
+		try {
+			preferences.setMaxCompletionResults(2);
+			list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+			assertNotNull(list);
+			assertTrue(list.isIncomplete());
+			assertEquals(2, list.getItems().size());
+			List<CompletionItem> top = new ArrayList<>(list.getItems());
+			Collections.sort(top, (CompletionItem a, CompletionItem b) -> a.getSortText().compareTo(b.getSortText()));
+			assertEquals(items.get(0).getSortText(), top.get(0).getSortText());
+			assertEquals(items.get(1).getSortText(), top.get(1).getSortText());
+			assertNotNull(server.resolveCompletionItem(top.get(1)).join());
+		} finally {
+			preferences.setMaxCompletionResults(Preferences.JAVA_COMPLETION_MAX_RESULTS_DEFAULT);
+		}
+	}
+
+	@Test
+	public void testCompletion_extendedPrefix() throws Exception {
+		ICompilationUnit unit = getWorkingCopy(
+				"src/java/Foo.java",
+				"public class Foo {\n"+
+						"	void foo() {\n"+
+						"		Obj\n"+
+						"	}\n"+
+				"}\n");
+		int[] loc = findCompletionLocation(unit, "Obj");
+		CompletionList list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+		assertNotNull(list);
+		int size = list.getItems().size();
+		assertFalse("No proposals were found", list.getItems().isEmpty());
+		CompletionItem previousObject = null;
+		for (CompletionItem item : list.getItems()) {
+			if ("Object - java.lang".equals(item.getLabel())) {
+				previousObject = item;
+			}
+		}
+		assertNotNull(previousObject);
+		long previousId = getResponseId(previousObject);
+
+		unit.getBuffer().replace(unit.getSource().indexOf("Obj") + 3, 0, "ec");
+		loc = findCompletionLocation(unit, "Objec");
+		list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+		assertNotNull(list);
+		assertFalse("No proposals were found", list.getItems().isEmpty());
+		assertTrue(list.getItems().size() <= size);
+		CompletionItem object = null;
+		for (CompletionItem item : list.getItems()) {
+			assertTrue(item.getFilterText(), item.getFilterText().toLowerCase().contains("objec"));
+			if ("Object - java.lang".equals(item.getLabel())) {
+				object = item;
+			}
+		}
+		assertNotNull(object);
+		// the proposals of the previous completion were filtered, the completion engine did not run again
+		CompletionResponse response = CompletionResponses.get(getResponseId(object));
+		assertNotNull(response);
+		assertEquals(Long.valueOf(previousId), response.getPreviousId());
+		// the same proposal, sorted by its relevance
+		assertEquals(previousObject.getSortText(), object.getSortText());
+
+		CompletionItem resolvedItem = server.resolveCompletionItem(object).join();
+		TextEdit te = resolvedItem.getTextEdit();
+		assertNotNull(te);
+		assertEquals("Object", te.getNewText());
+		assertEquals(2, te.getRange().getStart().getLine());
+		assertEquals(2, te.getRange().getStart().getCharacter());
+		assertEquals(7, te.getRange().getEnd().getCharacter());
+
+		// the previous list is left as it was
+		resolvedItem = server.resolveCompletionItem(previousObject).join();
+		te = resolvedItem.getTextEdit();
+		assertNotNull(te);
+		assertEquals("Object", te.getNewText());
+		assertEquals(2, te.getRange().getStart().getCharacter());
+		assertEquals(5, te.getRange().getEnd().getCharacter());
+	}
+
 	@Test
 	public void testCompletion_constructor() throws Exception{
 		ICompilationUnit unit = getWorkingCopy(
@@ -879,6 +1057,32 @@ public class CompletionHandlerTest extends AbstractCompilationUnitBasedTest {
 		assertEquals("/**\n * Test\n */\npublic interface Test {\n\n\t${0}\n}", te);
 	}
 
+	@Test
+	public void testSnippet_cached() throws JavaModelException {
+		ICompilationUnit unit = getWorkingCopy("src/org/sample/Test.java", "");
+		assertEquals("package org.sample;\n\n/**\n * Test\n */\npublic interface Test {\n\n\t${0}\n}", getInterfaceSnippet(unit, ""));
+		assertEquals("package org.sample;\n\n/**\n * Test\n */\npublic interface Test {\n\n\t${0}\n}", getInterfaceSnippet(unit, ""));
+
+		// the evaluated snippets depend on the contents of the compilation unit
+		unit = getWorkingCopy("src/org/sample/Test.java", "package org.sample;\n");
+		assertEquals("/**\n * Test\n */\npublic interface Test {\n\n\t${0}\n}", getInterfaceSnippet(unit, "package org.sample;\n"));
+		unit = getWorkingCopy("src/org/sample/Test.java", "package org.sample;\npublic interface Test {}\n");
+		assertEquals("/**\n * ${1:InnerTest}\n */\npublic interface ${1:InnerTest} {\n\n\t${0}\n}", getInterfaceSnippet(unit, "package org.sample;\npublic interface Test {}\n"));
+
+		SnippetCompletionProposal.clearCache();
+		unit = getWorkingCopy("src/org/sample/Test.java", "");
+		assertEquals("package org.sample;\n\n/**\n * Test\n */\npublic interface Test {\n\n\t${0}\n}", getInterfaceSnippet(unit, ""));
+	}
+
+	private String getInterfaceSnippet(ICompilationUnit unit, String completeBehind) throws JavaModelException {
+		int[] loc = findCompletionLocation(unit, completeBehind);
+		CompletionList list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+		assertNotNull(list);
+		CompletionItem item = list.getItems().stream().filter(i -> "interface".equals(i.getLabel()) && i.getKind() == CompletionItemKind.Snippet).findFirst().orElse(null);
+		assertNotNull(item);
+		return item.getInsertText();
+	}
+
 	@Test
 	public void testSnippet_inner_interface() throws JavaModelException {
 		ICompilationUnit unit = getWorkingCopy("src/org/sample/Test.java", "package org.sample;\npublic interface Test {}\n");
@@ -2199,6 +2403,38 @@ public class CompletionHandlerTest extends AbstractCompilationUnitBasedTest {
 		assertEquals("Default: \"test\"", documentation);
 	}
 
+	@Test
+	public void testCompletion_ConstantValueOnResolve() throws JavaModelException {
+		getWorkingCopy("src/org/sample/Constants.java",
+		//@formatter:off
+				"package org.sample;\n"
+			+	"public class Constants {\n"
+			+	"	public static final int SUM = 1 + 2;\n"
+			+	"}\n");
+		ICompilationUnit unit = getWorkingCopy("src/org/sample/Test.java",
+				"package org.sample;\n"
+			+	"public class Test {\n"
+			+	"	private int one = Constants.SU\n"
+			+	"}\n");
+		//@formatter:on
+		int[] loc = findCompletionLocation(unit, "Constants.SU");
+		CompletionList list = server.completion(JsonMessageHelper.getParams(createCompletionRequest(unit, loc[0], loc[1]))).join().getRight();
+		assertNotNull(list);
+		assertEquals(1, list.getItems().size());
+		CompletionItem ci = list.getItems().get(0);
+		assertEquals(CompletionItemKind.Constant, ci.getKind());
+		// computing the value needs an AST, which is deferred to the resolve request
+		assertEquals("SUM : int", ci.getLabel());
+		CompletionItem resolvedItem = server.resolveCompletionItem(ci).join();
+		String documentation = resolvedItem.getDocumentation().getLeft();
+		assertEquals("Value: 3", documentation);
+	}
+
+	private static long getResponseId(CompletionItem item) {
+		String data = String.valueOf(item.getData());
+		return Long.parseLong(data.substring(0, data.indexOf('-')));
+	}
+
 	private String createCompletionRequest(ICompilationUnit unit, int line, int kar) {
 		return COMPLETION_TEMPLATE.replace("${file}", JDTUtils.toURI(unit))
 				.replace("${line}", String.valueOf(line))
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompletionResponsesTest {
+
+	@Before
+	@After
+	public void clear() {
+		CompletionResponses.clear();
+	}
+
+	@Test
+	public void testRecentResponsesAreKept() {
+		List<CompletionResponse> responses = new ArrayList<>();
+		for (int i = 0; i < CompletionResponses.MAX_RESPONSES + 5; i++) {
+			CompletionResponse response = newResponse(10);
+			CompletionResponses.store(response);
+			responses.add(response);
+		}
+		assertEquals(CompletionResponses.MAX_RESPONSES, CompletionResponses.size());
+		assertEquals(CompletionResponses.MAX_RESPONSES * 10, CompletionResponses.getProposalCount());
+		assertNull(CompletionResponses.get(responses.get(4).getId()));
+		assertSame(responses.get(5), CompletionResponses.get(responses.get(5).getId()));
+
+		// the oldest response was just used, so the next one is evicted instead
+		long evictions = CompletionResponses.getEvictionCount();
+		CompletionResponses.store(newResponse(10));
+		assertEquals(evictions + 1, CompletionResponses.getEvictionCount());
+		assertSame(responses.get(5), CompletionResponses.get(responses.get(5).getId()));
+		assertNull(CompletionResponses.get(responses.get(6).getId()));
+	}
+
+	@Test
+	public void testProposalCountIsBounded() {
+		CompletionResponse first = newResponse(CompletionResponses.MAX_PROPOSALS / 2);
+		CompletionResponse second = newResponse(CompletionResponses.MAX_PROPOSALS / 2);
+		CompletionResponses.store(first);
+		CompletionResponses.store(second);
+		assertEquals(2, CompletionResponses.size());
+
+		CompletionResponse third = newResponse(1);
+		CompletionResponses.store(third);
+		assertNull(CompletionResponses.get(first.getId()));
+		assertSame(third, CompletionResponses.get(third.getId()));
+		assertEquals(CompletionResponses.MAX_PROPOSALS / 2 + 1, CompletionResponses.getProposalCount());
+
+		// the last response is kept even when it exceeds the limit on its own
+		CompletionResponse huge = newResponse(CompletionResponses.MAX_PROPOSALS + 1);
+		CompletionResponses.store(huge);
+		assertEquals(1, CompletionResponses.size());
+		assertSame(huge, CompletionResponses.get(huge.getId()));
+
+		CompletionResponses.delete(huge);
+		assertEquals(0, CompletionResponses.getProposalCount());
+	}
+
+	private static CompletionResponse newResponse(int proposals) {
+		CompletionResponse response = new CompletionResponse();
+		response.setProposals(Collections.nCopies(proposals, null));
+		return response;
+	}
+}
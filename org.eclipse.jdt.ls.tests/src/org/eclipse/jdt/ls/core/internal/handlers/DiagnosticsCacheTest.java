@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.Range;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiagnosticsCacheTest {
+
+	private static final String URI = "file:///tmp/Foo.java";
+
+	@Before
+	@After
+	public void clear() {
+		DiagnosticsCache.clear();
+	}
+
+	@Test
+	public void testUnchangedDiagnostics() {
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		assertFalse(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(2, "message"))));
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(2, "other message"))));
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(2, "other message"), newDiagnostic(3, "message"))));
+		assertTrue(DiagnosticsCache.update(newParams()));
+		assertFalse(DiagnosticsCache.update(newParams()));
+	}
+
+	@Test
+	public void testRemovedDocuments() {
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		DiagnosticsCache.remove(URI);
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		DiagnosticsCache.removeAll("file:///tmp");
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+	}
+
+	@Test
+	public void testRemovedFolders() {
+		String sibling = "file:///tmp/foo/Bar.java";
+		String other = "file:///tmpfoo/Bar.java";
+		DiagnosticsCache.update(newParams(newDiagnostic(1, "message")));
+		DiagnosticsCache.update(new PublishDiagnosticsParams("file:///tmp", Collections.emptyList()));
+		DiagnosticsCache.update(new PublishDiagnosticsParams(sibling, Collections.emptyList()));
+		DiagnosticsCache.update(new PublishDiagnosticsParams(other, Collections.emptyList()));
+
+		DiagnosticsCache.removeAll("file:///tmp/foo");
+		assertFalse(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		assertTrue(DiagnosticsCache.update(new PublishDiagnosticsParams(sibling, Collections.emptyList())));
+
+		DiagnosticsCache.removeAll("file:///tmp");
+		assertTrue(DiagnosticsCache.update(newParams(newDiagnostic(1, "message"))));
+		assertTrue(DiagnosticsCache.update(new PublishDiagnosticsParams("file:///tmp", Collections.emptyList())));
+		assertFalse(DiagnosticsCache.update(new PublishDiagnosticsParams(other, Collections.emptyList())));
+	}
+
+	private static PublishDiagnosticsParams newParams(Diagnostic... diagnostics) {
+		return new PublishDiagnosticsParams(URI, diagnostics.length == 0 ? Collections.emptyList() : Arrays.asList(diagnostics));
+	}
+
+	private static Diagnostic newDiagnostic(int line, String message) {
+		Diagnostic diagnostic = new Diagnostic(new Range(new Position(line, 0), new Position(line, 5)), message, DiagnosticSeverity.Error, "Java");
+		diagnostic.setCode("42");
+		return diagnostic;
+	}
+}
@@ -12,6 +12,7 @@ package org.eclipse.jdt.ls.core.internal.handlers;
 
 import static org.eclipse.jdt.ls.core.internal.Lsp4jAssertions.assertRange;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -24,7 +25,10 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.core.resources.IFolder;
@@ -93,6 +97,7 @@ public class DocumentLifeCycleHandlerTest extends AbstractProjectsManagerBasedTe
 		sharedASTProvider = CoreASTProvider.getInstance();
 		sharedASTProvider.disposeAST();
 		//		sharedASTProvider.clearASTCreationCount();
+		DiagnosticsCache.clear();
 		javaClient = new JavaClientConnection(client);
 		lifeCycleHandler = new DocumentLifeCycleHandler(javaClient, preferenceManager, projectsManager, false);
 	}
@@ -396,7 +401,8 @@ public class DocumentLifeCycleHandlerTest extends AbstractProjectsManagerBasedTe
 		assertEquals(false, cu1.hasUnsavedChanges());
 		assertEquals(true, cu2.isWorkingCopy());
 		assertEquals(false, cu2.hasUnsavedChanges());
-		assertNewProblemReported(new ExpectedProblemReport(cu2, 1), new ExpectedProblemReport(cu1, 0));
+		// the unchanged problems of cu2 aren't published again
+		assertNewProblemReported(new ExpectedProblemReport(cu1, 0));
 		assertEquals(1, getCacheSize());
 		assertNewASTsCreated(2);
 
@@ -412,7 +418,7 @@ public class DocumentLifeCycleHandlerTest extends AbstractProjectsManagerBasedTe
 		assertEquals(true, cu1.hasUnsavedChanges());
 		assertEquals(true, cu2.isWorkingCopy());
 		assertEquals(false, cu2.hasUnsavedChanges());
-		assertNewProblemReported(new ExpectedProblemReport(cu2, 0), new ExpectedProblemReport(cu1, 0));
+		assertNewProblemReported(new ExpectedProblemReport(cu2, 0));
 		assertEquals(1, getCacheSize());
 		assertNewASTsCreated(2);
 
@@ -447,6 +453,170 @@ public class DocumentLifeCycleHandlerTest extends AbstractProjectsManagerBasedTe
 		assertNewASTsCreated(0);
 	}
 
+	@Test
+	public void testDependencyAwareValidation() throws Exception {
+		when(preferenceManager.getPreferences().isDependencyAwareValidationEnabled()).thenReturn(true);
+		IJavaProject javaProject = newEmptyProject();
+		IPackageFragmentRoot sourceFolder = javaProject.getPackageFragmentRoot(javaProject.getProject().getFolder("src"));
+		IPackageFragment pack1 = sourceFolder.createPackageFragment("test1", false, null);
+
+		StringBuilder buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F123 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu1 = pack1.createCompilationUnit("F123.java", buf.toString(), false, null);
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F456 {\n");
+		buf.append("  { F123.foo(); }\n");
+		buf.append("}\n");
+		ICompilationUnit cu2 = pack1.createCompilationUnit("F456.java", buf.toString(), false, null);
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F789 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu3 = pack1.createCompilationUnit("F789.java", buf.toString(), false, null);
+
+		openDocument(cu1, cu1.getSource(), 1);
+		openDocument(cu2, cu2.getSource(), 1);
+		openDocument(cu3, cu3.getSource(), 1);
+		getPublishedURIs();
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F123 {\n");
+		buf.append("  public static void foo() {}\n");
+		buf.append("}\n");
+		changeDocumentFull(cu1, buf.toString(), 2);
+
+		// F456 is revalidated because of its unresolved reference, F789 is left untouched
+		assertEquals(new HashSet<>(Arrays.asList(JDTUtils.toURI(cu1), JDTUtils.toURI(cu2))), getPublishedURIs());
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F123 {\n");
+		buf.append("  public static void bar() {}\n");
+		buf.append("}\n");
+		changeDocumentFull(cu1, buf.toString(), 3);
+
+		// F456 now depends on F123
+		assertEquals(new HashSet<>(Arrays.asList(JDTUtils.toURI(cu1), JDTUtils.toURI(cu2))), getPublishedURIs());
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class F789 {\n");
+		buf.append("  int x;\n");
+		buf.append("}\n");
+		changeDocumentFull(cu3, buf.toString(), 2);
+
+		assertEquals(Collections.singleton(JDTUtils.toURI(cu3)), getPublishedURIs());
+	}
+
+	@Test
+	public void testCloseGroup() throws Exception {
+		when(preferenceManager.getPreferences().isDependencyAwareValidationEnabled()).thenReturn(true);
+		IJavaProject javaProject = newEmptyProject();
+		IPackageFragmentRoot sourceFolder = javaProject.getPackageFragmentRoot(javaProject.getProject().getFolder("src"));
+		IPackageFragment pack1 = sourceFolder.createPackageFragment("test1", false, null);
+
+		StringBuilder buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class G123 {\n");
+		buf.append("  public static void foo() {}\n");
+		buf.append("}\n");
+		ICompilationUnit cu1 = pack1.createCompilationUnit("G123.java", buf.toString(), false, null);
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class G456 {\n");
+		buf.append("  { G123.foo(); }\n");
+		buf.append("}\n");
+		ICompilationUnit cu2 = pack1.createCompilationUnit("G456.java", buf.toString(), false, null);
+
+		buf = new StringBuilder();
+		buf.append("package test1;\n");
+		buf.append("public class G789 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu3 = pack1.createCompilationUnit("G789.java", buf.toString(), false, null);
+
+		openDocument(cu1, cu1.getSource(), 1);
+		openDocument(cu2, cu2.getSource(), 1);
+		openDocument(cu3, cu3.getSource(), 1);
+		changeDocumentFull(cu1, "package test1;\npublic class G123 {\n}\n", 2);
+		changeDocumentFull(cu3, "package test1;\npublic class G789 {\n  int x;\n}\n", 2);
+		getPublishedURIs();
+
+		lifeCycleHandler.handleClosed(Arrays.asList(closeParams(cu1), closeParams(cu3)));
+
+		// the saved content of both units is published, and G456 is revalidated once against it
+		assertEquals(new HashSet<>(Arrays.asList(JDTUtils.toURI(cu1), JDTUtils.toURI(cu2), JDTUtils.toURI(cu3))), getPublishedURIs());
+		assertEquals(false, cu1.isWorkingCopy());
+		assertEquals(false, cu3.isWorkingCopy());
+		assertEquals(true, cu2.isWorkingCopy());
+	}
+
+	@Test
+	public void testDelayedOpen() throws Exception {
+		lifeCycleHandler = new DocumentLifeCycleHandler(javaClient, preferenceManager, projectsManager, true);
+		IJavaProject javaProject = newEmptyProject();
+		IPackageFragmentRoot sourceFolder = javaProject.getPackageFragmentRoot(javaProject.getProject().getFolder("src"));
+		IPackageFragment pack1 = sourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cu = pack1.createCompilationUnit("H123.java", "package test1;\npublic class H123 {\n}\n", false, null);
+		String content = "package test1;\npublic class H123 {\n  int x;\n}\n";
+
+		openDocument(cu, content, 1);
+		// a request handles the pending documents first, see JDTLanguageServer
+		lifeCycleHandler.handlePendingOpensAndCloses();
+		assertTrue(cu.isWorkingCopy());
+		assertEquals(content, cu.getBuffer().getContents());
+
+		closeDocument(cu);
+		// without a request, the batch is handled once the delay elapses
+		Job.getJobManager().join(DocumentLifeCycleHandler.DOCUMENT_LIFE_CYCLE_JOBS, new NullProgressMonitor());
+		assertFalse(cu.isWorkingCopy());
+	}
+
+	@Test
+	public void testReopenInBatch() throws Exception {
+		lifeCycleHandler = new DocumentLifeCycleHandler(javaClient, preferenceManager, projectsManager, true);
+		SemanticTokensHandler semanticTokensHandler = Mockito.mock(SemanticTokensHandler.class);
+		lifeCycleHandler.setSemanticTokensHandler(semanticTokensHandler);
+		IJavaProject javaProject = newEmptyProject();
+		IPackageFragmentRoot sourceFolder = javaProject.getPackageFragmentRoot(javaProject.getProject().getFolder("src"));
+		IPackageFragment pack1 = sourceFolder.createPackageFragment("test1", false, null);
+		String content = "package test1;\npublic class H456 {\n}\n";
+		ICompilationUnit cu = pack1.createCompilationUnit("H456.java", content, false, null);
+		String uri = JDTUtils.toURI(cu);
+		String reopened = "package test1;\npublic class H456 {\n  int x;\n}\n";
+
+		// the opens and closes of a document are handled in the order they were received
+		openDocument(cu, content, 1);
+		closeDocument(cu);
+		openDocument(cu, reopened, 2);
+		lifeCycleHandler.handlePendingOpensAndCloses();
+		assertTrue(cu.isWorkingCopy());
+		assertEquals(reopened, cu.getBuffer().getContents());
+		Mockito.verify(semanticTokensHandler).forget(uri);
+
+		closeDocument(cu);
+		openDocument(cu, content, 3);
+		closeDocument(cu);
+		lifeCycleHandler.handlePendingOpensAndCloses();
+		assertFalse(cu.isWorkingCopy());
+		Mockito.verify(semanticTokensHandler, Mockito.times(3)).forget(uri);
+	}
+
+	private Set<String> getPublishedURIs() {
+		List<PublishDiagnosticsParams> diags = getClientRequests("publishDiagnostics");
+		Set<String> uris = diags.stream().map(PublishDiagnosticsParams::getUri).collect(Collectors.toSet());
+		diags.clear();
+		// publish the next validation results, even when unchanged
+		DiagnosticsCache.clear();
+		return uris;
+	}
+
 	@Test
 	public void testDidOpenStandaloneFile() throws Exception {
 		IJavaProject javaProject = newDefaultProject();
@@ -792,11 +962,15 @@ public class DocumentLifeCycleHandlerTest extends AbstractProjectsManagerBasedTe
 	}
 
 	private void closeDocument(ICompilationUnit cu) {
+		lifeCycleHandler.didClose(closeParams(cu));
+	}
+
+	private DidCloseTextDocumentParams closeParams(ICompilationUnit cu) {
 		DidCloseTextDocumentParams closeParms = new DidCloseTextDocumentParams();
 		TextDocumentIdentifier textDocument = new TextDocumentIdentifier();
 		textDocument.setUri(JDTUtils.toURI(cu));
 		closeParms.setTextDocument(textDocument);
-		lifeCycleHandler.didClose(closeParms);
+		return closeParms;
 	}
 
 	class ExpectedProblemReport {
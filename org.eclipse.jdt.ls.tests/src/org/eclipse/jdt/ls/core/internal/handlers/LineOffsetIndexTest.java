@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.Test;
+
+public class LineOffsetIndexTest {
+
+	private static final String TEXT = "a\nbc\r\ndef\rg\n";
+
+	@Test
+	public void testSameAsDocument() throws Exception {
+		IDocument document = new Document(TEXT);
+		LineOffsetIndex index = LineOffsetIndex.create(TEXT);
+		assertEquals(document.getNumberOfLines(), index.getNumberOfLines());
+		for (int offset = 0; offset <= TEXT.length(); offset++) {
+			int line = document.getLineOfOffset(offset);
+			assertArrayEquals("offset " + offset, new int[] { line, offset - document.getLineOffset(line) }, index.toLine(offset));
+		}
+		for (int line = 0; line < document.getNumberOfLines(); line++) {
+			assertEquals(document.getLineOffset(line) + 1, index.toOffset(line, 1));
+		}
+	}
+
+	@Test
+	public void testOutOfRange() {
+		LineOffsetIndex index = LineOffsetIndex.create(TEXT);
+		assertNull(index.toLine(-1));
+		assertNull(index.toLine(TEXT.length() + 1));
+		assertEquals(-1, index.toOffset(-1, 0));
+		assertEquals(-1, index.toOffset(index.getNumberOfLines(), 0));
+	}
+
+	@Test
+	public void testBatchConversion() {
+		LineOffsetIndex index = LineOffsetIndex.create(TEXT);
+		int[] offsets = { 11, 0, -1, 7, 3, 100, 7 };
+		int[] lines = index.toLines(offsets);
+		for (int i = 0; i < offsets.length; i++) {
+			int[] expected = index.toLine(offsets[i]);
+			if (expected == null) {
+				expected = new int[] { -1, -1 };
+			}
+			assertArrayEquals("offset " + offsets[i], expected, new int[] { lines[2 * i], lines[2 * i + 1] });
+		}
+	}
+
+	@Test
+	public void testBufferCache() {
+		IBuffer buffer = mock(IBuffer.class);
+		when(buffer.getCharacters()).thenReturn(TEXT.toCharArray());
+		LineOffsetIndex index = LineOffsetIndex.get(buffer);
+		assertSame(index, LineOffsetIndex.get(buffer));
+		assertArrayEquals(new int[] { 2, 1 }, JsonRpcHelpers.toLine(buffer, 7));
+
+		when(buffer.getCharacters()).thenReturn("abc".toCharArray());
+		assertNotSame(index, LineOffsetIndex.get(buffer));
+		assertArrayEquals(new int[] { 0, 2 }, JsonRpcHelpers.toLine(buffer, 2));
+		assertEquals(1, LineOffsetIndex.get(buffer).getNumberOfLines());
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReconcileSchedulerTest {
+
+	private static final String FAMILY = "ReconcileSchedulerTest";
+
+	private ReconcileScheduler scheduler;
+	private CountDownLatch release;
+
+	@Before
+	public void setup() {
+		scheduler = new ReconcileScheduler("Reconcile");
+		release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		release.countDown();
+		Job.getJobManager().join(FAMILY, null);
+	}
+
+	@Test
+	public void testConcurrentProjects() throws Exception {
+		List<ICompilationUnit> units = newUnits(ReconcileScheduler.MAX_THREADS + 2, ReconcileScheduler.MAX_THREADS + 2);
+		int expected = Math.min(ReconcileScheduler.MAX_THREADS, units.size());
+		CountDownLatch started = new CountDownLatch(expected);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger completed = new AtomicInteger();
+		Thread thread = reconcileInBackground(units, (unit, monitor) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			started.countDown();
+			await(release);
+			running.decrementAndGet();
+			completed.incrementAndGet();
+		}, new NullProgressMonitor(), null);
+
+		// the projects are processed at the same time, within the limit of the group
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		release.countDown();
+		thread.join(10000);
+		assertEquals(units.size(), completed.get());
+		assertEquals(expected, maxRunning.get());
+	}
+
+	@Test
+	public void testSameProjectIsSerialized() throws Exception {
+		List<ICompilationUnit> units = newUnits(4, 1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger completed = new AtomicInteger();
+		Thread thread = reconcileInBackground(units, (unit, monitor) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(20);
+			running.decrementAndGet();
+			completed.incrementAndGet();
+		}, new NullProgressMonitor(), null);
+
+		thread.join(10000);
+		assertEquals(units.size(), completed.get());
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void testProjectRule() throws Exception {
+		List<ICompilationUnit> units = newUnits(1, 1);
+		IProject project = units.get(0).getJavaProject().getProject();
+		CountDownLatch started = new CountDownLatch(1);
+		Job.getJobManager().beginRule(project, null);
+		Thread thread;
+		try {
+			thread = reconcileInBackground(units, (unit, monitor) -> started.countDown(), new NullProgressMonitor(), null);
+			// waits for the build or the change holding the project
+			assertFalse(started.await(200, TimeUnit.MILLISECONDS));
+		} finally {
+			Job.getJobManager().endRule(project);
+		}
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		thread.join(10000);
+	}
+
+	@Test
+	public void testCancelUnit() throws Exception {
+		List<ICompilationUnit> units = newUnits(1, 1);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicReference<IProgressMonitor> unitMonitor = new AtomicReference<>();
+		Thread thread = reconcileInBackground(units, (unit, monitor) -> {
+			unitMonitor.set(monitor);
+			started.countDown();
+			await(release);
+		}, new NullProgressMonitor(), null);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertFalse(unitMonitor.get().isCanceled());
+		scheduler.cancel(units.get(0));
+		assertTrue(unitMonitor.get().isCanceled());
+		release.countDown();
+		thread.join(10000);
+	}
+
+	@Test
+	public void testCancelMonitor() throws Exception {
+		List<ICompilationUnit> units = newUnits(ReconcileScheduler.MAX_THREADS + 1, ReconcileScheduler.MAX_THREADS + 1);
+		CountDownLatch started = new CountDownLatch(1);
+		Set<IProgressMonitor> unitMonitors = ConcurrentHashMap.newKeySet();
+		Set<ICompilationUnit> reconciled = ConcurrentHashMap.newKeySet();
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		AtomicReference<IStatus> status = new AtomicReference<>();
+		Thread thread = reconcileInBackground(units, (unit, unitMonitor) -> {
+			unitMonitors.add(unitMonitor);
+			started.countDown();
+			await(release);
+			reconciled.add(unit);
+		}, monitor, status);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		monitor.setCanceled(true);
+		thread.join(10000);
+		assertEquals(IStatus.CANCEL, status.get().getSeverity());
+		// canceling stops the operation on the units, not only the wait
+		for (IProgressMonitor unitMonitor : unitMonitors) {
+			assertTrue(unitMonitor.isCanceled());
+		}
+		release.countDown();
+		Job.getJobManager().join(FAMILY, null);
+		// the units waiting for a thread were not processed
+		assertTrue(String.valueOf(reconciled.size()), reconciled.size() <= ReconcileScheduler.MAX_THREADS);
+	}
+
+	@Test
+	public void testJoinFamily() throws Exception {
+		List<ICompilationUnit> units = newUnits(3, 3);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger completed = new AtomicInteger();
+		reconcileInBackground(units, (unit, monitor) -> {
+			started.countDown();
+			await(release);
+			completed.incrementAndGet();
+		}, new NullProgressMonitor(), null);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertEquals(units.size(), Job.getJobManager().find(FAMILY).length);
+		release.countDown();
+		Job.getJobManager().join(FAMILY, null);
+		assertEquals(units.size(), completed.get());
+	}
+
+	private Thread reconcileInBackground(List<ICompilationUnit> units, ReconcileScheduler.ReconcileOperation operation, IProgressMonitor monitor, AtomicReference<IStatus> status) {
+		Thread thread = new Thread(() -> {
+			IStatus result = scheduler.reconcile(units, operation, FAMILY, monitor);
+			if (status != null) {
+				status.set(result);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Returns with mocks of units spread over the given number of project
+	 * handles, which don't need to exist to be used as scheduling rules.
+	 */
+	private static List<ICompilationUnit> newUnits(int count, int projects) {
+		List<ICompilationUnit> units = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			IJavaProject javaProject = mock(IJavaProject.class);
+			when(javaProject.getProject()).thenReturn(ResourcesPlugin.getWorkspace().getRoot().getProject(FAMILY + (i % projects)));
+			ICompilationUnit unit = mock(ICompilationUnit.class);
+			when(unit.getJavaProject()).thenReturn(javaProject);
+			units.add(unit);
+		}
+		return units;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
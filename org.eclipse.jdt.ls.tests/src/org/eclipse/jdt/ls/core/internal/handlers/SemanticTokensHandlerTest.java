@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.ls.core.internal.JDTUtils;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokens;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDelta;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensDeltaParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensEdit;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensParams;
+import org.eclipse.jdt.ls.core.internal.handlers.SemanticTokensHandler.SemanticTokensRangeParams;
+import org.eclipse.jdt.ls.core.internal.managers.AbstractProjectsManagerBasedTest;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SemanticTokensHandlerTest extends AbstractProjectsManagerBasedTest {
+
+	//@formatter:off
+	private static final String CONTENT = "package _package;\n" +
+			"\n" +
+			"public class A {\n" +
+			"	int field;\n" +
+			"	void foo(int parameter) {\n" +
+			"		field = parameter;\n" +
+			"	}\n" +
+			"}\n";
+	//@formatter:on
+
+	private SemanticTokensHandler handler;
+	private IPackageFragment _package;
+	private TextDocumentIdentifier textDocument;
+
+	@Before
+	public void setup() throws Exception {
+		handler = new SemanticTokensHandler();
+		IJavaProject project = newEmptyProject();
+		IPackageFragmentRoot src = project.getPackageFragmentRoot(project.getProject().getFolder("src"));
+		_package = src.createPackageFragment("_package", false, null);
+		ICompilationUnit unit = _package.createCompilationUnit("A.java", CONTENT, false, null);
+		textDocument = new TextDocumentIdentifier(JDTUtils.toURI(unit));
+	}
+
+	@Test
+	public void testFull() throws Exception {
+		SemanticTokens tokens = handler.full(new SemanticTokensParams(textDocument), new NullProgressMonitor());
+		assertEquals(0, tokens.data.length % 5);
+		List<String> positions = toPositions(tokens.data);
+		assertTrue(positions.toString(), positions.contains("2:13:1"));
+		assertTrue(positions.toString(), positions.contains("3:5:5"));
+		assertTrue(positions.toString(), positions.contains("4:6:3"));
+		assertTrue(positions.toString(), positions.contains("4:14:9"));
+		assertTrue(positions.toString(), positions.contains("5:2:5"));
+		assertTrue(positions.toString(), positions.contains("5:10:9"));
+	}
+
+	@Test
+	public void testDelta() throws Exception {
+		SemanticTokens tokens = handler.full(new SemanticTokensParams(textDocument), new NullProgressMonitor());
+		_package.createCompilationUnit("A.java", CONTENT.replace("int field;", "int field, other;"), true, null);
+
+		SemanticTokensDeltaParams params = new SemanticTokensDeltaParams();
+		params.textDocument = textDocument;
+		params.previousResultId = tokens.resultId;
+		Either<SemanticTokens, SemanticTokensDelta> delta = handler.delta(params, new NullProgressMonitor());
+		assertTrue(delta.isRight());
+		assertFalse(tokens.resultId.equals(delta.getRight().resultId));
+		assertEquals(1, delta.getRight().edits.size());
+		SemanticTokensEdit edit = delta.getRight().edits.get(0);
+		assertTrue(toPositions(apply(tokens.data, edit)).contains("3:12:5"));
+
+		// the previous result is not held anymore
+		delta = handler.delta(params, new NullProgressMonitor());
+		assertTrue(delta.isLeft());
+		assertTrue(toPositions(delta.getLeft().data).contains("3:12:5"));
+	}
+
+	@Test
+	public void testRange() throws Exception {
+		SemanticTokensRangeParams params = new SemanticTokensRangeParams();
+		params.textDocument = textDocument;
+		params.range = new Range(new Position(4, 0), new Position(6, 0));
+		SemanticTokens tokens = handler.range(params, new NullProgressMonitor());
+		assertNull(tokens.resultId);
+		List<String> positions = toPositions(tokens.data);
+		assertTrue(positions.toString(), positions.contains("4:6:3"));
+		assertTrue(positions.toString(), positions.contains("5:10:9"));
+		for (String position : positions) {
+			assertTrue(position, position.startsWith("4:") || position.startsWith("5:"));
+		}
+	}
+
+	@Test
+	public void testDiff() {
+		assertNull(SemanticTokensHandler.diff(new int[] { 1, 2, 3 }, new int[] { 1, 2, 3 }));
+		SemanticTokensEdit edit = SemanticTokensHandler.diff(new int[] { 1, 2, 3, 4 }, new int[] { 1, 2, 9, 3, 4 });
+		assertEquals(2, edit.start);
+		assertEquals(0, edit.deleteCount);
+		assertArrayEquals(new int[] { 9 }, edit.data);
+		edit = SemanticTokensHandler.diff(new int[] { 1, 1, 1 }, new int[] { 1 });
+		assertEquals(1, edit.start);
+		assertEquals(2, edit.deleteCount);
+		assertArrayEquals(new int[0], edit.data);
+	}
+
+	private static int[] apply(int[] data, SemanticTokensEdit edit) {
+		int[] result = new int[data.length - edit.deleteCount + edit.data.length];
+		System.arraycopy(data, 0, result, 0, edit.start);
+		System.arraycopy(edit.data, 0, result, edit.start, edit.data.length);
+		System.arraycopy(data, edit.start + edit.deleteCount, result, edit.start + edit.data.length, data.length - edit.start - edit.deleteCount);
+		return result;
+	}
+
+	/**
+	 * Decodes the relative tokens to <code>line:character:length</code>
+	 * strings.
+	 */
+	private static List<String> toPositions(int[] data) {
+		List<String> positions = new ArrayList<>();
+		int line = 0;
+		int character = 0;
+		for (int i = 0; i < data.length; i += 5) {
+			character = data[i] == 0 ? character + data[i + 1] : data[i + 1];
+			line += data[i];
+			positions.add(line + ":" + character + ":" + data[i + 2]);
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ValidationDebouncerTest {
+
+	private ValidationDebouncer debouncer;
+	private ICompilationUnit unit;
+
+	@Before
+	public void setup() {
+		debouncer = new ValidationDebouncer();
+		unit = mock(ICompilationUnit.class);
+	}
+
+	@Test
+	public void testUnknownUnit() {
+		assertEquals(0, debouncer.getDelayCount());
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getAverageDelay());
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getDelay(unit));
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getLastDelay());
+	}
+
+	@Test
+	public void testCheapUnit() {
+		debouncer.reconcileCompleted(unit, 10);
+		assertEquals(ValidationDebouncer.MIN_DELAY, debouncer.getDelay(unit));
+	}
+
+	@Test
+	public void testExpensiveUnit() {
+		debouncer.reconcileCompleted(unit, 1000);
+		assertEquals(1000, debouncer.getDelay(unit));
+		debouncer.reconcileCompleted(unit, 10000);
+		assertEquals(ValidationDebouncer.MAX_DELAY, debouncer.getDelay(unit));
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getPublishDelay());
+	}
+
+	@Test
+	public void testTyping() {
+		debouncer.reconcileCompleted(unit, 10);
+		debouncer.editReceived(unit, 1000);
+		debouncer.editReceived(unit, 1100);
+		debouncer.editReceived(unit, 1200);
+		debouncer.editReceived(unit, 1300);
+		assertEquals(150, debouncer.getDelay(unit));
+		assertEquals(150, debouncer.getLastDelay());
+		assertEquals(150, debouncer.getPublishDelay());
+
+		// a pause ends the typing burst
+		debouncer.editReceived(unit, 5000);
+		assertEquals(ValidationDebouncer.MIN_DELAY, debouncer.getDelay(unit));
+		assertEquals(ValidationDebouncer.MIN_DELAY, debouncer.getLastDelay());
+		assertEquals(2, debouncer.getDelayCount());
+		assertEquals((150 + ValidationDebouncer.MIN_DELAY) / 2, debouncer.getAverageDelay());
+	}
+
+	@Test
+	public void testAdaptation() {
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getDelay(unit));
+		debouncer.reconcileCompleted(unit, 1000);
+		debouncer.getDelay(unit);
+		assertEquals(1000, debouncer.getLastDelay());
+		// the average follows the cheaper reconciles
+		for (int i = 0; i < 20; i++) {
+			debouncer.reconcileCompleted(unit, 10);
+			debouncer.getDelay(unit);
+		}
+		assertEquals(ValidationDebouncer.MIN_DELAY, debouncer.getLastDelay());
+		assertEquals(22, debouncer.getDelayCount());
+	}
+
+	@Test
+	public void testRemove() {
+		debouncer.reconcileCompleted(unit, 10);
+		debouncer.remove(unit);
+		assertEquals(ValidationDebouncer.DEFAULT_DELAY, debouncer.getDelay(unit));
+	}
+}
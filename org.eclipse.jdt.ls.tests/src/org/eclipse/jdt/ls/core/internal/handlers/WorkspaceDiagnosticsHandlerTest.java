@@ -35,6 +35,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.ls.core.internal.JavaClientConnection;
 import org.eclipse.jdt.ls.core.internal.ResourceUtils;
 import org.eclipse.jdt.ls.core.internal.managers.AbstractProjectsManagerBasedTest;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
@@ -79,10 +80,7 @@ public class WorkspaceDiagnosticsHandlerTest extends AbstractProjectsManagerBase
 		String msg3 = "It's probably time to panic";
 		IMarker m3 = createMarker(42, msg3, 100, 10000, 10005);
 
-		IDocument d = mock(IDocument.class);
-		when(d.getLineOffset(1)).thenReturn(90);
-		when(d.getLineOffset(9)).thenReturn(1000);
-		when(d.getLineOffset(99)).thenReturn(10000);
+		IDocument d = newDocument(10010, 1, 90, 9, 1000, 99, 10000);
 
 		List<Diagnostic> diags = WorkspaceDiagnosticsHandler.toDiagnosticsArray(d, new IMarker[]{m1, m2, m3});
 		assertEquals(3, diags.size());
@@ -165,8 +163,7 @@ public class WorkspaceDiagnosticsHandlerTest extends AbstractProjectsManagerBase
 		String msg1 = "Some dependency is missing";
 		IMarker m1 = createMavenMarker(IMarker.SEVERITY_ERROR, msg1, 2, 95, 100);
 
-		IDocument d = mock(IDocument.class);
-		when(d.getLineOffset(1)).thenReturn(90);
+		IDocument d = newDocument(200, 1, 90);
 
 		List<Diagnostic> diags = WorkspaceDiagnosticsHandler.toDiagnosticsArray(d, new IMarker[]{m1, null});
 		assertEquals(1, diags.size());
@@ -439,6 +436,33 @@ public class WorkspaceDiagnosticsHandlerTest extends AbstractProjectsManagerBase
 
 	}
 
+	/**
+	 * Returns a blank document of the given length, whose lines start at the
+	 * given offsets.
+	 *
+	 * @param lineOffsets
+	 *            pairs of a line and the offset it starts at, in ascending
+	 *            order
+	 */
+	private static IDocument newDocument(int length, int... lineOffsets) {
+		StringBuilder content = new StringBuilder(length);
+		int line = 0;
+		for (int i = 0; i < lineOffsets.length; i += 2) {
+			// the lines in between are empty, right before the given line
+			int empty = lineOffsets[i] - 1 - line;
+			while (content.length() < lineOffsets[i + 1] - 1 - empty) {
+				content.append(' ');
+			}
+			for (; line < lineOffsets[i]; line++) {
+				content.append('\n');
+			}
+		}
+		while (content.length() < length) {
+			content.append(' ');
+		}
+		return new Document(content.toString());
+	}
+
 	private IMarker createMarker(int severity, String msg, int line, int start, int end) {
 		IMarker m = mock(IMarker.class);
 		when(m.exists()).thenReturn(true);
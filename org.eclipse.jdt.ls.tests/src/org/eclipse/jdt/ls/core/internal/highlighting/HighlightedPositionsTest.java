@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.highlighting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class HighlightedPositionsTest {
+
+	@Test
+	public void testSorted() {
+		HighlightedPositions positions = new HighlightedPositions.Builder(1).add(20, 2, 1).add(5, 3, 2).add(20, 4, 3).add(0, 1, 4).build();
+		assertEquals("[0:1:4, 5:3:2, 20:2:1, 20:4:3]", positions.toString());
+		assertEquals(0, positions.indexOf(0));
+		assertEquals(1, positions.indexOf(1));
+		assertEquals(2, positions.indexOf(20));
+		assertEquals(4, positions.indexOf(21));
+	}
+
+	@Test
+	public void testAddAll() {
+		HighlightedPositions positions = new HighlightedPositions.Builder().add(0, 1, 0).add(10, 1, 1).add(20, 1, 2).build();
+		HighlightedPositions shifted = new HighlightedPositions.Builder().addAll(positions, 0, 1, 0).add(5, 2, 3).addAll(positions, 2, 3, -5).build();
+		assertEquals("[0:1:0, 5:2:3, 15:1:2]", shifted.toString());
+		assertSame(HighlightedPositions.EMPTY, new HighlightedPositions.Builder().build());
+	}
+}
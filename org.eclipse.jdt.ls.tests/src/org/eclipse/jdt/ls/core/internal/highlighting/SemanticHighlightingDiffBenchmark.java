@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.highlighting;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingService.HighlightedPositionDiffContext;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.lsp4j.SemanticHighlightingInformation;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the time and the allocation of diffing the highlighted positions
+ * of a large document after a keystroke.
+ * <p>
+ * Not part of the test suite, whose classes are named <code>*Test</code>: run
+ * its <code>main</code> method manually, the results are printed to the
+ * standard output. The allocation is read from the HotSpot
+ * {@link ThreadMXBean}.
+ * </p>
+ */
+public class SemanticHighlightingDiffBenchmark {
+
+	private static final String LINE = "\tint a = b + c;\n";
+	private static final int LINE_COUNT = 10000;
+	private static final int WARMUP_ITERATIONS = 2000;
+	private static final int ITERATIONS = 1000;
+
+	public static void main(String[] args) throws BadLocationException {
+		StringBuilder content = new StringBuilder(LINE.length() * LINE_COUNT);
+		HighlightedPositions.Builder oldBuilder = new HighlightedPositions.Builder(LINE_COUNT * 3);
+		HighlightedPositions.Builder newBuilder = new HighlightedPositions.Builder(LINE_COUNT * 3);
+		int editedLine = LINE_COUNT / 2;
+		int editOffset = editedLine * LINE.length() + LINE.indexOf('b') + 1;
+		for (int line = 0; line < LINE_COUNT; line++) {
+			int offset = line * LINE.length();
+			content.append(LINE);
+			oldBuilder.add(offset + 5, 1, 1).add(offset + 9, 1, 2).add(offset + 13, 1, 2);
+			if (line == editedLine) {
+				newBuilder.add(offset + 5, 1, 1).add(offset + 9, 2, 2).add(offset + 14, 1, 2);
+			} else {
+				int delta = line > editedLine ? 1 : 0;
+				newBuilder.add(offset + delta + 5, 1, 1).add(offset + delta + 9, 1, 2).add(offset + delta + 13, 1, 2);
+			}
+		}
+		IDocument oldState = new Document(content.toString());
+		IDocument newState = new Document(content.insert(editOffset, 'x').toString());
+		HighlightedPositions oldPositions = oldBuilder.build();
+		HighlightedPositions newPositions = newBuilder.build();
+		HighlightedPositionDiffContext context = new HighlightedPositionDiffContext(oldState, new DocumentEvent(newState, editOffset, 0, "x"), oldPositions, newPositions);
+		SemanticHighlightingDiffCalculator calculator = new SemanticHighlightingDiffCalculator();
+
+		int lines = 0;
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			lines += calculator.getDiffInfos(context).size();
+		}
+		ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocated = bean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			List<SemanticHighlightingInformation> infos = calculator.getDiffInfos(context);
+			lines += infos.size();
+		}
+		long time = (System.nanoTime() - start) / ITERATIONS;
+		allocated = (bean.getThreadAllocatedBytes(threadId) - allocated) / ITERATIONS;
+		if (lines != WARMUP_ITERATIONS + ITERATIONS) {
+			throw new IllegalStateException("Unexpected diff of " + lines + " lines");
+		}
+		System.out.printf("Semantic highlighting diff of %d positions, average of %d edits: %d ns/edit, %d bytes/edit%n", oldPositions.size(), ITERATIONS, time, allocated);
+	}
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ls.core.internal.highlighting;
+
+import static org.eclipse.lsp4j.util.SemanticHighlightingTokens.decode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.eclipse.jdt.ls.core.internal.highlighting.SemanticHighlightingService.HighlightedPositionDiffContext;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.lsp4j.SemanticHighlightingInformation;
+import org.eclipse.lsp4j.util.SemanticHighlightingTokens.Token;
+import org.junit.Test;
+
+public class SemanticHighlightingDiffCalculatorTest {
+
+	private static final String LINE = "\tint a = b + c;\n";
+
+	private final SemanticHighlightingDiffCalculator calculator = new SemanticHighlightingDiffCalculator();
+
+	@Test
+	public void testUnchangedHighlighting() throws Exception {
+		IDocument oldState = new Document("a b\n\nc");
+		IDocument newState = new Document("a b\n\n\nc");
+		HighlightedPositions oldPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 1, 2).add(5, 1, 3).build();
+		HighlightedPositions newPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 1, 2).add(6, 1, 3).build();
+		assertEquals(0, getDiffInfos(oldState, newState, 4, 0, "\n", oldPositions, newPositions).size());
+	}
+
+	@Test
+	public void testChangedLines() throws Exception {
+		IDocument oldState = new Document("a b\nc");
+		IDocument newState = new Document("a bb\nc");
+		HighlightedPositions oldPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 1, 2).add(4, 1, 3).build();
+		HighlightedPositions newPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 2, 2).add(5, 1, 3).build();
+		List<SemanticHighlightingInformation> infos = getDiffInfos(oldState, newState, 3, 0, "b", oldPositions, newPositions);
+		assertEquals(1, infos.size());
+		assertEquals(0, infos.get(0).getLine());
+		List<Token> tokens = decode(infos.get(0).getTokens());
+		assertEquals(2, tokens.size());
+		assertToken(tokens.get(0), 0, 1, 1);
+		assertToken(tokens.get(1), 2, 2, 2);
+
+		HighlightedPositions addedPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 2, 2).add(5, 1, 3).add(7, 1, 1).build();
+		infos = getDiffInfos(newState, new Document("a bb\nc d"), 6, 0, " d", newPositions, addedPositions);
+		assertEquals(1, infos.size());
+		assertEquals(1, infos.get(0).getLine());
+		tokens = decode(infos.get(0).getTokens());
+		assertEquals(2, tokens.size());
+		assertToken(tokens.get(1), 2, 1, 1);
+	}
+
+	@Test
+	public void testRemovedHighlighting() throws Exception {
+		IDocument oldState = new Document("a\nb");
+		IDocument newState = new Document("a\n");
+		HighlightedPositions oldPositions = new HighlightedPositions.Builder().add(0, 1, 1).add(2, 1, 2).build();
+		HighlightedPositions newPositions = new HighlightedPositions.Builder().add(0, 1, 1).build();
+		List<SemanticHighlightingInformation> infos = getDiffInfos(oldState, newState, 2, 1, "", oldPositions, newPositions);
+		assertEquals(1, infos.size());
+		assertEquals(1, infos.get(0).getLine());
+		assertNull(infos.get(0).getTokens());
+	}
+
+	@Test
+	public void testKeystrokeInLargeDocument() throws Exception {
+		int lineCount = 1000;
+		StringBuilder content = new StringBuilder(LINE.length() * lineCount);
+		HighlightedPositions.Builder oldBuilder = new HighlightedPositions.Builder(lineCount * 3);
+		HighlightedPositions.Builder newBuilder = new HighlightedPositions.Builder(lineCount * 3);
+		int editedLine = lineCount / 2;
+		int editOffset = editedLine * LINE.length() + LINE.indexOf('b') + 1;
+		for (int line = 0; line < lineCount; line++) {
+			int offset = line * LINE.length();
+			content.append(LINE);
+			oldBuilder.add(offset + 5, 1, 1).add(offset + 9, 1, 2).add(offset + 13, 1, 2);
+			if (line == editedLine) {
+				newBuilder.add(offset + 5, 1, 1).add(offset + 9, 2, 2).add(offset + 14, 1, 2);
+			} else {
+				int delta = line > editedLine ? 1 : 0;
+				newBuilder.add(offset + delta + 5, 1, 1).add(offset + delta + 9, 1, 2).add(offset + delta + 13, 1, 2);
+			}
+		}
+		IDocument oldState = new Document(content.toString());
+		IDocument newState = new Document(content.insert(editOffset, 'x').toString());
+		HighlightedPositions oldPositions = oldBuilder.build();
+		HighlightedPositions newPositions = newBuilder.build();
+
+		List<SemanticHighlightingInformation> infos = getDiffInfos(oldState, newState, editOffset, 0, "x", oldPositions, newPositions);
+		assertEquals(1, infos.size());
+		assertEquals(editedLine, infos.get(0).getLine());
+		List<Token> tokens = decode(infos.get(0).getTokens());
+		assertEquals(3, tokens.size());
+		assertToken(tokens.get(1), 9, 2, 2);
+	}
+
+	private List<SemanticHighlightingInformation> getDiffInfos(IDocument oldState, IDocument newState, int offset, int length, String text, HighlightedPositions oldPositions, HighlightedPositions newPositions) throws Exception {
+		DocumentEvent event = new DocumentEvent(newState, offset, length, text);
+		return calculator.getDiffInfos(new HighlightedPositionDiffContext(oldState, event, oldPositions, newPositions));
+	}
+
+	private static void assertToken(Token token, int character, int length, int scope) {
+		assertEquals(character, token.character);
+		assertEquals(length, token.length);
+		assertEquals(scope, token.scope);
+	}
+
+}
@@ -14,6 +14,7 @@ import static com.google.common.collect.Lists.newArrayList;
 import static org.eclipse.lsp4j.util.SemanticHighlightingTokens.decode;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -26,11 +27,15 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 import org.eclipse.jdt.ls.core.internal.JDTUtils;
 import org.eclipse.jdt.ls.core.internal.JavaClientConnection;
 import org.eclipse.jdt.ls.core.internal.handlers.DocumentLifeCycleHandler;
+import org.eclipse.jdt.ls.core.internal.handlers.JsonRpcHelpers;
 import org.eclipse.jdt.ls.core.internal.managers.AbstractProjectsManagerBasedTest;
 import org.eclipse.jdt.ls.core.internal.preferences.ClientPreferences;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.Position;
@@ -758,6 +763,85 @@ public class SemanticHighlightingTest extends AbstractProjectsManagerBasedTest {
 		assertEquals(1, tokenCFieldA.length);
 	}
 
+	@Test
+	public void testIncrementalPositions() throws Exception {
+		IJavaProject project = newEmptyProject();
+		IPackageFragmentRoot src = project.getPackageFragmentRoot(project.getProject().getFolder("src"));
+		IPackageFragment _package = src.createPackageFragment("_package", false, null);
+		ICompilationUnit unit = _package.createCompilationUnit("ClassName.java", CONTENT, false, null);
+		unit.becomeWorkingCopy(null);
+		SemanticHighlightingService service = new SemanticHighlightingService(javaClient, CoreASTProvider.getInstance(), () -> true);
+		service.install(unit);
+
+		// inside the body of foo, only the body is highlighted again
+		String text = "staticMethod();\n\t\tint other = local;\n\t\t";
+		int offset = CONTENT.indexOf("Thread.currentThread()");
+		assertSamePositions(service, unit, offset, 0, text);
+
+		// a new declaration, all the positions are calculated again
+		text = "\tprivate Color color;\n";
+		offset = unit.getSource().indexOf("\tpublic void abstractMethod(String s) { }");
+		assertSamePositions(service, unit, offset, 0, text);
+
+		// the positions of the following types are shifted
+		offset = unit.getSource().indexOf("return number + 1;");
+		assertSamePositions(service, unit, offset, "return number + 1;".length(), "return number;");
+	}
+
+	@Test
+	public void testStaleEditsAreNotHighlighted() throws Exception {
+		IJavaProject project = newEmptyProject();
+		IPackageFragmentRoot src = project.getPackageFragmentRoot(project.getProject().getFolder("src"));
+		IPackageFragment _package = src.createPackageFragment("_package", false, null);
+		ICompilationUnit unit = _package.createCompilationUnit("ClassName.java", CONTENT, false, null);
+		unit.becomeWorkingCopy(null);
+		SemanticHighlightingService service = new SemanticHighlightingService(javaClient, CoreASTProvider.getInstance(), () -> true);
+		service.install(unit);
+		javaClient.params.clear();
+		VersionedTextDocumentIdentifier textDocument = new VersionedTextDocumentIdentifier(JDTUtils.toURI(unit), 1);
+
+		int offset = CONTENT.indexOf("staticMethod();");
+		IDocument oldState = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+		unit.getBuffer().replace(offset, 0, "hashCode();");
+		IDocument firstState = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+		service.edited(unit, textDocument, oldState, firstState, offset, 0, "hashCode();");
+		ASTNode firstAST = getAST(unit);
+
+		textDocument = new VersionedTextDocumentIdentifier(JDTUtils.toURI(unit), 2);
+		unit.getBuffer().replace(offset, 0, "staticField = null;");
+		IDocument secondState = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+		service.edited(unit, textDocument, firstState, secondState, offset, 0, "staticField = null;");
+
+		// the AST of the first version is superseded
+		service.update(unit, firstState, firstAST);
+		assertEquals(0, javaClient.params.size());
+		assertTrue(service.hasPendingEdits(unit));
+
+		service.update(unit, secondState, getAST(unit));
+		assertEquals(1, javaClient.params.size());
+		assertEquals(2, javaClient.params.get(0).getTextDocument().getVersion().intValue());
+		assertFalse(service.hasPendingEdits(unit));
+		assertEquals(service.calculateHighlightedPositions(unit, false), service.getHighlightedPositions(JDTUtils.getFileURI(unit.getResource())));
+	}
+
+	private static ASTNode getAST(ICompilationUnit unit) {
+		CoreASTProvider.getInstance().disposeAST();
+		return CoreASTProvider.getInstance().getAST(unit, CoreASTProvider.WAIT_YES, null);
+	}
+
+	private static void assertSamePositions(SemanticHighlightingService service, ICompilationUnit unit, int offset, int length, String text) throws Exception {
+		VersionedTextDocumentIdentifier textDocument = new VersionedTextDocumentIdentifier(JDTUtils.toURI(unit), 1);
+		IDocument oldState = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+		unit.getBuffer().replace(offset, length, text);
+		IDocument newState = JsonRpcHelpers.toDocumentSnapshot(unit.getBuffer());
+		service.edited(unit, textDocument, oldState, newState, offset, length, text);
+		service.update(unit, newState, getAST(unit));
+		assertFalse(service.hasPendingEdits(unit));
+		HighlightedPositions incremental = service.getHighlightedPositions(JDTUtils.getFileURI(unit.getResource()));
+		HighlightedPositions full = service.calculateHighlightedPositions(unit, false);
+		assertEquals(full, incremental);
+	}
+
 	protected void openDocument(ICompilationUnit unit, String content, int version) {
 		DidOpenTextDocumentParams openParms = new DidOpenTextDocumentParams();
 		TextDocumentItem textDocument = new TextDocumentItem();